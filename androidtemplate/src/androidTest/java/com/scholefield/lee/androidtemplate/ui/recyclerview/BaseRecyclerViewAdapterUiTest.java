@@ -6,6 +6,7 @@ import android.support.test.rule.ActivityTestRule;
 import android.support.test.runner.AndroidJUnit4;
 import android.support.v7.widget.LinearLayoutManager;
 import android.support.v7.widget.RecyclerView;
+import android.view.ViewGroup;
 import com.lee.scholefield.androidtemplate.ui.DummyActivity;
 import com.lee.scholefield.androidtemplate.ui.BaseRecyclerViewAdapterImp;
 import com.lee.scholefield.androidtemplate.ui.ViewHolderImp;
@@ -23,6 +24,7 @@ import static android.support.test.espresso.Espresso.onView;
 import static android.support.test.espresso.matcher.ViewMatchers.withId;
 import static junit.framework.Assert.assertEquals;
 import static junit.framework.Assert.assertNull;
+import static junit.framework.Assert.assertTrue;
 import static junit.framework.TestCase.assertNotNull;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.verify;
@@ -166,6 +168,91 @@ public class BaseRecyclerViewAdapterUiTest {
         assertNull(viewHolder);
     }
 
+    @Test
+    public void refresh_with_stable_ids_reuses_view_holders() throws Exception {
+        final CountingAdapter adapter = new CountingAdapter(100);
+        adapter.setIdExtractor(new BaseRecyclerViewAdapter.IdExtractor<String>() {
+            @Override
+            public long getId(String item) {
+                return Long.parseLong(item.substring("item ".length()));
+            }
+        });
+        setAdapter(adapter);
+
+        activityTestRule.getActivity().runOnUiThread(new Runnable() {
+            @Override
+            public void run() {
+                adapter.notifyDataSetChanged();
+            }
+        });
+        InstrumentationRegistry.getInstrumentation().waitForIdleSync();
+
+        // without stable ids every visible ViewHolder is recycled, and those that do not fit in the pool are created again
+        assertEquals(0, adapter.created);
+    }
+
+    @Test
+    public void scrolling_reuses_view_holders() throws Exception {
+        final CountingAdapter adapter = new CountingAdapter(200);
+        setAdapter(adapter);
+        final int visible = recyclerView.getChildCount();
+
+        for (int i = 0; i < 20; i++) {
+            activityTestRule.getActivity().runOnUiThread(new Runnable() {
+                @Override
+                public void run() {
+                    recyclerView.scrollBy(0, recyclerView.getHeight() / 2);
+                }
+            });
+            InstrumentationRegistry.getInstrumentation().waitForIdleSync();
+        }
+
+        // everything scrolled into view is bound, but only a few more ViewHolders than fit on screen are created
+        assertTrue(adapter.bound >= visible * 9);
+        assertTrue(adapter.created <= visible);
+    }
+
+    /**
+     * Sets the {@code adapter} on the recyclerView, waits for it to be laid out and then resets its counts.
+     */
+    private void setAdapter(final CountingAdapter adapter) {
+        activityTestRule.getActivity().runOnUiThread(new Runnable() {
+            @Override
+            public void run() {
+                recyclerView.setAdapter(adapter);
+            }
+        });
+        InstrumentationRegistry.getInstrumentation().waitForIdleSync();
+
+        adapter.created = 0;
+        adapter.bound = 0;
+    }
 
+    /**
+     * Counts how many ViewHolders it creates and binds.
+     */
+    private static class CountingAdapter extends BaseRecyclerViewAdapterImp {
 
+        int created = 0;
+        int bound = 0;
+
+        CountingAdapter(int size) {
+            super(new ArrayList<String>());
+            for (int i = 0; i < size; i++) {
+                dataSet.add("item " + i);
+            }
+        }
+
+        @Override
+        protected ViewHolderImp onCreateItemViewHolder(ViewGroup parent, int viewType) {
+            created++;
+            return super.onCreateItemViewHolder(parent, viewType);
+        }
+
+        @Override
+        public void onBindViewHolder(ViewHolderImp holder, int position) {
+            bound++;
+            super.onBindViewHolder(holder, position);
+        }
+    }
 }
\ No newline at end of file
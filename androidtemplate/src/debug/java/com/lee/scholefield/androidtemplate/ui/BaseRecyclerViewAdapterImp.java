@@ -19,14 +19,12 @@ public class BaseRecyclerViewAdapterImp extends BaseRecyclerViewAdapter<String,
 
     @Override
     public void onBindViewHolder(ViewHolderImp holder, int position) {
-        super.onBindViewHolder(holder, position);
-
         String item = dataSet.get(position);
         holder.textView.setText(item);
     }
 
     @Override
-    public ViewHolderImp onCreateViewHolder(ViewGroup parent, int viewType) {
+    protected ViewHolderImp onCreateItemViewHolder(ViewGroup parent, int viewType) {
         View view = LayoutInflater.from(parent.getContext()).inflate(R.layout.rv_view_holder, parent, false);
         return new ViewHolderImp(view);
     }
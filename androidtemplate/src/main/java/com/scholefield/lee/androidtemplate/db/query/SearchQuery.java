@@ -33,12 +33,19 @@ import android.support.annotation.Nullable;
  * Specified columns from rows that match a where clause:
  *       <code>new SearchQuery("customers", new String[]{"address", "age"}, "name='john' AND age > 25);</code>
  *       SQL string: "SELECT address, age FROM customers WHERE name='john' AND age > 25".
+ *
+ * The rows can be sorted using {@link #setOrderBy}, and a single page of the results returned using {@link #page}:
+ *      <code>new SearchQuery("customers").setOrderBy("name").page(100, 50);</code>
+ *      SQL string: "SELECT * FROM customers ORDER BY name LIMIT 50 OFFSET 100".
  */
 public class SearchQuery implements Query {
 
     private final String table;
     private String where;
     private String[] columnsToReturn;
+    private String orderBy;
+    private int limit = -1;
+    private int offset = 0;
 
     /**
      * Constructor with just a table. This will get all rows and columns from the {@code table}.
@@ -65,6 +72,38 @@ public class SearchQuery implements Query {
         this.columnsToReturn = columns;
     }
 
+    /**
+     * Sets the SQL order by clause used to sort the rows. Do not include "ORDER BY" in the string.
+     *
+     * @return this query.
+     */
+    public SearchQuery setOrderBy(@Nullable String orderBy) {
+        this.orderBy = orderBy;
+        return this;
+    }
+
+    /**
+     * Returns a copy of this query that returns at most {@code limit} rows, skipping the first {@code offset}. The rows
+     * should be sorted by a unique column using {@link #setOrderBy}, otherwise the order of the pages is not defined.
+     *
+     * @param offset number of rows to skip.
+     * @param limit maximum number of rows to return.
+     */
+    public SearchQuery page(int offset, int limit) {
+        if (offset < 0) {
+            throw new IllegalArgumentException("offset < 0");
+        }
+        if (limit < 0) {
+            throw new IllegalArgumentException("limit < 0");
+        }
+
+        SearchQuery page = new SearchQuery(table, columnsToReturn, where);
+        page.orderBy = orderBy;
+        page.limit = limit;
+        page.offset = offset;
+        return page;
+    }
+
     @Override
     public String getQuery() {
         return buildQuery();
@@ -87,6 +126,14 @@ public class SearchQuery implements Query {
             query += " WHERE " + where;
         }
 
+        if (orderBy != null) {
+            query += " ORDER BY " + orderBy;
+        }
+
+        if (limit >= 0) {
+            query += " LIMIT " + limit + " OFFSET " + offset;
+        }
+
         return query;
     }
 
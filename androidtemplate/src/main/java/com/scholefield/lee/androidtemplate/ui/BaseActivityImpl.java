@@ -8,12 +8,15 @@ import android.support.v7.app.AppCompatActivity;
  * Simple Activity implementation of {@link BaseContract.BaseView} that manages the lifecycle of the associated
  * presenter.
  *
- * The main lifecycle events will be managed in the {@link #onCreate(Bundle)} and {@link #onPause()} methods. All subclasses
- * should call {@code super} implementations when overriding these methods.
+ * The main lifecycle events will be managed in the {@link #onCreate(Bundle)}, {@link #onStart()}, {@link #onStop()} and
+ * {@link #onPause()} methods. All subclasses should call {@code super} implementations when overriding these methods.
  *
  *      In {@link #onCreate} it will set the {@link #presenter} by first checking with the {@link PresenterManager} for any
  *      existing instances. If none exist it will then call {@link #createPresenter()}.
  *
+ *      In {@link #onStart()} and {@link #onStop()} it will tell the {@link PresenterManager} that the view has been attached
+ *      or detached, so callbacks bound via {@link PresenterManager#bindCallback} are held while the view is recreated.
+ *
  *      In {@link #onPause()} it will check if the activity is being permanently destroyed (via {@link #isFinishing()}. If
  *      so it will call {@link #onActivityDestroyed()} to perform any clean-up (by default this will deregister the presenter
  *      with the manager).
@@ -33,6 +36,25 @@ public abstract class BaseActivityImpl<T extends BaseContract.BasePresenter> ext
         presenter = getPresenter();
     }
 
+    /**
+     * Tells the {@link PresenterManager} the view is attached, so any results that arrived while it was being recreated are
+     * delivered.
+     */
+    @Override
+    protected void onStart() {
+        super.onStart();
+        PresenterManager.getInstance().onViewAttached(getPresenterKey());
+    }
+
+    /**
+     * Tells the {@link PresenterManager} the view is detached, so results are held until it is attached again.
+     */
+    @Override
+    protected void onStop() {
+        PresenterManager.getInstance().onViewDetached(getPresenterKey());
+        super.onStop();
+    }
+
     /**
      * This will call {@link #onActivityDestroyed()} if this activity is finishing.
      */
@@ -8,12 +8,15 @@ import android.support.v4.app.Fragment;
  * Simple Fragment base implementation of {@link BaseContract.BaseView}. This will manage the lifecycle of the associated
  * presenter.
  *
- * The main lifecycle events will be managed in the {@link #onCreate(Bundle)} and {@link #onPause()} methods. All subclasses
- * should call {@code super} implementations when overriding these methods.
+ * The main lifecycle events will be managed in the {@link #onCreate(Bundle)}, {@link #onStart()}, {@link #onStop()} and
+ * {@link #onPause()} methods. All subclasses should call {@code super} implementations when overriding these methods.
  *
  *      In {@link #onCreate} it will set the {@link #presenter} by first checking with the {@link PresenterManager} for any
  *      existing instances. If none exist it will then call {@link #createPresenter()}.
  *
+ *      In {@link #onStart()} and {@link #onStop()} it will tell the {@link PresenterManager} that the view has been attached
+ *      or detached, so callbacks bound via {@link PresenterManager#bindCallback} are held while the view is recreated.
+ *
  *      In {@link #onPause()} it will check if the Fragment is being permanently destroyed. This is determined by checking if the
  *      hosting activity is finishing (via {@link android.app.Activity#isFinishing()}), or this fragment is being removed,
  *      or is already detatched from the activity (via {@link #isRemoving()} and {@link #isDetached()}) . If
@@ -31,6 +34,25 @@ public abstract class BaseFragmentImpl<T extends BaseContract.BasePresenter> ext
         presenter = getPresenter();
     }
 
+    /**
+     * Tells the {@link PresenterManager} the view is attached, so any results that arrived while it was being recreated are
+     * delivered.
+     */
+    @Override
+    public void onStart() {
+        super.onStart();
+        PresenterManager.getInstance().onViewAttached(getPresenterKey());
+    }
+
+    /**
+     * Tells the {@link PresenterManager} the view is detached, so results are held until it is attached again.
+     */
+    @Override
+    public void onStop() {
+        PresenterManager.getInstance().onViewDetached(getPresenterKey());
+        super.onStop();
+    }
+
     /**
      * This will call {@link #onFragmentDestroyed()} if the hosting Activity is finishing or this fragment is being destroyed.
      */
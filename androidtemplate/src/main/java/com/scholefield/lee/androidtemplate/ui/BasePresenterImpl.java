@@ -1,5 +1,6 @@
 package com.scholefield.lee.androidtemplate.ui;
 
+import com.scholefield.lee.androidtemplate.usecase.UseCase;
 
 /**
  * An implementation of {@link BaseContract.BasePresenter} to handle interactions with the {@link PresenterManager}.
@@ -43,4 +44,12 @@ public abstract class BasePresenterImpl implements BaseContract.BasePresenter {
     }
 
     protected String getManagerKey(){return managerKey;}
+
+    /**
+     * Binds the {@code callback} to this presenter's view, so that it is only called while the view is attached and is
+     * released when this presenter is deregistered. See {@link PresenterManager#bindCallback}.
+     */
+    protected <R> UseCase.UseCaseCallback<R> bindToView(UseCase.UseCaseCallback<R> callback) {
+        return PresenterManager.getInstance().bindCallback(managerKey, callback);
+    }
 }
@@ -0,0 +1,193 @@
+package com.scholefield.lee.androidtemplate.ui;
+
+import com.scholefield.lee.androidtemplate.usecase.UseCase;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Tracks whether the view for a single {@link PresenterManager} key is attached, and controls when the
+ * {@link UseCase.UseCaseCallback}s bound to that key are called.
+ *
+ *      While the view is attached results are passed to the callback straight away.
+ *      While the view is detached (e.g. during an orientation change) results are parked, and are passed to their
+ *      callbacks once, in the order they arrived, when the view is attached again.
+ *      Once the presenter has been deregistered any parked results are discarded, and every bound callback releases the
+ *      callback it wraps so that it can no longer keep the old view alive.
+ *
+ * All methods are synchronized, although in practice they are called on the UI thread.
+ */
+final class CallbackBinding {
+
+    private boolean attached = true;
+
+    private boolean dropped = false;
+
+    /**
+     * Results waiting for the view to be attached. Only created once something has been parked.
+     */
+    private List<Runnable> parked;
+
+    /**
+     * Callbacks that have not yet been called, so they can be released when the binding is dropped.
+     */
+    private final List<BoundCallback<?>> pending = new ArrayList<>();
+
+    /**
+     * Returns a callback that passes results to {@code callback} according to the state of this binding.
+     */
+    synchronized <R> UseCase.UseCaseCallback<R> bind(UseCase.UseCaseCallback<R> callback) {
+        BoundCallback<R> bound = new BoundCallback<>(this, callback);
+        if (dropped) {
+            bound.callback = null;
+        } else {
+            pending.add(bound);
+        }
+        return bound;
+    }
+
+    /**
+     * Marks the view as attached and passes any parked results to their callbacks.
+     */
+    void attach() {
+        List<Runnable> replay;
+        synchronized (this) {
+            attached = true;
+            replay = parked;
+            parked = null;
+        }
+
+        if (replay != null) {
+            for (Runnable result : replay) {
+                result.run();
+            }
+        }
+    }
+
+    /**
+     * Marks the view as detached. Results are parked until {@link #attach()} is called.
+     */
+    synchronized void detach() {
+        attached = false;
+    }
+
+    /**
+     * Discards any parked results and releases every callback that has not yet been called.
+     */
+    synchronized void drop() {
+        dropped = true;
+        parked = null;
+        for (BoundCallback<?> bound : pending) {
+            bound.callback = null;
+        }
+        pending.clear();
+    }
+
+    synchronized boolean isAttached() {
+        return attached;
+    }
+
+    /**
+     * Returns the number of results waiting for the view to be attached.
+     *
+     * Used for testing.
+     */
+    synchronized int getParkedCount() {
+        return parked == null ? 0 : parked.size();
+    }
+
+    /**
+     * Runs the {@code result} now if the view is attached, otherwise parks it. Does nothing if the binding has been
+     * dropped.
+     */
+    private void park(Runnable result) {
+        synchronized (this) {
+            if (dropped) {
+                return;
+            }
+            if (!attached) {
+                if (parked == null) {
+                    parked = new ArrayList<>();
+                }
+                parked.add(result);
+                return;
+            }
+        }
+        // the view was attached while the result was being parked.
+        result.run();
+    }
+
+    /**
+     * The callback returned by {@link #bind}. While the view is attached results are passed straight through without
+     * allocating; a {@link Runnable} is only created to park a result.
+     */
+    private static final class BoundCallback<R> implements UseCase.UseCaseCallback<R> {
+
+        private final CallbackBinding binding;
+
+        /**
+         * Set to {@code null} once it has been called or the binding is dropped. Guarded by {@code binding}.
+         */
+        private UseCase.UseCaseCallback<R> callback;
+
+        BoundCallback(CallbackBinding binding, UseCase.UseCaseCallback<R> callback) {
+            this.binding = binding;
+            this.callback = callback;
+        }
+
+        @Override
+        public void onSuccess(final R response) {
+            if (binding.isAttached()) {
+                deliverSuccess(response);
+            } else {
+                binding.park(new Runnable() {
+                    @Override
+                    public void run() {
+                        deliverSuccess(response);
+                    }
+                });
+            }
+        }
+
+        @Override
+        public void onError(final Throwable error) {
+            if (binding.isAttached()) {
+                deliverError(error);
+            } else {
+                binding.park(new Runnable() {
+                    @Override
+                    public void run() {
+                        deliverError(error);
+                    }
+                });
+            }
+        }
+
+        private void deliverSuccess(R response) {
+            UseCase.UseCaseCallback<R> target = release();
+            if (target != null) {
+                target.onSuccess(response);
+            }
+        }
+
+        private void deliverError(Throwable error) {
+            UseCase.UseCaseCallback<R> target = release();
+            if (target != null) {
+                target.onError(error);
+            }
+        }
+
+        /**
+         * Returns the wrapped callback, or {@code null} if it has already been released, and releases it so that it is
+         * only called once.
+         */
+        private UseCase.UseCaseCallback<R> release() {
+            synchronized (binding) {
+                UseCase.UseCaseCallback<R> target = callback;
+                callback = null;
+                binding.pending.remove(this);
+                return target;
+            }
+        }
+    }
+}
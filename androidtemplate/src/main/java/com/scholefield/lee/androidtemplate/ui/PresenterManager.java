@@ -1,25 +1,48 @@
 package com.scholefield.lee.androidtemplate.ui;
 
+import com.scholefield.lee.androidtemplate.usecase.UseCase;
+
 import java.util.HashMap;
 import java.util.Map;
 
 /**
  * This class stores active Presenters so they can be retrieved when the view is recreated.
+ *
+ * It also tracks whether the view for each key is attached, so that {@link UseCase.UseCaseCallback}s bound via
+ * {@link #bindCallback} are not called while the view is being recreated, and are released once the presenter has been
+ * deregistered.
  */
 public class PresenterManager {
 
-    private static PresenterManager INSTANCE;
+    /**
+     * Volatile so that a fully constructed instance is visible to every thread once it has been assigned.
+     */
+    private static volatile PresenterManager INSTANCE;
 
-    private Map<String, BaseContract.BasePresenter> activePresenters;
+    private final Map<String, BaseContract.BasePresenter> activePresenters;
+
+    /**
+     * The {@link CallbackBinding} for each key that has bound a callback or had its view detached. Guarded by itself.
+     */
+    private final Map<String, CallbackBinding> callbackBindings = new HashMap<>();
 
     /**
      * Gets the current Instance, or creates one if it is null.
+     *
+     * This is safe to call from any thread. A lock is only taken while the instance is being created, so once it exists
+     * this is a single volatile read.
      */
     public static PresenterManager getInstance() {
-        if (INSTANCE == null) {
-            INSTANCE = new PresenterManager();
+        PresenterManager instance = INSTANCE;
+        if (instance == null) {
+            synchronized (PresenterManager.class) {
+                instance = INSTANCE;
+                if (instance == null) {
+                    instance = new PresenterManager();
+                }
+            }
         }
-        return INSTANCE;
+        return instance;
     }
 
     /**
@@ -47,8 +70,86 @@ public class PresenterManager {
         activePresenters.put(key, presenter);
     }
 
+    /**
+     * Removes the presenter saved under {@code key}. Any results waiting for its view are discarded and every callback bound
+     * to the key is released.
+     */
     public void deregisterPresenter(String key) {
         activePresenters.remove(key);
+
+        CallbackBinding binding;
+        synchronized (callbackBindings) {
+            binding = callbackBindings.remove(key);
+        }
+        if (binding != null) {
+            binding.drop();
+        }
+    }
+
+    /**
+     * Returns a callback that passes results to {@code callback} only while the view for {@code key} is attached.
+     *
+     * Results that arrive while the view is detached are held and passed to {@code callback} once the view is attached
+     * again, so work started before an orientation change does not need to be repeated. If the presenter is deregistered
+     * first the results are discarded and {@code callback} is released, so it cannot keep the old view alive.
+     *
+     * Example:
+     * <pre>
+     *     {@code
+     *     useCaseHandler.execute(useCase, values, PresenterManager.getInstance().bindCallback(key, callback));
+     *     }
+     * </pre>
+     */
+    public <R> UseCase.UseCaseCallback<R> bindCallback(String key, UseCase.UseCaseCallback<R> callback) {
+        if (key == null || callback == null) {
+            throw new IllegalArgumentException("key == null || callback == null");
+        }
+        return bindingFor(key).bind(callback);
+    }
+
+    /**
+     * Called when the view for {@code key} becomes visible. Any results that arrived while it was detached are passed to
+     * their callbacks.
+     */
+    public void onViewAttached(String key) {
+        CallbackBinding binding = getCallbackBinding(key);
+        if (binding != null) {
+            binding.attach();
+        }
+    }
+
+    /**
+     * Called when the view for {@code key} stops being visible, for example because it is being recreated. Results for the
+     * key are held until {@link #onViewAttached} is called. Does nothing if no presenter is registered under {@code key},
+     * for example because it was deregistered when the view was finishing.
+     */
+    public void onViewDetached(String key) {
+        if (activePresenters.containsKey(key)) {
+            bindingFor(key).detach();
+        }
+    }
+
+    /**
+     * Returns the {@link CallbackBinding} for {@code key}, creating it if necessary.
+     */
+    private CallbackBinding bindingFor(String key) {
+        synchronized (callbackBindings) {
+            CallbackBinding binding = callbackBindings.get(key);
+            if (binding == null) {
+                binding = new CallbackBinding();
+                callbackBindings.put(key, binding);
+            }
+            return binding;
+        }
+    }
+
+    /**
+     * Returns the {@link CallbackBinding} for {@code key}, or {@code null} if there isn't one.
+     */
+    CallbackBinding getCallbackBinding(String key) {
+        synchronized (callbackBindings) {
+            return callbackBindings.get(key);
+        }
     }
 
     /**
@@ -1,18 +1,45 @@
 package com.scholefield.lee.androidtemplate.ui.recyclerview;
 
+import android.support.v7.util.DiffUtil;
+import android.support.v7.widget.LinearLayoutManager;
 import android.support.v7.widget.RecyclerView;
 import android.view.View;
+import android.view.ViewGroup;
+import com.scholefield.lee.androidtemplate.usecase.UseCaseHandlerImp;
+import com.scholefield.lee.androidtemplate.usecase.UseCaseScheduler;
 
+import java.util.Collection;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
 import java.util.List;
+import java.util.RandomAccess;
+import java.util.concurrent.RejectedExecutionException;
 
 /**
  * Base implementation of {@link RecyclerView.Adapter}. This is mainly responsible for managing the data set.
  *
- * Subclasses need to implement the {@link #onCreateViewHolder} and {@link #onBindViewHolder} methods.
+ * Subclasses need to implement the {@link #onCreateItemViewHolder} and {@link #onBindViewHolder} methods.
  *
- * This also sets an on click listener on the ViewHolder. By default this will call {@link Callback#onItemClicked} or
- * {@link Callback#onItemLongClicked} with the clicked {@code <T>} and its position in the data set. To provide a custom
- * implementation override {@link #handleOnClick} and {@link #handleOnLongClick}.
+ * This also sets an on click listener on each ViewHolder when it is created. By default this will call
+ * {@link Callback#onItemClicked} or {@link Callback#onItemLongClicked} with the clicked {@code <T>} and its position in
+ * the data set at the time of the click. To provide a custom implementation override {@link #handleOnClick} and
+ * {@link #handleOnLongClick}.
+ *
+ * To replace the whole data set, for example after reloading it, use {@link #replaceAll}. This only notifies the
+ * RecyclerView of the items that actually changed, so unchanged rows are not rebound and the changes are animated. For
+ * large lists use {@link #submitList} instead, which works out the changes on a background thread.
+ *
+ * To add or remove several items at once use {@link #insertAll}, {@link #removeRange} or {@link #removeAll}, which
+ * change the data set in a single pass and notify the recyclerView of each contiguous range rather than each item.
+ *
+ * When only part of an item changes, for example a counter or a progress value, call {@link #updateItem} with a payload
+ * describing the change and override {@link #onBindPayloads} to update just the views that show it, rather than binding
+ * the whole row again.
+ *
+ * If each item has a unique id set an {@link IdExtractor} using {@link #setIdExtractor}. The adapter then has stable ids,
+ * so after {@link #notifyDataSetChanged} the recyclerView can keep the ViewHolder of each item rather than recycling them
+ * all. For a list nested inside another list, {@link #setRecycledViewPool} and {@link #setInitialPrefetchItemCount} let
+ * the inner recyclerViews share their ViewHolders and have them ready before they scroll into view.
  *
  * @param <T> the type of object this recyclerView displays.
  * @param <VH> ViewHolder subclass.
@@ -27,6 +54,49 @@ public abstract class BaseRecyclerViewAdapter<T, VH extends RecyclerView.ViewHol
      */
     protected Callback<T> callback;
 
+    /**
+     * Used by {@link #replaceAll} to work out which items have changed.
+     */
+    private ItemComparator<? super T> itemComparator = new EqualsComparator<>();
+
+    /**
+     * Runs the diffs for {@link #submitList} and applies their results. Created the first time it is needed.
+     */
+    private UseCaseScheduler diffScheduler;
+
+    /**
+     * Incremented every time the data set is replaced, so a {@link #submitList} diff that finishes after a newer list has
+     * been submitted can be discarded. Only written on the UI thread.
+     */
+    private volatile int latestSubmission = 0;
+
+    /**
+     * Position of each item in the data set, used by {@link #removeItem(Object)}. {@code null} unless enabled with
+     * {@link #setIdentityIndexEnabled}.
+     */
+    private IdentityHashMap<T, Integer> identityIndex;
+
+    /**
+     * Number of items at the start of the data set whose position in {@link #identityIndex} is up to date.
+     */
+    private int indexedUpTo = 0;
+
+    /**
+     * Gives the id of each item. {@code null} if the adapter does not have stable ids.
+     */
+    private IdExtractor<? super T> idExtractor;
+
+    /**
+     * Set on each recyclerView the adapter is attached to. {@code null} to keep the recyclerView's own pool.
+     */
+    private RecyclerView.RecycledViewPool recycledViewPool;
+
+    /**
+     * Set on the {@link LinearLayoutManager} of each recyclerView the adapter is attached to. {@code 0} to keep the
+     * layout manager's own count.
+     */
+    private int initialPrefetchItemCount = 0;
+
     /**
      * Use as the index for {@link #insertItem} or {@link #removeItem}.
      */
@@ -55,6 +125,86 @@ public abstract class BaseRecyclerViewAdapter<T, VH extends RecyclerView.ViewHol
         this.callback = callback;
     }
 
+    /**
+     * Sets the {@link ItemComparator} used by {@link #replaceAll}. By default items are compared using
+     * {@link Object#equals}, so an item whose contents have changed is treated as a different item.
+     */
+    public void setItemComparator(ItemComparator<? super T> itemComparator) {
+        if (itemComparator == null) {
+            throw new IllegalArgumentException("itemComparator == null");
+        }
+        this.itemComparator = itemComparator;
+    }
+
+    /**
+     * Sets the {@link UseCaseScheduler} used by {@link #submitList}. By default this is the scheduler of
+     * {@link UseCaseHandlerImp#getInstance()}, so diffs share the same threads as UseCases.
+     */
+    public void setDiffScheduler(UseCaseScheduler diffScheduler) {
+        if (diffScheduler == null) {
+            throw new IllegalArgumentException("diffScheduler == null");
+        }
+        this.diffScheduler = diffScheduler;
+    }
+
+    /**
+     * Sets whether {@link #removeItem(Object)} finds the item using an index of the position of each item, rather than
+     * searching the data set. Finding an item then takes constant time, and after a change only the part of the data set
+     * that moved needs to be indexed again.
+     *
+     * The index compares items by identity rather than {@link Object#equals}, so only enable it if each item appears in
+     * the data set once and the items passed to {@code removeItem} are the same instances as the ones in the data set.
+     * It is disabled by default.
+     */
+    public void setIdentityIndexEnabled(boolean enabled) {
+        if (!enabled) {
+            identityIndex = null;
+        } else if (identityIndex == null) {
+            identityIndex = new IdentityHashMap<>();
+            indexedUpTo = 0;
+        }
+    }
+
+    /**
+     * Sets the {@link IdExtractor} used to give each item a stable id, or {@code null} to not have stable ids.
+     *
+     * Must be called before the adapter is set on a recyclerView.
+     */
+    public void setIdExtractor(IdExtractor<? super T> idExtractor) {
+        this.idExtractor = idExtractor;
+        setHasStableIds(idExtractor != null);
+    }
+
+    /**
+     * Sets the {@link RecyclerView.RecycledViewPool} of every recyclerView this adapter is attached to. Use the same pool
+     * for each inner list of a nested list, so a ViewHolder scrolled out of one inner list can be reused by another
+     * instead of creating a new one.
+     *
+     * Must be called before the adapter is set on a recyclerView.
+     *
+     * @param recycledViewPool pool to share, or {@code null} to let each recyclerView have its own.
+     */
+    public void setRecycledViewPool(RecyclerView.RecycledViewPool recycledViewPool) {
+        this.recycledViewPool = recycledViewPool;
+    }
+
+    /**
+     * Sets the number of items the {@link LinearLayoutManager} of each recyclerView this adapter is attached to creates
+     * and binds ahead of time when the recyclerView itself is about to scroll into view. This only has an effect for a
+     * list nested inside another list, and should be the number of items visible when the inner list first appears.
+     *
+     * Must be called before the adapter is set on a recyclerView. Layout managers that are not a
+     * {@code LinearLayoutManager} are not changed.
+     *
+     * @param initialPrefetchItemCount number of items to prefetch, or {@code 0} to keep the layout manager's default.
+     */
+    public void setInitialPrefetchItemCount(int initialPrefetchItemCount) {
+        if (initialPrefetchItemCount < 0) {
+            throw new IllegalArgumentException("initialPrefetchItemCount < 0");
+        }
+        this.initialPrefetchItemCount = initialPrefetchItemCount;
+    }
+
     /**
      * Callback used to communicate with the holding Fragment/Activity. To set the callback call {@link #setCallback}.
      */
@@ -65,24 +215,122 @@ public abstract class BaseRecyclerViewAdapter<T, VH extends RecyclerView.ViewHol
     }
 
     /**
-     * Sets an onClick listener on the {@code holder}.
+     * Gives the id of an item, which is used as its stable id. See {@link #setIdExtractor}.
+     */
+    public interface IdExtractor<T> {
+
+        /**
+         * Returns the id of the {@code item}. Each item in the data set must have a different id, and an item must keep
+         * the same id for as long as it is in the data set.
+         */
+        long getId(T item);
+    }
+
+    /**
+     * Decides which items {@link #removeAll} removes.
+     */
+    public interface Predicate<T> {
+
+        /**
+         * Returns {@code true} if the {@code item} should be removed.
+         */
+        boolean test(T item);
+    }
+
+    /**
+     * Decides whether an item in the old data set and an item in the new data set passed to {@link #replaceAll} are the
+     * same, and whether it needs to be rebound.
+     */
+    public interface ItemComparator<T> {
+
+        /**
+         * Returns {@code true} if both objects represent the same item, for example because they have the same id.
+         */
+        boolean areItemsTheSame(T oldItem, T newItem);
+
+        /**
+         * Returns {@code true} if both items would be displayed in the same way. This is only called if
+         * {@link #areItemsTheSame} returned {@code true}.
+         */
+        boolean areContentsTheSame(T oldItem, T newItem);
+    }
+
+    /**
+     * Sets the {@link #setRecycledViewPool shared pool} and {@link #setInitialPrefetchItemCount initial prefetch count}
+     * on the {@code recyclerView}, if they have been set.
      */
     @Override
-    public void onBindViewHolder(final VH holder, int position) {
+    public void onAttachedToRecyclerView(RecyclerView recyclerView) {
+        super.onAttachedToRecyclerView(recyclerView);
+
+        if (recycledViewPool != null) {
+            recyclerView.setRecycledViewPool(recycledViewPool);
+        }
+        if (initialPrefetchItemCount > 0 && recyclerView.getLayoutManager() instanceof LinearLayoutManager) {
+            ((LinearLayoutManager) recyclerView.getLayoutManager()).setInitialPrefetchItemCount(initialPrefetchItemCount);
+        }
+    }
+
+    /**
+     * Creates the ViewHolder using {@link #onCreateItemViewHolder} and sets an onClick listener on it. The listeners stay
+     * with the ViewHolder while it is recycled, so binding it again does not create new ones.
+     */
+    @Override
+    public VH onCreateViewHolder(ViewGroup parent, int viewType) {
+        final VH holder = onCreateItemViewHolder(parent, viewType);
+
         holder.itemView.setOnClickListener(new View.OnClickListener() {
             @Override
             public void onClick(View v) {
-                handleOnClick(holder, v);
+                if (holder.getAdapterPosition() != RecyclerView.NO_POSITION) {
+                    handleOnClick(holder, v);
+                }
             }
         });
         holder.itemView.setOnLongClickListener(new View.OnLongClickListener() {
             @Override
             public boolean onLongClick(View v) {
-                return handleOnLongClick(holder, v);
+                // the item is being removed, so consume the click rather than pass it to the wrong item
+                return holder.getAdapterPosition() == RecyclerView.NO_POSITION || handleOnLongClick(holder, v);
             }
         });
+
+        return holder;
     }
 
+    /**
+     * Binds only the changes described by the {@code payloads} using {@link #onBindPayloads} if there are any and it
+     * handles them, and otherwise binds the whole item using {@link #onBindViewHolder(RecyclerView.ViewHolder, int)}.
+     */
+    @Override
+    public void onBindViewHolder(VH holder, int position, List<Object> payloads) {
+        if (payloads.isEmpty() || !onBindPayloads(holder, position, payloads)) {
+            onBindViewHolder(holder, position);
+        }
+    }
+
+    /**
+     * Override to update only the part of the {@code holder} that changed, using the payloads passed to
+     * {@link #updateItem}. By default this returns {@code false}, so the whole item is bound.
+     *
+     * @param holder view holder that was last bound to the item at {@code position}.
+     * @param position position of the item in the data set.
+     * @param payloads payloads of every change since the holder was last bound, oldest first. Never empty.
+     * @return {@code true} if the changes have been bound, or {@code false} to bind the whole item instead.
+     */
+    protected boolean onBindPayloads(VH holder, int position, List<Object> payloads) {
+        return false;
+    }
+
+    /**
+     * Called by {@link #onCreateViewHolder} to create a new ViewHolder of the given {@code viewType}.
+     *
+     * @param parent the ViewGroup the new View will be added to.
+     * @param viewType the view type of the new View.
+     * @return a new ViewHolder.
+     */
+    protected abstract VH onCreateItemViewHolder(ViewGroup parent, int viewType);
+
     /**
      * Override to provide a custom long click handler on a ViewHolder. By default this will call {@link Callback#onItemLongClicked}.
      *
@@ -130,6 +378,7 @@ public abstract class BaseRecyclerViewAdapter<T, VH extends RecyclerView.ViewHol
         }
 
         dataSet.add(position, item);
+        invalidateIndexFrom(position);
 
         notifyItemInserted(position);
     }
@@ -141,7 +390,32 @@ public abstract class BaseRecyclerViewAdapter<T, VH extends RecyclerView.ViewHol
      */
     public void insertItem(T item) {
         dataSet.add(item);
-        notifyItemInserted(dataSet.size());
+        notifyItemInserted(dataSet.size() - 1);
+    }
+
+    /**
+     * Inserts all of the {@code items} into the data set at the given {@code index}, in the order they are returned by
+     * the collection's iterator, and then notifies the recyclerView of the inserted range.
+     *
+     * @param index index to insert at. May be {@link #START} or {@link #END}.
+     * @param items items to insert.
+     */
+    public void insertAll(int index, Collection<? extends T> items) {
+        if (items == null) {
+            throw new IllegalArgumentException("items == null");
+        }
+
+        int position = index;
+        if (position == START) {
+            position = 0;
+        } else if (position == END) {
+            position = dataSet.size();
+        }
+
+        if (dataSet.addAll(position, items)) {
+            invalidateIndexFrom(position);
+            notifyItemRangeInserted(position, items.size());
+        }
     }
 
     /**
@@ -155,10 +429,14 @@ public abstract class BaseRecyclerViewAdapter<T, VH extends RecyclerView.ViewHol
         if (pos == START) {
             pos = 0;
         } else if (pos == END) {
-            pos = dataSet.size();
+            pos = dataSet.size() - 1;
         }
 
         T removed = dataSet.remove(pos);
+        if (identityIndex != null) {
+            identityIndex.remove(removed);
+            invalidateIndexFrom(pos);
+        }
         notifyItemRemoved(pos);
         return removed;
     }
@@ -167,23 +445,365 @@ public abstract class BaseRecyclerViewAdapter<T, VH extends RecyclerView.ViewHol
      * Removes the given {@code item} from the data set, and then notifies the recyclerView of the change.
      *
      * @param item item to remove.
+     * @see #setIdentityIndexEnabled
      */
     public void removeItem(T item) {
-        int pos = dataSet.indexOf(item);
-        dataSet.remove(item);
+        int pos = indexOf(item);
 
         if (pos != -1) {
-            notifyItemRemoved(pos);
+            removeItem(pos);
         }
     }
 
+    /**
+     * Removes {@code count} items starting at position {@code from}, and then notifies the recyclerView of the removed
+     * range.
+     *
+     * @param from position of the first item to remove.
+     * @param count number of items to remove.
+     * @throws IndexOutOfBoundsException if the range is not within the data set.
+     */
+    public void removeRange(int from, int count) {
+        if (count < 0) {
+            throw new IllegalArgumentException("count < 0");
+        }
+
+        List<T> range = dataSet.subList(from, from + count);
+        if (identityIndex != null) {
+            for (T item : range) {
+                identityIndex.remove(item);
+            }
+            invalidateIndexFrom(from);
+        }
+        range.clear();
+
+        if (count > 0) {
+            notifyItemRangeRemoved(from, count);
+        }
+    }
+
+    /**
+     * Removes every item the {@code predicate} matches in a single pass over the data set, and then notifies the
+     * recyclerView of each contiguous range of removed items.
+     *
+     * @param predicate decides which items to remove.
+     * @return the number of items removed.
+     */
+    public int removeAll(Predicate<? super T> predicate) {
+        if (predicate == null) {
+            throw new IllegalArgumentException("predicate == null");
+        }
+
+        RemovedRanges ranges = new RemovedRanges();
+        int size = dataSet.size();
+
+        if (dataSet instanceof RandomAccess) {
+            // move the items that are kept to the front, then drop the rest in one go
+            int kept = 0;
+            for (int i = 0; i < size; i++) {
+                T item = dataSet.get(i);
+                if (predicate.test(item)) {
+                    ranges.add(i);
+                    removeFromIndex(item);
+                } else {
+                    if (kept != i) {
+                        dataSet.set(kept, item);
+                    }
+                    kept++;
+                }
+            }
+            dataSet.subList(kept, size).clear();
+        } else {
+            Iterator<T> iterator = dataSet.iterator();
+            for (int i = 0; iterator.hasNext(); i++) {
+                T item = iterator.next();
+                if (predicate.test(item)) {
+                    iterator.remove();
+                    ranges.add(i);
+                    removeFromIndex(item);
+                }
+            }
+        }
+
+        if (ranges.count == 0) {
+            return 0;
+        }
+        invalidateIndexFrom(ranges.bounds[0]);
+
+        // each range moves up by the number of items removed before it
+        int removed = 0;
+        for (int i = 0; i < ranges.count; i++) {
+            int start = ranges.bounds[i * 2];
+            int count = ranges.bounds[i * 2 + 1] - start;
+            notifyItemRangeRemoved(start - removed, count);
+            removed += count;
+        }
+        return removed;
+    }
+
+    /**
+     * Notifies the recyclerView that the item at {@code position} has been changed in place, passing {@code payload} to
+     * {@link #onBindPayloads} when it is bound again. The ViewHolder already showing the item is reused, so the change is
+     * not animated as a cross-fade.
+     *
+     * @param position position of the changed item.
+     * @param payload describes what changed, or {@code null} to bind the whole item again.
+     */
+    public void updateItem(int position, Object payload) {
+        if (position < 0 || position >= dataSet.size()) {
+            throw new IndexOutOfBoundsException("position: " + position + ", size: " + dataSet.size());
+        }
+
+        notifyItemChanged(position, payload);
+    }
+
+    /**
+     * Replaces the item at {@code position} with {@code item}, and then notifies the recyclerView of the change in the
+     * same way as {@link #updateItem(int, Object)}.
+     *
+     * @param position position of the item to replace.
+     * @param item new item.
+     * @param payload describes what changed, or {@code null} to bind the whole item again.
+     * @return the replaced item.
+     */
+    public T updateItem(int position, T item, Object payload) {
+        T replaced = dataSet.set(position, item);
+        if (identityIndex != null && replaced != item) {
+            identityIndex.remove(replaced);
+            invalidateIndexFrom(position);
+        }
+
+        notifyItemChanged(position, payload);
+        return replaced;
+    }
+
+    /**
+     * Replaces the data set with {@code items}, and then notifies the recyclerView of only the items that were inserted,
+     * removed, moved or changed according to the {@link ItemComparator}.
+     *
+     * This calculates the difference on the calling thread, which takes time proportional to the size of the lists plus
+     * the square of the number of differences between them.
+     *
+     * @param items the new data set. The adapter uses this list from now on rather than copying it.
+     */
+    public void replaceAll(List<T> items) {
+        if (items == null) {
+            throw new IllegalArgumentException("items == null");
+        }
+
+        latestSubmission++;
+        DiffUtil.DiffResult result = DiffUtil.calculateDiff(new ListDiffCallback<>(dataSet, items, itemComparator));
+        replaceDataSet(items);
+        result.dispatchUpdatesTo(this);
+    }
+
+    /**
+     * Replaces the data set with {@code items} in the same way as {@link #replaceAll}, except that the difference is
+     * calculated on a worker thread of the {@link #setDiffScheduler diff scheduler}. Once it is ready the data set is
+     * swapped and the recyclerView notified in a single step on the UI thread, so the adapter never shows a partly
+     * updated list.
+     *
+     * If another list is submitted, or {@code replaceAll} is called, before the difference is ready it is discarded, and if
+     * it has not yet started it is never calculated. The data set should not be modified in any other way while a list is
+     * waiting to be applied.
+     *
+     * Must be called on the UI thread.
+     *
+     * @param items the new data set. The adapter uses this list from now on rather than copying it, so it must not be
+     *              modified after it is submitted.
+     */
+    public void submitList(final List<T> items) {
+        if (items == null) {
+            throw new IllegalArgumentException("items == null");
+        }
+
+        final int submission = ++latestSubmission;
+        final List<T> oldItems = dataSet;
+
+        // nothing to compare, so there is no point going to another thread
+        if (oldItems.isEmpty() || items.isEmpty()) {
+            replaceDataSet(items);
+            if (!oldItems.isEmpty()) {
+                notifyItemRangeRemoved(0, oldItems.size());
+            } else if (!items.isEmpty()) {
+                notifyItemRangeInserted(0, items.size());
+            }
+            return;
+        }
+
+        final ItemComparator<? super T> comparator = itemComparator;
+        final UseCaseScheduler scheduler = getDiffScheduler();
+
+        Runnable diff = new Runnable() {
+            @Override
+            public void run() {
+                if (submission != latestSubmission) {
+                    return;
+                }
+
+                final DiffUtil.DiffResult result =
+                        DiffUtil.calculateDiff(new ListDiffCallback<>(oldItems, items, comparator));
+
+                scheduler.post(new Runnable() {
+                    @Override
+                    public void run() {
+                        if (submission == latestSubmission) {
+                            replaceDataSet(items);
+                            result.dispatchUpdatesTo(BaseRecyclerViewAdapter.this);
+                        }
+                    }
+                });
+            }
+        };
+
+        try {
+            scheduler.execute(diff);
+        } catch (RejectedExecutionException e) {
+            // the pool is saturated so calculate it here rather than dropping the list
+            diff.run();
+        }
+    }
+
+    /**
+     * Records that the items from {@code position} onwards may have moved, so their positions in the identity index need
+     * to be updated the next time it is used. Subclasses in this package that change the data set directly must call this.
+     */
+    void invalidateIndexFrom(int position) {
+        if (position < indexedUpTo) {
+            indexedUpTo = position;
+        }
+    }
+
+    /**
+     * Makes {@code items} the data set and empties the identity index, so it does not keep the old items alive.
+     */
+    private void replaceDataSet(List<T> items) {
+        dataSet = items;
+        if (identityIndex != null) {
+            identityIndex.clear();
+        }
+        indexedUpTo = 0;
+    }
+
+    /**
+     * Returns the number of items in the identity index. Used for testing.
+     */
+    int getIdentityIndexSize() {
+        return identityIndex == null ? 0 : identityIndex.size();
+    }
+
+    /**
+     * Returns the position of the {@code item}, or {@code -1} if it is not in the data set.
+     */
+    private int indexOf(T item) {
+        if (identityIndex == null) {
+            return dataSet.indexOf(item);
+        }
+
+        Integer position = identityIndex.get(item);
+        if (position == null || position >= indexedUpTo) {
+            // stale or missing, so index the part of the data set that has changed
+            for (int i = indexedUpTo; i < dataSet.size(); i++) {
+                identityIndex.put(dataSet.get(i), i);
+            }
+            indexedUpTo = dataSet.size();
+            position = identityIndex.get(item);
+        }
+
+        if (position == null) {
+            return -1;
+        }
+        if (position < dataSet.size() && dataSet.get(position) == item) {
+            return position;
+        }
+
+        // the data set was changed without going through the adapter
+        identityIndex.clear();
+        indexedUpTo = 0;
+        return indexOf(item);
+    }
+
+    private void removeFromIndex(T item) {
+        if (identityIndex != null) {
+            identityIndex.remove(item);
+        }
+    }
+
+    private UseCaseScheduler getDiffScheduler() {
+        if (diffScheduler == null) {
+            diffScheduler = UseCaseHandlerImp.getInstance().getScheduler();
+        }
+        return diffScheduler;
+    }
+
     @Override
     public int getItemCount() {
         return dataSet.size();
     }
 
+    /**
+     * Returns the id the {@link IdExtractor} gives the item at {@code position}, or {@link RecyclerView#NO_ID} if no
+     * extractor is set.
+     */
+    @Override
+    public long getItemId(int position) {
+        if (idExtractor == null) {
+            return RecyclerView.NO_ID;
+        }
+        return idExtractor.getId(dataSet.get(position));
+    }
+
     protected List<T> getDataSet() {
         return dataSet;
     }
 
+    /**
+     * Contiguous ranges of positions removed by {@link #removeAll}, in positions of the original data set.
+     */
+    private static final class RemovedRanges {
+
+        /**
+         * Start and end (exclusive) of each range.
+         */
+        int[] bounds = new int[8];
+
+        int count = 0;
+
+        /**
+         * Adds {@code position}, which must be after every position already added, either by extending the last range or
+         * starting a new one.
+         */
+        void add(int position) {
+            if (count > 0 && bounds[count * 2 - 1] == position) {
+                bounds[count * 2 - 1] = position + 1;
+                return;
+            }
+
+            if (count * 2 == bounds.length) {
+                int[] grown = new int[bounds.length * 2];
+                System.arraycopy(bounds, 0, grown, 0, bounds.length);
+                bounds = grown;
+            }
+            bounds[count * 2] = position;
+            bounds[count * 2 + 1] = position + 1;
+            count++;
+        }
+    }
+
+    /**
+     * Treats items as the same if they are equal, in which case their contents are also the same.
+     */
+    private static final class EqualsComparator<T> implements ItemComparator<T> {
+
+        @Override
+        public boolean areItemsTheSame(T oldItem, T newItem) {
+            return oldItem == null ? newItem == null : oldItem.equals(newItem);
+        }
+
+        @Override
+        public boolean areContentsTheSame(T oldItem, T newItem) {
+            return true;
+        }
+    }
+
 }
\ No newline at end of file
@@ -0,0 +1,377 @@
+package com.scholefield.lee.androidtemplate.ui.recyclerview;
+
+import android.database.Cursor;
+import android.support.v7.util.DiffUtil;
+import android.support.v7.widget.RecyclerView;
+import com.scholefield.lee.androidtemplate.db.Database;
+import com.scholefield.lee.androidtemplate.db.DatabaseException;
+import com.scholefield.lee.androidtemplate.db.query.Query;
+import com.scholefield.lee.androidtemplate.usecase.UseCase;
+import com.scholefield.lee.androidtemplate.usecase.UseCaseHandlerImp;
+import com.scholefield.lee.androidtemplate.usecase.UseCaseScheduler;
+
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * A {@link RecyclerView.Adapter} that binds rows directly from a {@link Cursor}, rather than converting every row to an
+ * object first as {@link BaseRecyclerViewAdapter} does. Use it for large read-only lists.
+ *
+ * The rows are read from the {@link Database} using the query passed to the constructor. Call {@link #requery} to load
+ * them, and again whenever the table changes; the query runs on a background thread and the new cursor replaces the old
+ * one on the UI thread. The adapter has stable ids, read from the {@code keyColumn}, and notifies the recyclerView of
+ * rows that were inserted, removed or moved rather than of the whole data set.
+ *
+ * To find the rows that changed only the key column and an optional {@code versionColumn} are read, so a requery does
+ * not deserialize the rest of each row. The version column should be an integer that changes whenever the row does, for
+ * example a last modified time, and rows whose version is the same in both cursors are not rebound. Without one every
+ * row that is in both cursors is treated as changed and is rebound.
+ *
+ * Subclasses need to implement {@link #onCreateViewHolder} and {@link #onBindViewHolder(RecyclerView.ViewHolder, Cursor)},
+ * which is called with the cursor already moved to the row to bind.
+ *
+ * The adapter owns its cursor and closes it when it is replaced; call {@link #close} once the adapter is no longer used.
+ *
+ * @param <VH> ViewHolder subclass.
+ */
+public abstract class CursorRecyclerViewAdapter<VH extends RecyclerView.ViewHolder> extends RecyclerView.Adapter<VH> {
+
+    private final Database database;
+
+    private final Query query;
+
+    private final String keyColumn;
+
+    /**
+     * Name of the column that changes whenever a row does, or {@code null}.
+     */
+    private final String versionColumn;
+
+    private UseCaseScheduler scheduler;
+
+    private Cursor cursor;
+
+    /**
+     * Key and version of each row of {@link #cursor}. Read by the query thread to work out which rows changed.
+     */
+    private volatile Rows rows = Rows.EMPTY;
+
+    /**
+     * Incremented each time the cursor is replaced or a query is started, so a query that finishes after a newer one has
+     * started, or after the cursor has been swapped, is discarded.
+     */
+    private volatile int generation = 0;
+
+    private boolean closed = false;
+
+    /**
+     * Creates an adapter without a version column, so every row is rebound after a requery.
+     *
+     * @param database database to read the rows from.
+     * @param query query that returns the rows to show.
+     * @param keyColumn name of an integer column that uniquely identifies each row, for example "_id".
+     */
+    public CursorRecyclerViewAdapter(Database database, Query query, String keyColumn) {
+        this(database, query, keyColumn, null);
+    }
+
+    /**
+     * @param database database to read the rows from.
+     * @param query query that returns the rows to show.
+     * @param keyColumn name of an integer column that uniquely identifies each row, for example "_id".
+     * @param versionColumn name of an integer column that changes whenever its row changes, or {@code null} to treat
+     *                      every row as changed.
+     */
+    public CursorRecyclerViewAdapter(Database database, Query query, String keyColumn, String versionColumn) {
+        if (database == null) {
+            throw new IllegalArgumentException("database == null");
+        }
+        if (query == null) {
+            throw new IllegalArgumentException("query == null");
+        }
+        if (keyColumn == null) {
+            throw new IllegalArgumentException("keyColumn == null");
+        }
+
+        this.database = database;
+        this.query = query;
+        this.keyColumn = keyColumn;
+        this.versionColumn = versionColumn;
+        setHasStableIds(true);
+    }
+
+    /**
+     * Sets the {@link UseCaseScheduler} queries are run on. By default this is the scheduler of
+     * {@link UseCaseHandlerImp#getInstance()}, and queries are run as {@link UseCase.Affinity#IO IO} work.
+     */
+    public void setScheduler(UseCaseScheduler scheduler) {
+        if (scheduler == null) {
+            throw new IllegalArgumentException("scheduler == null");
+        }
+        this.scheduler = scheduler;
+    }
+
+    /**
+     * Runs the query on a background thread and then replaces the cursor with the result on the UI thread. If this is
+     * called again before the query finishes, only the latest result is used. If the scheduler cannot accept the query
+     * it is not run, and {@link #onQueryFailed} is called straight away.
+     *
+     * Must be called on the UI thread.
+     */
+    public void requery() {
+        if (closed) {
+            throw new IllegalStateException("adapter has been closed");
+        }
+
+        final int queryGeneration = ++generation;
+        final UseCaseScheduler scheduler = getScheduler();
+
+        Runnable read = new Runnable() {
+            @Override
+            public void run() {
+                if (queryGeneration != generation) {
+                    return;
+                }
+
+                final Cursor result;
+                try {
+                    result = database.get(query);
+                } catch (DatabaseException e) {
+                    postQueryFailed(scheduler, queryGeneration, e);
+                    return;
+                }
+
+                final Rows previousRows = rows;
+                final Rows resultRows;
+                final DiffUtil.DiffResult diff;
+                try {
+                    // the cursor is lazy, so this is where the query actually runs and where most SQL errors are thrown
+                    resultRows = Rows.read(result, keyColumn, versionColumn);
+                    diff = DiffUtil.calculateDiff(new RowsDiffCallback(previousRows, resultRows));
+                } catch (RuntimeException e) {
+                    result.close();
+                    postQueryFailed(scheduler, queryGeneration, e);
+                    return;
+                }
+
+                scheduler.post(new Runnable() {
+                    @Override
+                    public void run() {
+                        if (queryGeneration == generation && rows == previousRows && !closed) {
+                            replaceCursor(result, resultRows, diff);
+                        } else {
+                            result.close();
+                        }
+                    }
+                });
+            }
+        };
+
+        try {
+            scheduler.execute(read, UseCase.Affinity.IO);
+        } catch (RejectedExecutionException e) {
+            // querying here would block the UI thread, so keep showing the old rows
+            onQueryFailed(e);
+        }
+    }
+
+    /**
+     * Calls {@link #onQueryFailed} on the UI thread, unless the query started as {@code queryGeneration} has been
+     * superseded by then.
+     */
+    private void postQueryFailed(UseCaseScheduler scheduler, final int queryGeneration, final Exception error) {
+        scheduler.post(new Runnable() {
+            @Override
+            public void run() {
+                if (queryGeneration == generation) {
+                    onQueryFailed(error);
+                }
+            }
+        });
+    }
+
+    /**
+     * Replaces the cursor with {@code newCursor}, which may be {@code null}, and closes the old cursor. Any query started
+     * by {@link #requery} that has not finished yet is discarded.
+     *
+     * This reads the key and version of every row of {@code newCursor} on the calling thread to find the rows that
+     * changed, so prefer {@code requery} for large cursors.
+     */
+    public void swapCursor(Cursor newCursor) {
+        if (closed) {
+            throw new IllegalStateException("adapter has been closed");
+        }
+
+        generation++;
+        Rows newRows = newCursor == null ? Rows.EMPTY : Rows.read(newCursor, keyColumn, versionColumn);
+        replaceCursor(newCursor, newRows, DiffUtil.calculateDiff(new RowsDiffCallback(rows, newRows)));
+    }
+
+    /**
+     * Closes the cursor and discards any query that has not finished. The adapter shows no rows after this.
+     */
+    public void close() {
+        if (closed) {
+            return;
+        }
+
+        generation++;
+        replaceCursor(null, Rows.EMPTY, DiffUtil.calculateDiff(new RowsDiffCallback(rows, Rows.EMPTY)));
+        closed = true;
+    }
+
+    /**
+     * Returns the current cursor, or {@code null} if there is none. The adapter moves the cursor when binding, so do not
+     * rely on its position.
+     */
+    public Cursor getCursor() {
+        return cursor;
+    }
+
+    /**
+     * Called on the UI thread when the query started by {@link #requery} fails. The old rows are still shown. By default
+     * this does nothing.
+     *
+     * @param error the {@link DatabaseException} or {@link RuntimeException}, such as an {@code SQLiteException}, thrown
+     *              while running the query, or a {@link RejectedExecutionException} if the scheduler could not accept it.
+     */
+    protected void onQueryFailed(Exception error) {
+    }
+
+    /**
+     * Binds the row the {@code cursor} is moved to to the {@code holder}.
+     *
+     * @param holder view holder to bind.
+     * @param cursor cursor moved to the row for the holder's position. Do not move it or keep a reference to it.
+     */
+    public abstract void onBindViewHolder(VH holder, Cursor cursor);
+
+    /**
+     * Moves the cursor to {@code position} and calls {@link #onBindViewHolder(RecyclerView.ViewHolder, Cursor)}.
+     */
+    @Override
+    public void onBindViewHolder(VH holder, int position) {
+        if (cursor == null || !cursor.moveToPosition(position)) {
+            throw new IllegalStateException("could not move cursor to position " + position);
+        }
+        onBindViewHolder(holder, cursor);
+    }
+
+    @Override
+    public int getItemCount() {
+        return rows.keys.length;
+    }
+
+    /**
+     * Returns the value of the key column of the row at {@code position}.
+     */
+    @Override
+    public long getItemId(int position) {
+        return rows.keys[position];
+    }
+
+    /**
+     * Replaces the cursor and notifies the recyclerView of the changed rows, which {@code diff} must have been
+     * calculated from the current {@link #rows} and {@code newRows}.
+     */
+    private void replaceCursor(Cursor newCursor, Rows newRows, DiffUtil.DiffResult diff) {
+        Cursor oldCursor = cursor;
+
+        cursor = newCursor;
+        rows = newRows;
+        diff.dispatchUpdatesTo(this);
+
+        if (oldCursor != null && oldCursor != newCursor) {
+            oldCursor.close();
+        }
+    }
+
+    private UseCaseScheduler getScheduler() {
+        if (scheduler == null) {
+            scheduler = UseCaseHandlerImp.getInstance().getScheduler();
+        }
+        return scheduler;
+    }
+
+    /**
+     * The key and version of each row of a cursor, which is all that is needed to work out which rows changed between two
+     * cursors without reading the old one again.
+     */
+    private static final class Rows {
+
+        static final Rows EMPTY = new Rows(new long[0], null);
+
+        final long[] keys;
+
+        /**
+         * Version of each row, or {@code null} if there is no version column.
+         */
+        final long[] versions;
+
+        Rows(long[] keys, long[] versions) {
+            this.keys = keys;
+            this.versions = versions;
+        }
+
+        /**
+         * Reads the key, and the version if {@code versionColumn} is not {@code null}, of every row of the
+         * {@code cursor}. No other column is read.
+         *
+         * This leaves the cursor on its first row. A cursor larger than one window only holds the rows near its position,
+         * so leaving it on the last row would make the first bind, on the UI thread, refill the window from the start.
+         */
+        static Rows read(Cursor cursor, String keyColumn, String versionColumn) {
+            int keyIndex = cursor.getColumnIndexOrThrow(keyColumn);
+            int versionIndex = versionColumn == null ? -1 : cursor.getColumnIndexOrThrow(versionColumn);
+            int count = cursor.getCount();
+            long[] keys = new long[count];
+            long[] versions = versionIndex == -1 ? null : new long[count];
+
+            for (int row = 0; row < count && cursor.moveToPosition(row); row++) {
+                keys[row] = cursor.getLong(keyIndex);
+                if (versions != null) {
+                    versions[row] = cursor.getLong(versionIndex);
+                }
+            }
+            cursor.moveToFirst();
+
+            return new Rows(keys, versions);
+        }
+    }
+
+    /**
+     * Treats rows with the same key as the same item, and rows with the same version as having the same contents. Rows
+     * without a version never have the same contents, so they are always rebound.
+     */
+    private static final class RowsDiffCallback extends DiffUtil.Callback {
+
+        private final Rows oldRows;
+
+        private final Rows newRows;
+
+        RowsDiffCallback(Rows oldRows, Rows newRows) {
+            this.oldRows = oldRows;
+            this.newRows = newRows;
+        }
+
+        @Override
+        public int getOldListSize() {
+            return oldRows.keys.length;
+        }
+
+        @Override
+        public int getNewListSize() {
+            return newRows.keys.length;
+        }
+
+        @Override
+        public boolean areItemsTheSame(int oldItemPosition, int newItemPosition) {
+            return oldRows.keys[oldItemPosition] == newRows.keys[newItemPosition];
+        }
+
+        @Override
+        public boolean areContentsTheSame(int oldItemPosition, int newItemPosition) {
+            return oldRows.versions != null && newRows.versions != null
+                    && oldRows.versions[oldItemPosition] == newRows.versions[newItemPosition];
+        }
+    }
+}
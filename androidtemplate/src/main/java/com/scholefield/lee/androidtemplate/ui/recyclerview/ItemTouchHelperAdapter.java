@@ -18,4 +18,9 @@ public interface ItemTouchHelperAdapter {
 
     void onItemMove(int fromPosition, int toPosition);
 
+    /**
+     * Called when the user lets go of the item being dragged, after any calls to {@link #onItemMove}.
+     */
+    void onItemDropped();
+
 }
@@ -0,0 +1,43 @@
+package com.scholefield.lee.androidtemplate.ui.recyclerview;
+
+import android.support.v7.util.DiffUtil;
+
+import java.util.List;
+
+/**
+ * Compares two versions of a {@link BaseRecyclerViewAdapter} data set using its {@link BaseRecyclerViewAdapter.ItemComparator}.
+ */
+final class ListDiffCallback<T> extends DiffUtil.Callback {
+
+    private final List<T> oldItems;
+
+    private final List<T> newItems;
+
+    private final BaseRecyclerViewAdapter.ItemComparator<? super T> comparator;
+
+    ListDiffCallback(List<T> oldItems, List<T> newItems, BaseRecyclerViewAdapter.ItemComparator<? super T> comparator) {
+        this.oldItems = oldItems;
+        this.newItems = newItems;
+        this.comparator = comparator;
+    }
+
+    @Override
+    public int getOldListSize() {
+        return oldItems.size();
+    }
+
+    @Override
+    public int getNewListSize() {
+        return newItems.size();
+    }
+
+    @Override
+    public boolean areItemsTheSame(int oldItemPosition, int newItemPosition) {
+        return comparator.areItemsTheSame(oldItems.get(oldItemPosition), newItems.get(newItemPosition));
+    }
+
+    @Override
+    public boolean areContentsTheSame(int oldItemPosition, int newItemPosition) {
+        return comparator.areContentsTheSame(oldItems.get(oldItemPosition), newItems.get(newItemPosition));
+    }
+}
@@ -0,0 +1,407 @@
+package com.scholefield.lee.androidtemplate.ui.recyclerview;
+
+import android.support.v7.widget.RecyclerView;
+import com.scholefield.lee.androidtemplate.db.DataAccessor;
+import com.scholefield.lee.androidtemplate.db.query.SearchQuery;
+import com.scholefield.lee.androidtemplate.usecase.UseCase;
+import com.scholefield.lee.androidtemplate.usecase.UseCaseHandlerImp;
+import com.scholefield.lee.androidtemplate.usecase.UseCaseScheduler;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * Extension of {@link BaseRecyclerViewAdapter} that loads its data set from a {@link DataAccessor} one page at a time,
+ * rather than all at once.
+ *
+ * The first page is loaded when the adapter is attached to a RecyclerView. After that, each time an item is bound the
+ * pages within the {@link #setPrefetchDistance prefetch distance} of it are loaded on a background thread, so they are
+ * usually ready before they are scrolled into view. The item count grows as pages are loaded until a page with fewer
+ * than {@code pageSize} rows is returned. Once more than {@link #setMaxPages maxPages} pages are held, the pages
+ * furthest from the last bound item are dropped, so the memory used does not depend on the size of the table.
+ *
+ * Items that have not been loaded yet are {@code null}, so {@link #onBindViewHolder} must show a placeholder for them.
+ * The recyclerView is notified when they arrive and they are bound again. Only binding an item loads pages; reading the
+ * data set, including through {@link #getItem}, returns whatever is loaded without loading or dropping anything.
+ *
+ * Example:
+ * <pre>
+ *     {@code
+ *     SearchQuery query = new SearchQuery("customers").setOrderBy("_id");
+ *     recyclerView.setAdapter(new CustomerAdapter(dataAccessor, query, 50));
+ *     }
+ * </pre>
+ *
+ * Pages are read using the {@link DataAccessor#setDefaultReader default reader} of the data accessor. The data set can
+ * not be changed through the adapter; if the table changes call {@link #refresh}.
+ *
+ * @param <T> the type of object this recyclerView displays.
+ * @param <VH> ViewHolder subclass.
+ */
+public abstract class PagedRecyclerViewAdapter<T, VH extends RecyclerView.ViewHolder> extends BaseRecyclerViewAdapter<T, VH> {
+
+    /**
+     * Default number of pages either side of the last bound item that are loaded ahead of time.
+     */
+    public static final int DEFAULT_PREFETCH_DISTANCE = 1;
+
+    /**
+     * Default maximum number of pages held in memory.
+     */
+    public static final int DEFAULT_MAX_PAGES = 8;
+
+    private final DataAccessor<T> dataAccessor;
+
+    private final SearchQuery query;
+
+    private final int pageSize;
+
+    /**
+     * Loaded pages, indexed by page number. An entry is {@code null} if the page has not been loaded or has been dropped.
+     */
+    private final List<List<T>> pages = new ArrayList<>();
+
+    /**
+     * Pages that are currently being loaded.
+     */
+    private final BitSet loading = new BitSet();
+
+    private int prefetchDistance = DEFAULT_PREFETCH_DISTANCE;
+
+    private int maxPages = DEFAULT_MAX_PAGES;
+
+    private UseCaseScheduler scheduler;
+
+    /**
+     * Number of items the adapter currently shows, which is the number of rows known to exist.
+     */
+    private int itemCount = 0;
+
+    /**
+     * Number of entries in {@link #pages} that are not {@code null}.
+     */
+    private int loadedPageCount = 0;
+
+    private boolean endReached = false;
+
+    /**
+     * Page of the item that was bound last.
+     */
+    private int currentPage = 0;
+
+    /**
+     * Incremented by {@link #refresh}, so pages loaded before it are discarded.
+     */
+    private int generation = 0;
+
+    /**
+     * @param dataAccessor reads the pages. Its default reader must be set.
+     * @param query query for every row to show. Each page is read using {@link SearchQuery#page}.
+     * @param pageSize number of rows read at a time.
+     */
+    public PagedRecyclerViewAdapter(DataAccessor<T> dataAccessor, SearchQuery query, int pageSize) {
+        super(Collections.<T>emptyList());
+        if (dataAccessor == null) {
+            throw new IllegalArgumentException("dataAccessor == null");
+        }
+        if (query == null) {
+            throw new IllegalArgumentException("query == null");
+        }
+        if (pageSize < 1) {
+            throw new IllegalArgumentException("pageSize < 1");
+        }
+
+        this.dataAccessor = dataAccessor;
+        this.query = query;
+        this.pageSize = pageSize;
+        this.dataSet = new PagedList();
+    }
+
+    /**
+     * Sets the number of pages either side of the last bound item that are loaded ahead of time. Pages within this
+     * distance are never dropped, even if that means holding more than {@link #setMaxPages maxPages}.
+     */
+    public void setPrefetchDistance(int prefetchDistance) {
+        if (prefetchDistance < 0) {
+            throw new IllegalArgumentException("prefetchDistance < 0");
+        }
+        this.prefetchDistance = prefetchDistance;
+    }
+
+    /**
+     * Sets the maximum number of pages held in memory.
+     */
+    public void setMaxPages(int maxPages) {
+        if (maxPages < 1) {
+            throw new IllegalArgumentException("maxPages < 1");
+        }
+        this.maxPages = maxPages;
+    }
+
+    /**
+     * Sets the {@link UseCaseScheduler} the pages are loaded on. By default this is the scheduler of
+     * {@link UseCaseHandlerImp#getInstance()}, and pages are loaded as {@link UseCase.Affinity#IO IO} work.
+     */
+    public void setScheduler(UseCaseScheduler scheduler) {
+        if (scheduler == null) {
+            throw new IllegalArgumentException("scheduler == null");
+        }
+        this.scheduler = scheduler;
+    }
+
+    /**
+     * Loads the first page if nothing has been loaded yet.
+     */
+    @Override
+    public void onAttachedToRecyclerView(RecyclerView recyclerView) {
+        super.onAttachedToRecyclerView(recyclerView);
+
+        if (itemCount == 0 && !endReached) {
+            loadAround(0);
+        }
+    }
+
+    /**
+     * Loads the pages around {@code position} and then binds the item as usual.
+     */
+    @Override
+    public void onBindViewHolder(VH holder, int position, List<Object> payloads) {
+        loadAround(position);
+        super.onBindViewHolder(holder, position, payloads);
+    }
+
+    /**
+     * Returns the item at {@code position}, or {@code null} if it has not been loaded yet. This does not load anything.
+     */
+    public T getItem(int position) {
+        int pageNumber = position / pageSize;
+        if (!isLoaded(pageNumber)) {
+            return null;
+        }
+        List<T> page = pages.get(pageNumber);
+        int index = position % pageSize;
+        return index < page.size() ? page.get(index) : null;
+    }
+
+    /**
+     * Drops every page and loads the data set again from the first page. Pages that are still loading are discarded.
+     */
+    public void refresh() {
+        generation++;
+        pages.clear();
+        loading.clear();
+        loadedPageCount = 0;
+        itemCount = 0;
+        endReached = false;
+        currentPage = 0;
+        notifyDataSetChanged();
+
+        loadAround(0);
+    }
+
+    /**
+     * Not supported, the data set is loaded from the {@link DataAccessor}. Use {@link #refresh} instead.
+     */
+    @Override
+    public void replaceAll(List<T> items) {
+        throw new UnsupportedOperationException("the data set of a PagedRecyclerViewAdapter can not be replaced");
+    }
+
+    /**
+     * Not supported, the data set is loaded from the {@link DataAccessor}. Use {@link #refresh} instead.
+     */
+    @Override
+    public void submitList(List<T> items) {
+        throw new UnsupportedOperationException("the data set of a PagedRecyclerViewAdapter can not be replaced");
+    }
+
+    /**
+     * Not supported. An item that has not been loaded yet is {@code null}, so it has no id until its page arrives, and
+     * an item whose id changes breaks the stable id contract.
+     */
+    @Override
+    public void setIdExtractor(IdExtractor<? super T> idExtractor) {
+        throw new UnsupportedOperationException("a PagedRecyclerViewAdapter can not have stable ids");
+    }
+
+    /**
+     * Called on the UI thread when the {@link DataAccessor} fails to read a page. The page is loaded again the next time
+     * an item near it is bound. By default this does nothing.
+     *
+     * @param page number of the page that failed.
+     * @param error exception thrown by the data accessor.
+     */
+    protected void onPageLoadFailed(int page, RuntimeException error) {
+    }
+
+    /**
+     * Returns the number of pages held in memory. Used for testing.
+     */
+    int getLoadedPageCount() {
+        return loadedPageCount;
+    }
+
+    /**
+     * Loads any page within the prefetch distance of the page containing {@code position} that is not already loaded or
+     * loading. Pages after the last known page are only loaded once the page before them has arrived.
+     */
+    private void loadAround(int position) {
+        int page = position / pageSize;
+        if (page != currentPage) {
+            currentPage = page;
+            dropDistantPages();
+        }
+
+        int first = Math.max(0, currentPage - prefetchDistance);
+        int last = currentPage + prefetchDistance;
+        for (int next = first; next <= last; next++) {
+            int start = next * pageSize;
+            boolean known = start < itemCount || (start == itemCount && !endReached);
+            if (!known) {
+                break;
+            }
+            if (!isLoaded(next) && !loading.get(next)) {
+                load(next);
+            }
+        }
+    }
+
+    private void load(final int page) {
+        final int loadGeneration = generation;
+        final UseCaseScheduler scheduler = getScheduler();
+        final SearchQuery pageQuery = query.page(page * pageSize, pageSize);
+        loading.set(page);
+
+        Runnable read = new Runnable() {
+            @Override
+            public void run() {
+                List<T> items;
+                try {
+                    items = dataAccessor.get(pageQuery, true);
+                } catch (final RuntimeException e) {
+                    scheduler.post(new Runnable() {
+                        @Override
+                        public void run() {
+                            if (loadGeneration == generation) {
+                                loading.clear(page);
+                                onPageLoadFailed(page, e);
+                            }
+                        }
+                    });
+                    return;
+                }
+
+                final List<T> result = items;
+                scheduler.post(new Runnable() {
+                    @Override
+                    public void run() {
+                        if (loadGeneration == generation) {
+                            onPageLoaded(page, result);
+                        }
+                    }
+                });
+            }
+        };
+
+        try {
+            scheduler.execute(read, UseCase.Affinity.IO);
+        } catch (RejectedExecutionException e) {
+            // try again the next time an item near this page is bound
+            loading.clear(page);
+        }
+    }
+
+    private void onPageLoaded(int page, List<T> items) {
+        loading.clear(page);
+
+        while (pages.size() <= page) {
+            pages.add(null);
+        }
+        if (pages.set(page, items) == null) {
+            loadedPageCount++;
+        }
+
+        int start = page * pageSize;
+        int end = start + items.size();
+        if (items.size() < pageSize) {
+            endReached = true;
+        }
+
+        // keep the count if a dropped page is reloaded with fewer rows, it is corrected on refresh
+        if (end > itemCount) {
+            int reloaded = itemCount - start;
+            if (reloaded > 0) {
+                notifyItemRangeChanged(start, reloaded);
+            }
+            int previousCount = itemCount;
+            itemCount = end;
+            notifyItemRangeInserted(previousCount, end - previousCount);
+        } else if (!items.isEmpty()) {
+            notifyItemRangeChanged(start, items.size());
+        }
+
+        dropDistantPages();
+
+        // the next page can only be requested once this one has arrived
+        loadAround(currentPage * pageSize);
+    }
+
+    /**
+     * Drops the pages furthest from {@link #currentPage} until no more than {@link #maxPages} are held, without dropping
+     * any within the prefetch distance.
+     */
+    private void dropDistantPages() {
+        while (loadedPageCount > maxPages) {
+            int furthest = -1;
+            int furthestDistance = prefetchDistance;
+            for (int page = 0; page < pages.size(); page++) {
+                int distance = Math.abs(page - currentPage);
+                if (distance > furthestDistance && isLoaded(page)) {
+                    furthest = page;
+                    furthestDistance = distance;
+                }
+            }
+
+            if (furthest == -1) {
+                return;
+            }
+            pages.set(furthest, null);
+            loadedPageCount--;
+        }
+    }
+
+    private boolean isLoaded(int page) {
+        return page < pages.size() && pages.get(page) != null;
+    }
+
+    private UseCaseScheduler getScheduler() {
+        if (scheduler == null) {
+            scheduler = UseCaseHandlerImp.getInstance().getScheduler();
+        }
+        return scheduler;
+    }
+
+    /**
+     * Data set view of the loaded pages. Items that are not loaded are {@code null}. Reading it never loads or drops a
+     * page, so iterating over it is cheap.
+     */
+    private class PagedList extends AbstractList<T> {
+
+        @Override
+        public T get(int position) {
+            if (position < 0 || position >= itemCount) {
+                throw new IndexOutOfBoundsException("position: " + position + ", size: " + itemCount);
+            }
+            return getItem(position);
+        }
+
+        @Override
+        public int size() {
+            return itemCount;
+        }
+    }
+}
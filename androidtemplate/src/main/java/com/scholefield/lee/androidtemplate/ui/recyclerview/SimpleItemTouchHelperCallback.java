@@ -57,6 +57,16 @@ public class SimpleItemTouchHelperCallback extends ItemTouchHelper.Callback {
         return true;
     }
 
+    /**
+     * Called when the user has finished interacting with the {@code viewHolder}, either because it was dropped after
+     * being dragged or because a swipe has finished.
+     */
+    @Override
+    public void clearView(RecyclerView recyclerView, RecyclerView.ViewHolder viewHolder) {
+        super.clearView(recyclerView, viewHolder);
+        adapter.onItemDropped();
+    }
+
     /**
      * Called when a ViewHolder is swiped by the user.
      */
@@ -0,0 +1,268 @@
+package com.scholefield.lee.androidtemplate.ui.recyclerview;
+
+import android.graphics.Canvas;
+import android.graphics.Paint;
+import android.graphics.drawable.Drawable;
+import android.view.View;
+
+/**
+ * Draws the background revealed behind an item while it is swiped, optionally with an icon and a label, for example a
+ * red background with a bin icon and "Delete".
+ *
+ * Everything needed to draw is created once by the {@link Builder}, including the Paints and the size of the label, so
+ * drawing a frame does not allocate anything. Set it on a {@link TouchRecyclerViewAdapter} using
+ * {@link TouchRecyclerViewAdapter#setSwipeDecoration}.
+ *
+ * Example:
+ * <pre>
+ *     {@code
+ *     SwipeDecoration decoration = new SwipeDecoration.Builder()
+ *             .setLeftBackgroundColor(Color.RED)
+ *             .setLeftIcon(deleteIcon)
+ *             .setLeftLabel("Delete", Color.WHITE, textSize)
+ *             .setRightBackgroundColor(Color.BLUE)
+ *             .setRightIcon(archiveIcon)
+ *             .build();
+ *     }
+ * </pre>
+ *
+ * A SwipeDecoration keeps the same icon Drawables for its whole life and changes their bounds, so each Drawable should
+ * only be used by one SwipeDecoration. It should only be used on the UI thread.
+ */
+public final class SwipeDecoration {
+
+    private final Side left;
+
+    private final Side right;
+
+    /**
+     * Space between the edge of the item, the icon and the label, in pixels.
+     */
+    private final int margin;
+
+    private SwipeDecoration(Side left, Side right, int margin) {
+        this.left = left;
+        this.right = right;
+        this.margin = margin;
+    }
+
+    /**
+     * Draws the decoration for an item swiped to the left, which reveals the area between the right edge of the
+     * {@code itemView} and {@code dX} pixels to the left of it.
+     *
+     * @param dX horizontal displacement of the item, which is negative for a left swipe.
+     */
+    public void drawLeftSwipe(Canvas canvas, View itemView, float dX) {
+        int right = itemView.getRight();
+        draw(canvas, left, right + dX, itemView.getTop(), right, itemView.getBottom(), false);
+    }
+
+    /**
+     * Draws the decoration for an item swiped to the right, which reveals the area between the left edge of the
+     * {@code itemView} and {@code dX} pixels to the right of it.
+     *
+     * @param dX horizontal displacement of the item, which is positive for a right swipe.
+     */
+    public void drawRightSwipe(Canvas canvas, View itemView, float dX) {
+        int left = itemView.getLeft();
+        draw(canvas, right, left, itemView.getTop(), left + dX, itemView.getBottom(), true);
+    }
+
+    /**
+     * Draws the {@code side} within the revealed area, with the icon and label starting from the edge the item was
+     * swiped away from.
+     */
+    private void draw(Canvas canvas, Side side, float areaLeft, float top, float areaRight, float bottom,
+                      boolean fromLeft) {
+        if (areaRight <= areaLeft) {
+            return;
+        }
+
+        int saveCount = canvas.save();
+        canvas.clipRect(areaLeft, top, areaRight, bottom);
+
+        if (side.background != null) {
+            canvas.drawRect(areaLeft, top, areaRight, bottom, side.background);
+        }
+
+        float centerY = (top + bottom) / 2;
+        // distance from the edge the item was swiped away from to the next thing to draw
+        float offset = margin;
+
+        if (side.icon != null) {
+            int iconTop = (int) (centerY - side.iconHeight / 2f);
+            int iconLeft = (int) (fromLeft ? areaLeft + offset : areaRight - offset - side.iconWidth);
+            side.icon.setBounds(iconLeft, iconTop, iconLeft + side.iconWidth, iconTop + side.iconHeight);
+            side.icon.draw(canvas);
+            offset += side.iconWidth + margin;
+        }
+
+        if (side.label != null) {
+            float x = fromLeft ? areaLeft + offset : areaRight - offset - side.labelWidth;
+            canvas.drawText(side.label, x, centerY + side.labelBaseline, side.labelPaint);
+        }
+
+        canvas.restoreToCount(saveCount);
+    }
+
+    /**
+     * What to draw for one swipe direction. Any part may be {@code null}.
+     */
+    private static final class Side {
+
+        Paint background;
+
+        Drawable icon;
+
+        int iconWidth;
+
+        int iconHeight;
+
+        String label;
+
+        Paint labelPaint;
+
+        float labelWidth;
+
+        /**
+         * Offset from the vertical centre of the item to the baseline of the label, so the label is centred.
+         */
+        float labelBaseline;
+
+        Side() {
+        }
+
+        Side(Side other) {
+            background = other.background;
+            icon = other.icon;
+            label = other.label;
+            labelPaint = other.labelPaint;
+        }
+
+        /**
+         * Works out everything that depends only on the configuration, so it is not worked out again for each frame.
+         */
+        void measure(int defaultIconSize) {
+            if (icon != null) {
+                iconWidth = icon.getIntrinsicWidth() > 0 ? icon.getIntrinsicWidth() : defaultIconSize;
+                iconHeight = icon.getIntrinsicHeight() > 0 ? icon.getIntrinsicHeight() : defaultIconSize;
+            }
+            if (label != null) {
+                labelWidth = labelPaint.measureText(label);
+                labelBaseline = -(labelPaint.ascent() + labelPaint.descent()) / 2;
+            }
+        }
+    }
+
+    /**
+     * Creates a new {@link SwipeDecoration}. By default nothing is drawn for either direction, the margin is 16px and
+     * icons without an intrinsic size are drawn 48px square.
+     */
+    public static class Builder {
+
+        private final Side left = new Side();
+
+        private final Side right = new Side();
+
+        private int margin = 16;
+
+        private int defaultIconSize = 48;
+
+        /**
+         * Sets the colour of the background revealed by a left swipe.
+         */
+        public Builder setLeftBackgroundColor(int color) {
+            left.background = backgroundPaint(color);
+            return this;
+        }
+
+        /**
+         * Sets the icon drawn near the right edge of the area revealed by a left swipe.
+         */
+        public Builder setLeftIcon(Drawable icon) {
+            left.icon = icon;
+            return this;
+        }
+
+        /**
+         * Sets the label drawn next to the icon in the area revealed by a left swipe.
+         *
+         * @param textSize size of the text in pixels.
+         */
+        public Builder setLeftLabel(String label, int color, float textSize) {
+            left.label = label;
+            left.labelPaint = label == null ? null : labelPaint(color, textSize);
+            return this;
+        }
+
+        /**
+         * Sets the colour of the background revealed by a right swipe.
+         */
+        public Builder setRightBackgroundColor(int color) {
+            right.background = backgroundPaint(color);
+            return this;
+        }
+
+        /**
+         * Sets the icon drawn near the left edge of the area revealed by a right swipe.
+         */
+        public Builder setRightIcon(Drawable icon) {
+            right.icon = icon;
+            return this;
+        }
+
+        /**
+         * Sets the label drawn next to the icon in the area revealed by a right swipe.
+         *
+         * @param textSize size of the text in pixels.
+         */
+        public Builder setRightLabel(String label, int color, float textSize) {
+            right.label = label;
+            right.labelPaint = label == null ? null : labelPaint(color, textSize);
+            return this;
+        }
+
+        /**
+         * Sets the space in pixels between the edge of the item, the icon and the label.
+         */
+        public Builder setMargin(int margin) {
+            if (margin < 0) {
+                throw new IllegalArgumentException("margin < 0");
+            }
+            this.margin = margin;
+            return this;
+        }
+
+        /**
+         * Sets the size in pixels icons are drawn at if they do not have an intrinsic size, for example a ColorDrawable.
+         */
+        public Builder setDefaultIconSize(int defaultIconSize) {
+            if (defaultIconSize < 0) {
+                throw new IllegalArgumentException("defaultIconSize < 0");
+            }
+            this.defaultIconSize = defaultIconSize;
+            return this;
+        }
+
+        public SwipeDecoration build() {
+            Side leftSide = new Side(left);
+            Side rightSide = new Side(right);
+            leftSide.measure(defaultIconSize);
+            rightSide.measure(defaultIconSize);
+            return new SwipeDecoration(leftSide, rightSide, margin);
+        }
+
+        private static Paint backgroundPaint(int color) {
+            Paint paint = new Paint();
+            paint.setColor(color);
+            return paint;
+        }
+
+        private static Paint labelPaint(int color, float textSize) {
+            Paint paint = new Paint(Paint.ANTI_ALIAS_FLAG);
+            paint.setColor(color);
+            paint.setTextSize(textSize);
+            return paint;
+        }
+    }
+}
@@ -1,5 +1,6 @@
 package com.scholefield.lee.androidtemplate.ui.recyclerview;
 
+import android.graphics.Canvas;
 import android.support.v7.widget.RecyclerView;
 import android.support.v7.widget.helper.ItemTouchHelper;
 
@@ -13,6 +14,15 @@ import java.util.List;
  * the recycler view, and a left or right swipe will do nothing. To implement custom behaviour you must override {@link #onSwipeLeft},
  * {@link #onSwipeRight} and {@link #onItemMove}.
  *
+ * While an item is dragged it is moved within the data set each time it passes another item, but the whole drag is
+ * reported once the item is dropped, as a single move from where it started to where it ended, through
+ * {@link #onDragFinished}. Override that to save the new order, so a long drag is saved in one go rather than once for
+ * every item it passed.
+ *
+ * To draw a background behind a swiped item set a {@link SwipeDecoration} using {@link #setSwipeDecoration}, or override
+ * {@link #animateLeftSwipe} and {@link #animateRightSwipe}. These are called for every frame of a swipe, so they should
+ * not allocate anything.
+ *
  * @param <T> the type of object this recyclerView displays.
  * @param <VH> ViewHolder subclass.
  * @see BaseRecyclerViewAdapter
@@ -25,6 +35,21 @@ public abstract class TouchRecyclerViewAdapter<T, VH extends RecyclerView.ViewHo
 
     protected RecyclerView recyclerView;
 
+    /**
+     * Drawn behind swiped items. May be {@code null}.
+     */
+    private SwipeDecoration swipeDecoration;
+
+    /**
+     * Position the dragged item started at, or {@link RecyclerView#NO_POSITION} if nothing has been dragged yet.
+     */
+    private int dragFrom = RecyclerView.NO_POSITION;
+
+    /**
+     * Position the dragged item is currently at.
+     */
+    private int dragTo = RecyclerView.NO_POSITION;
+
     public TouchRecyclerViewAdapter(List<T> items) {
         super(items);
     }
@@ -37,6 +62,35 @@ public abstract class TouchRecyclerViewAdapter<T, VH extends RecyclerView.ViewHo
         touchHelper.attachToRecyclerView(recyclerView);
     }
 
+    /**
+     * Sets the {@link SwipeDecoration} drawn behind an item while it is swiped, or {@code null} to draw nothing.
+     */
+    public void setSwipeDecoration(SwipeDecoration swipeDecoration) {
+        this.swipeDecoration = swipeDecoration;
+    }
+
+    /**
+     * Draws the {@link SwipeDecoration}, if one is set, and moves the item with the swipe.
+     */
+    @Override
+    public void animateLeftSwipe(Canvas canvas, RecyclerView.ViewHolder viewHolder, float dX, float dY) {
+        if (swipeDecoration != null) {
+            swipeDecoration.drawLeftSwipe(canvas, viewHolder.itemView, dX);
+        }
+        viewHolder.itemView.setTranslationX(dX);
+    }
+
+    /**
+     * Draws the {@link SwipeDecoration}, if one is set, and moves the item with the swipe.
+     */
+    @Override
+    public void animateRightSwipe(Canvas canvas, RecyclerView.ViewHolder viewHolder, float dX, float dY) {
+        if (swipeDecoration != null) {
+            swipeDecoration.drawRightSwipe(canvas, viewHolder.itemView, dX);
+        }
+        viewHolder.itemView.setTranslationX(dX);
+    }
+
     @Override
     public void onSwipeLeft(int position) {
 
@@ -47,9 +101,57 @@ public abstract class TouchRecyclerViewAdapter<T, VH extends RecyclerView.ViewHo
 
     }
 
+    /**
+     * Moves the item at {@code fromPosition} to {@code toPosition}, shifting the items in between by one, and records the
+     * move as part of the current drag.
+     */
     @Override
     public void onItemMove(int fromPosition, int toPosition) {
-        Collections.swap(dataSet, fromPosition, toPosition);
+        if (fromPosition == toPosition || fromPosition == RecyclerView.NO_POSITION
+                || toPosition == RecyclerView.NO_POSITION) {
+            return;
+        }
+
+        if (fromPosition < toPosition) {
+            Collections.rotate(dataSet.subList(fromPosition, toPosition + 1), -1);
+        } else {
+            Collections.rotate(dataSet.subList(toPosition, fromPosition + 1), 1);
+        }
+        invalidateIndexFrom(Math.min(fromPosition, toPosition));
         notifyItemMoved(fromPosition, toPosition);
+
+        if (dragFrom == RecyclerView.NO_POSITION) {
+            dragFrom = fromPosition;
+        }
+        dragTo = toPosition;
+    }
+
+    /**
+     * Calls {@link #onDragFinished} if the item that was dropped ended up somewhere other than where it started.
+     */
+    @Override
+    public void onItemDropped() {
+        int from = dragFrom;
+        int to = dragTo;
+        dragFrom = RecyclerView.NO_POSITION;
+        dragTo = RecyclerView.NO_POSITION;
+
+        if (from != to) {
+            onDragFinished(from, to);
+        }
+    }
+
+    /**
+     * Called once when a dragged item is dropped at a different position to where the drag started. By default this does
+     * nothing.
+     *
+     * The item is already at {@code toPosition} in the data set, and only the items between the two positions
+     * (inclusive) have moved, so {@code dataSet.subList(Math.min(fromPosition, toPosition), Math.max(fromPosition,
+     * toPosition) + 1)} holds every item whose position needs to be saved, in its new order.
+     *
+     * @param fromPosition position the item was at when the drag started.
+     * @param toPosition position the item was dropped at.
+     */
+    protected void onDragFinished(int fromPosition, int toPosition) {
     }
 }
@@ -0,0 +1,111 @@
+package com.scholefield.lee.androidtemplate.usecase;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Stops a {@link UseCaseHandlerImp} from executing a {@link UseCase} class that keeps failing. Breakers are registered per
+ * UseCase class via {@link UseCaseHandlerImp.Builder#setCircuitBreaker}.
+ *
+ * The breaker starts <STRONG>closed</STRONG>, and every execution is allowed. Once {@code failureThreshold} executions
+ * in a row have failed it <STRONG>opens</STRONG>, and every execution fails immediately without the UseCase being run.
+ * After {@code openDuration} a single trial execution is allowed (<STRONG>half-open</STRONG>). If the trial succeeds the
+ * breaker closes again, otherwise it re-opens for another {@code openDuration}.
+ *
+ * Each attempt made by a {@link RetryPolicy} counts as a separate execution.
+ *
+ * Times are passed in by the handler from the {@link UseCaseScheduler#now() clock} of its scheduler, so a breaker used
+ * with a {@link VirtualTimeUseCaseScheduler} recovers on virtual time.
+ */
+public class CircuitBreaker {
+
+    public enum State {
+        CLOSED, OPEN, HALF_OPEN
+    }
+
+    private final int failureThreshold;
+
+    private final long openDurationNanos;
+
+    private State state = State.CLOSED;
+
+    /**
+     * Number of consecutive failures while closed.
+     */
+    private int failures = 0;
+
+    private long openedAt;
+
+    /**
+     * Constructor.
+     *
+     * @param failureThreshold number of consecutive failures before the breaker opens.
+     * @param openDuration time the breaker stays open before allowing a trial execution.
+     */
+    public CircuitBreaker(int failureThreshold, long openDuration, TimeUnit unit) {
+        if (failureThreshold < 1) {
+            throw new IllegalArgumentException("failureThreshold must be at least 1");
+        }
+        if (openDuration < 0) {
+            throw new IllegalArgumentException("openDuration must not be negative");
+        }
+        this.failureThreshold = failureThreshold;
+        this.openDurationNanos = unit.toNanos(openDuration);
+    }
+
+    /**
+     * Returns {@code true} if the UseCase may be executed. If this returns {@code true} the caller must later call
+     * {@link #onSuccess()} or {@link #onFailure}, or {@link #release()} if the UseCase was not run after all.
+     *
+     * @param now current time in nanoseconds, from the same clock that is passed to {@link #onFailure}.
+     */
+    public synchronized boolean allowExecution(long now) {
+        switch (state) {
+            case CLOSED:
+                return true;
+            case OPEN:
+                if (now - openedAt >= openDurationNanos) {
+                    state = State.HALF_OPEN;
+                    return true;
+                }
+                return false;
+            default:
+                // a trial execution is already running
+                return false;
+        }
+    }
+
+    /**
+     * Records a successful execution.
+     */
+    public synchronized void onSuccess() {
+        state = State.CLOSED;
+        failures = 0;
+    }
+
+    /**
+     * Records a failed execution.
+     *
+     * @param now current time in nanoseconds, which the open duration is counted from if the breaker opens.
+     */
+    public synchronized void onFailure(long now) {
+        if (state == State.HALF_OPEN || ++failures >= failureThreshold) {
+            state = State.OPEN;
+            openedAt = now;
+            failures = 0;
+        }
+    }
+
+    /**
+     * Gives back an execution allowed by {@link #allowExecution} that was never run, for example because the scheduler
+     * rejected it. If it was the trial execution the breaker opens again, and the next execution becomes the trial.
+     */
+    public synchronized void release() {
+        if (state == State.HALF_OPEN) {
+            state = State.OPEN;
+        }
+    }
+
+    public synchronized State getState() {
+        return state;
+    }
+}
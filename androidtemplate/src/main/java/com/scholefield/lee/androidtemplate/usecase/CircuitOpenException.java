@@ -0,0 +1,12 @@
+package com.scholefield.lee.androidtemplate.usecase;
+
+/**
+ * Passed to {@link UseCase.UseCaseCallback#onError} when a {@link UseCase} was not run because its {@link CircuitBreaker}
+ * is open.
+ */
+public class CircuitOpenException extends RuntimeException {
+
+    public CircuitOpenException(Class<?> useCaseClass) {
+        super(useCaseClass.getName() + " has been failing repeatedly and was not run");
+    }
+}
@@ -0,0 +1,102 @@
+package com.scholefield.lee.androidtemplate.usecase;
+
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A {@link UseCaseScheduler} that executes {@link UseCase}s and calls their callbacks on the calling thread.
+ *
+ * This performs no thread hand-off at all, so it is mainly useful for tests and for measuring the cost of the
+ * {@link UseCaseHandler} itself when benchmarking other schedulers. It should not be used on the UI thread in production.
+ */
+public class DirectUseCaseScheduler implements UseCaseScheduler {
+
+    private volatile boolean shutdown = false;
+
+    /**
+     * Runs the {@code runnable} on the calling thread.
+     *
+     * @throws RejectedExecutionException if {@link #shutdown()} has been called.
+     */
+    @Override
+    public void execute(Runnable runnable) {
+        if (shutdown) {
+            throw new RejectedExecutionException("scheduler has been shut down");
+        }
+        runnable.run();
+    }
+
+    /**
+     * Passes the {@code runnable} to {@link #execute(Runnable)}, whatever its {@code affinity}.
+     */
+    @Override
+    public void execute(Runnable runnable, UseCase.Affinity affinity) {
+        execute(runnable);
+    }
+
+    /**
+     * Blocks the calling thread for {@code delay} and then runs the {@code runnable} on it.
+     */
+    @Override
+    public void schedule(Runnable runnable, long delay, TimeUnit unit) {
+        try {
+            unit.sleep(delay);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        runnable.run();
+    }
+
+    /**
+     * Runs the {@code runnable} on the calling thread.
+     */
+    @Override
+    public void post(Runnable runnable) {
+        runnable.run();
+    }
+
+    /**
+     * Returns {@link System#nanoTime()}.
+     */
+    @Override
+    public long now() {
+        return System.nanoTime();
+    }
+
+    /**
+     * There are no threads to start, so this returns 0.
+     */
+    @Override
+    public int prestart() {
+        return 0;
+    }
+
+    @Override
+    public void shutdown() {
+        shutdown = true;
+    }
+
+    /**
+     * Everything has already run on the calling thread, so this returns {@code true} straight away.
+     */
+    @Override
+    public boolean awaitDrain(long timeout, TimeUnit unit) {
+        return true;
+    }
+
+    /**
+     * Calls {@link UseCase.UseCaseCallback#onSuccess} on the calling thread.
+     */
+    @Override
+    public <V extends UseCase.ResponseValue> void notifyResponse(V response, UseCase.UseCaseCallback<V> callback) {
+        callback.onSuccess(response);
+    }
+
+    /**
+     * Calls {@link UseCase.UseCaseCallback#onError} on the calling thread.
+     */
+    @Override
+    public <V extends UseCase.ResponseValue> void onError(Throwable error, UseCase.UseCaseCallback<V> callback) {
+        callback.onError(error);
+    }
+}
@@ -0,0 +1,74 @@
+package com.scholefield.lee.androidtemplate.usecase;
+
+import android.annotation.TargetApi;
+import android.os.Build;
+import android.os.Handler;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Uses a work-stealing {@link ForkJoinPool} to execute the {@link UseCase}s and a {@link Handler} to communicate with the
+ * UI thread.
+ *
+ * This suits workloads made up of many short UseCases, or UseCases that submit further work to the scheduler (such as the
+ * branches of a {@link UseCasePipeline#fanOut}), since idle threads take queued work from busy ones rather than sharing a
+ * single queue. Unlike {@link UseCaseThreadPoolScheduler} the queue is unbounded, so executing a UseCase is never rejected.
+ *
+ * The pool creates its threads as work arrives and lets them exit once they are idle, so {@link #prestart()} does nothing.
+ *
+ * Note, {@code ForkJoinPool} is only available from API 21.
+ */
+@TargetApi(Build.VERSION_CODES.LOLLIPOP)
+public class ForkJoinUseCaseScheduler extends MainThreadUseCaseScheduler {
+
+    private final ForkJoinPool pool;
+
+    /**
+     * Constructor. The parallelism of the pool will be equal to the number of available processors.
+     */
+    public ForkJoinUseCaseScheduler() {
+        this(Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param parallelism the maximum number of threads that will execute UseCases at the same time.
+     */
+    public ForkJoinUseCaseScheduler(int parallelism) {
+        // asyncMode processes submitted tasks in FIFO order, which is better suited to UseCases that are never joined.
+        this.pool = new ForkJoinPool(parallelism, ForkJoinPool.defaultForkJoinWorkerThreadFactory, null, true);
+    }
+
+    /**
+     * Package-private constructor for testing.
+     */
+    ForkJoinUseCaseScheduler(ForkJoinPool pool, Handler handler) {
+        super(handler);
+        this.pool = pool;
+    }
+
+    /**
+     * Passes the given {@code runnable} to the {@link ForkJoinPool} to be executed.
+     */
+    @Override
+    public void execute(Runnable runnable) {
+        pool.execute(runnable);
+    }
+
+    @Override
+    public int prestart() {
+        return 0;
+    }
+
+    @Override
+    public void shutdown() {
+        pool.shutdown();
+    }
+
+    @Override
+    public boolean awaitDrain(long timeout, TimeUnit unit) throws InterruptedException {
+        return pool.awaitTermination(timeout, unit);
+    }
+}
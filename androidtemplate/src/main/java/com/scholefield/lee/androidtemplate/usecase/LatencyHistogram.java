@@ -0,0 +1,203 @@
+package com.scholefield.lee.androidtemplate.usecase;
+
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A thread-safe histogram of durations in nanoseconds with a fixed set of buckets.
+ *
+ * Each power of two is split into {@link #SUB_BUCKETS} equal buckets, so any recorded value is accurate to within 12.5%.
+ * Values below 16ns are recorded exactly and values above 2^40ns (roughly 18 minutes) are recorded in the last bucket.
+ *
+ * All of the buckets are allocated when the histogram is created, so {@link #record} never allocates and never blocks.
+ */
+public final class LatencyHistogram {
+
+    private static final int SUB_BUCKET_BITS = 3;
+
+    /**
+     * Number of buckets each power of two is split into.
+     */
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+
+    /**
+     * Largest power of two that has its own buckets.
+     */
+    private static final int MAX_EXPONENT = 40;
+
+    private static final int BUCKET_COUNT = bucketIndex(Long.MAX_VALUE) + 1;
+
+    private final AtomicLongArray buckets = new AtomicLongArray(BUCKET_COUNT);
+
+    private final AtomicLong count = new AtomicLong();
+
+    private final AtomicLong total = new AtomicLong();
+
+    private final AtomicLong max = new AtomicLong();
+
+    /**
+     * Records a single duration. Negative values are recorded as 0.
+     */
+    public void record(long nanos) {
+        long value = nanos < 0 ? 0 : nanos;
+
+        buckets.incrementAndGet(bucketIndex(value));
+        count.incrementAndGet();
+        total.addAndGet(value);
+
+        long currentMax = max.get();
+        while (value > currentMax && !max.compareAndSet(currentMax, value)) {
+            currentMax = max.get();
+        }
+    }
+
+    /**
+     * Removes all recorded values.
+     */
+    public void reset() {
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            buckets.set(i, 0);
+        }
+        count.set(0);
+        total.set(0);
+        max.set(0);
+    }
+
+    /**
+     * Returns a copy of the values recorded so far. Values recorded while the snapshot is being taken may or may not be
+     * included.
+     */
+    public Snapshot snapshot() {
+        long[] copy = new long[BUCKET_COUNT];
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            copy[i] = buckets.get(i);
+        }
+        return new Snapshot(copy, count.get(), total.get(), max.get());
+    }
+
+    /**
+     * Returns the bucket {@code value} is recorded in.
+     */
+    static int bucketIndex(long value) {
+        if (value < 2 * SUB_BUCKETS) {
+            return (int) value;
+        }
+
+        int exponent = Math.min(63 - Long.numberOfLeadingZeros(value), MAX_EXPONENT);
+        if (exponent == MAX_EXPONENT && value >= (1L << (MAX_EXPONENT + 1))) {
+            return (MAX_EXPONENT - SUB_BUCKET_BITS + 2) * SUB_BUCKETS - 1;
+        }
+
+        int subBucket = (int) ((value >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1));
+        return (exponent - SUB_BUCKET_BITS + 1) * SUB_BUCKETS + subBucket;
+    }
+
+    /**
+     * Returns the largest value that is recorded in the bucket at {@code index}.
+     */
+    static long bucketUpperBound(int index) {
+        if (index < 2 * SUB_BUCKETS) {
+            return index;
+        }
+
+        int exponent = index / SUB_BUCKETS + SUB_BUCKET_BITS - 1;
+        int subBucket = index % SUB_BUCKETS;
+        int shift = exponent - SUB_BUCKET_BITS;
+        long lower = (long) (SUB_BUCKETS + subBucket) << shift;
+        return lower + (1L << shift) - 1;
+    }
+
+    /**
+     * An immutable copy of a {@link LatencyHistogram}.
+     */
+    public static final class Snapshot {
+
+        private final long[] buckets;
+
+        private final long count;
+
+        private final long total;
+
+        private final long max;
+
+        Snapshot(long[] buckets, long count, long total, long max) {
+            this.buckets = buckets;
+            this.count = count;
+            this.total = total;
+            this.max = max;
+        }
+
+        /**
+         * Returns the number of recorded values.
+         */
+        public long getCount() {
+            return count;
+        }
+
+        /**
+         * Returns the mean of the recorded values in nanoseconds, or 0 if nothing has been recorded.
+         */
+        public long getMean() {
+            return count == 0 ? 0 : total / count;
+        }
+
+        /**
+         * Returns the largest recorded value in nanoseconds.
+         */
+        public long getMax() {
+            return max;
+        }
+
+        /**
+         * Returns the value in nanoseconds below which {@code percentile} percent of the recorded values fall. The result is
+         * the upper bound of the bucket containing that value, and is never larger than {@link #getMax()}.
+         *
+         * @param percentile a value between 0 and 100.
+         */
+        public long getPercentile(double percentile) {
+            if (percentile < 0 || percentile > 100) {
+                throw new IllegalArgumentException("percentile must be between 0 and 100");
+            }
+
+            long recorded = 0;
+            for (long bucket : buckets) {
+                recorded += bucket;
+            }
+            if (recorded == 0) {
+                return 0;
+            }
+
+            long target = Math.max(1, (long) Math.ceil(recorded * percentile / 100));
+            long seen = 0;
+            for (int i = 0; i < buckets.length; i++) {
+                seen += buckets[i];
+                if (seen >= target) {
+                    return Math.min(bucketUpperBound(i), max);
+                }
+            }
+            return max;
+        }
+
+        /**
+         * Returns a summary in the form {@code "p50=1.2ms p90=3.4ms p99=5.6ms max=7.8ms"}.
+         */
+        @Override
+        public String toString() {
+            return "p50=" + format(getPercentile(50))
+                    + " p90=" + format(getPercentile(90))
+                    + " p99=" + format(getPercentile(99))
+                    + " max=" + format(max);
+        }
+
+        private static String format(long nanos) {
+            if (nanos < TimeUnit.MICROSECONDS.toNanos(1)) {
+                return nanos + "ns";
+            } else if (nanos < TimeUnit.MILLISECONDS.toNanos(1)) {
+                return String.format(Locale.US, "%.1fus", nanos / 1e3);
+            }
+            return String.format(Locale.US, "%.1fms", nanos / 1e6);
+        }
+    }
+}
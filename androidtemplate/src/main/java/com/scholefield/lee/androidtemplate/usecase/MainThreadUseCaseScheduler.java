@@ -0,0 +1,126 @@
+package com.scholefield.lee.androidtemplate.usecase;
+
+import android.os.Handler;
+import android.os.Looper;
+
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Base class for a {@link UseCaseScheduler} that executes {@link UseCase}s on a background thread and uses a
+ * {@link Handler} to communicate with the UI thread. Subclasses only need to implement {@link #execute(Runnable)}.
+ */
+public abstract class MainThreadUseCaseScheduler implements UseCaseScheduler {
+
+    /**
+     * Used to communicate with the UI thread.
+     */
+    private final Handler handler;
+
+    /**
+     * Constructor. Callbacks will be posted to the main Looper, so this can safely be called from any thread.
+     */
+    protected MainThreadUseCaseScheduler() {
+        this(new Handler(Looper.getMainLooper()));
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param handler used to send callbacks to the UI thread.
+     */
+    protected MainThreadUseCaseScheduler(Handler handler) {
+        this.handler = handler;
+    }
+
+    /**
+     * Passes the {@code runnable} to {@link #execute(Runnable)}, ignoring its {@code affinity}. Subclasses that keep
+     * separate threads for blocking work should override this.
+     */
+    @Override
+    public void execute(Runnable runnable, UseCase.Affinity affinity) {
+        execute(runnable);
+    }
+
+    /**
+     * Uses a single background timer thread, shared by every scheduler, to run the {@code runnable} once {@code delay} has
+     * elapsed.
+     */
+    @Override
+    public void schedule(Runnable runnable, long delay, TimeUnit unit) {
+        TimerHolder.TIMER.schedule(runnable, delay, unit);
+    }
+
+    /**
+     * Uses the {@code handler} to run the {@code runnable} on the UI thread. The {@code Message} this is sent in comes
+     * from the {@code Message} pool, so nothing is allocated.
+     */
+    @Override
+    public void post(Runnable runnable) {
+        handler.post(runnable);
+    }
+
+    /**
+     * Returns {@link System#nanoTime()}.
+     */
+    @Override
+    public long now() {
+        return System.nanoTime();
+    }
+
+    /**
+     * Uses the {@code handler} to send the {@link UseCase.ResponseValue} back to the UI thread.
+     *
+     * @param response response received from the UseCase execution.
+     * @param callback callback used to communicate with the UI thread.
+     */
+    @Override
+    public <V extends UseCase.ResponseValue> void notifyResponse(final V response, final UseCase.UseCaseCallback<V> callback) {
+        handler.post(new Runnable() {
+            @Override
+            public void run() {
+                callback.onSuccess(response);
+            }
+        });
+    }
+
+    /**
+     * Uses the {@code handler} to notify the UI thread that the {@code UseCase} encountered an error during execution.
+     *
+     * @param error cause of the error.
+     * @param callback callback to the UI thread.
+     */
+    @Override
+    public <V extends UseCase.ResponseValue> void onError(final Throwable error, final UseCase.UseCaseCallback<V> callback) {
+        handler.post(new Runnable() {
+            @Override
+            public void run() {
+                callback.onError(error);
+            }
+        });
+    }
+
+    /**
+     * Returns the {@link Handler} used to communicate with the UI thread.
+     */
+    protected Handler getHandler() {
+        return handler;
+    }
+
+    /**
+     * Holds the timer used by {@link #schedule}. The thread is only created the first time a task is scheduled.
+     */
+    private static final class TimerHolder {
+
+        static final ScheduledExecutorService TIMER = new ScheduledThreadPoolExecutor(1, new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable runnable) {
+                Thread thread = new Thread(runnable, "UseCaseScheduler-timer");
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+    }
+}
@@ -0,0 +1,220 @@
+package com.scholefield.lee.androidtemplate.usecase;
+
+import android.database.sqlite.SQLiteDatabaseLockedException;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Describes how a {@link UseCaseHandlerImp} should retry a {@link UseCase} that fails. Policies are registered per UseCase
+ * class via {@link UseCaseHandlerImp.Builder#setRetryPolicy}.
+ *
+ * After each failed attempt the UseCase is executed again once a delay has passed, up to {@link Builder#setMaxAttempts}
+ * attempts in total. The delay starts at {@link Builder#setInitialDelay} and is multiplied by
+ * {@link Builder#setMultiplier} after each attempt, up to {@link Builder#setMaxDelay}. Each delay is then reduced by a
+ * random amount of up to {@link Builder#setJitter} percent so that UseCases that failed together do not all retry at
+ * the same moment.
+ *
+ * Example:
+ * <pre>
+ *     {@code
+ *     RetryPolicy policy = new RetryPolicy.Builder()
+ *             .setMaxAttempts(4)
+ *             .setInitialDelay(50, TimeUnit.MILLISECONDS)
+ *             .setRetryCondition(RetryPolicy.DATABASE_LOCKED)
+ *             .build();
+ *     }
+ * </pre>
+ */
+public final class RetryPolicy {
+
+    /**
+     * Retries every failure.
+     */
+    public static final RetryCondition ALWAYS = new RetryCondition() {
+        @Override
+        public boolean shouldRetry(Throwable error) {
+            return true;
+        }
+    };
+
+    /**
+     * Only retries failures caused by a {@link SQLiteDatabaseLockedException}, which SQLite throws when the database is
+     * busy or locked by another connection.
+     */
+    public static final RetryCondition DATABASE_LOCKED = retryOn(SQLiteDatabaseLockedException.class);
+
+    /**
+     * Returns a {@link RetryCondition} that only retries failures caused by one of the given exception types, anywhere in
+     * the cause chain. For example, a UseCase that reads from the network might only retry an {@code IOException}.
+     */
+    @SafeVarargs
+    public static RetryCondition retryOn(final Class<? extends Throwable>... types) {
+        return new RetryCondition() {
+            @Override
+            public boolean shouldRetry(Throwable error) {
+                for (Throwable cause = error; cause != null; cause = cause.getCause()) {
+                    for (Class<? extends Throwable> type : types) {
+                        if (type.isInstance(cause)) {
+                            return true;
+                        }
+                    }
+                }
+                return false;
+            }
+        };
+    }
+
+    private final int maxAttempts;
+
+    private final long initialDelayNanos;
+
+    private final long maxDelayNanos;
+
+    private final double multiplier;
+
+    private final double jitter;
+
+    private final RetryCondition retryCondition;
+
+    private final Random random = new Random();
+
+    private RetryPolicy(Builder builder) {
+        this.maxAttempts = builder.maxAttempts;
+        this.initialDelayNanos = builder.initialDelayNanos;
+        this.maxDelayNanos = builder.maxDelayNanos;
+        this.multiplier = builder.multiplier;
+        this.jitter = builder.jitter;
+        this.retryCondition = builder.retryCondition;
+    }
+
+    /**
+     * Returns {@code true} if a UseCase that has failed {@code attempts} times with {@code error} should be executed again.
+     *
+     * @param error cause of the failure.
+     */
+    public boolean shouldRetry(int attempts, Throwable error) {
+        return attempts < maxAttempts && retryCondition.shouldRetry(error);
+    }
+
+    /**
+     * Returns the delay in nanoseconds before the next attempt of a UseCase that has failed {@code attempts} times.
+     */
+    public long getDelayNanos(int attempts) {
+        double delay = initialDelayNanos * Math.pow(multiplier, attempts - 1);
+        long capped = (long) Math.min(delay, maxDelayNanos);
+
+        double reduction;
+        synchronized (random) {
+            reduction = random.nextDouble() * jitter;
+        }
+        return (long) (capped * (1 - reduction));
+    }
+
+    public int getMaxAttempts() {
+        return maxAttempts;
+    }
+
+    /**
+     * Decides whether a failure should be retried.
+     */
+    public interface RetryCondition {
+
+        /**
+         * @param error cause of the failure passed to {@link UseCase.UseCaseCallback#onError}.
+         */
+        boolean shouldRetry(Throwable error);
+    }
+
+    /**
+     * Creates a new {@link RetryPolicy}. By default a UseCase is attempted 3 times, with a delay of 100ms that doubles
+     * after each attempt up to 2 seconds, and up to 50% jitter. Every failure is retried.
+     */
+    public static class Builder {
+
+        private int maxAttempts = 3;
+
+        private long initialDelayNanos = TimeUnit.MILLISECONDS.toNanos(100);
+
+        private long maxDelayNanos = TimeUnit.SECONDS.toNanos(2);
+
+        private double multiplier = 2;
+
+        private double jitter = 0.5;
+
+        private RetryCondition retryCondition = ALWAYS;
+
+        /**
+         * Sets the total number of times the UseCase will be executed, including the first attempt. Must be at least 1.
+         */
+        public Builder setMaxAttempts(int maxAttempts) {
+            if (maxAttempts < 1) {
+                throw new IllegalArgumentException("maxAttempts must be at least 1");
+            }
+            this.maxAttempts = maxAttempts;
+            return this;
+        }
+
+        /**
+         * Sets the delay before the first retry.
+         */
+        public Builder setInitialDelay(long delay, TimeUnit unit) {
+            if (delay < 0) {
+                throw new IllegalArgumentException("delay must not be negative");
+            }
+            this.initialDelayNanos = unit.toNanos(delay);
+            return this;
+        }
+
+        /**
+         * Sets the largest delay between two attempts.
+         */
+        public Builder setMaxDelay(long delay, TimeUnit unit) {
+            if (delay < 0) {
+                throw new IllegalArgumentException("delay must not be negative");
+            }
+            this.maxDelayNanos = unit.toNanos(delay);
+            return this;
+        }
+
+        /**
+         * Sets the amount the delay is multiplied by after each attempt. Must be at least 1.
+         */
+        public Builder setMultiplier(double multiplier) {
+            if (multiplier < 1) {
+                throw new IllegalArgumentException("multiplier must be at least 1");
+            }
+            this.multiplier = multiplier;
+            return this;
+        }
+
+        /**
+         * Sets the largest fraction, between 0 and 1, that each delay can be randomly reduced by.
+         */
+        public Builder setJitter(double jitter) {
+            if (jitter < 0 || jitter > 1) {
+                throw new IllegalArgumentException("jitter must be between 0 and 1");
+            }
+            this.jitter = jitter;
+            return this;
+        }
+
+        /**
+         * Sets which failures should be retried, for example {@link #DATABASE_LOCKED}.
+         */
+        public Builder setRetryCondition(RetryCondition retryCondition) {
+            if (retryCondition == null) {
+                throw new IllegalArgumentException("retryCondition == null");
+            }
+            this.retryCondition = retryCondition;
+            return this;
+        }
+
+        public RetryPolicy build() {
+            if (maxDelayNanos < initialDelayNanos) {
+                throw new IllegalArgumentException("maxDelay must not be less than initialDelay");
+            }
+            return new RetryPolicy(this);
+        }
+    }
+}
@@ -0,0 +1,73 @@
+package com.scholefield.lee.androidtemplate.usecase;
+
+import java.util.List;
+
+/**
+ * A variant of {@link UseCase} that returns its results in chunks rather than as a single {@code ResponseValue}. This allows
+ * the caller to display the first results of a large query while the rest are still loading.
+ *
+ * Like a {@link UseCase}, a StreamingUseCase holds no per-execution state, so one instance can serve concurrent executions.
+ *
+ * Subclasses should call {@link StreamCallback#onNext} for each chunk of results as soon as it is available, and then call
+ * either {@link StreamCallback#onComplete()} or {@link StreamCallback#onError} exactly once.
+ *
+ * When executed via {@link UseCaseHandler#executeStreaming} the chunks are passed to the caller through the
+ * {@link UseCaseScheduler}. If the caller has not yet received the previous chunk, any new chunks are appended to it so
+ * a fast producer never floods the UI thread with updates.
+ *
+ * @param <Q> RequestValues for the UseCase.
+ * @param <C> type of each item in a chunk.
+ */
+public abstract class StreamingUseCase<Q extends UseCase.RequestValues, C> {
+
+    /**
+     * Executes the {@code StreamingUseCase}.
+     *
+     * @param requestValues {@code RequestValues} for this execution.
+     * @param callback callback used to communicate with the calling thread.
+     */
+    public final void run(Q requestValues, StreamCallback<C> callback) {
+        executeUseCase(requestValues, callback);
+    }
+
+    /**
+     * Subclasses must override this to provide implementation details.
+     *
+     * @param requestValues {@code RequestValues} for this execution.
+     * @param callback callback for this execution.
+     */
+    protected abstract void executeUseCase(Q requestValues, StreamCallback<C> callback);
+
+    /**
+     * Returns the kind of work this UseCase mostly does. See {@link UseCase#getAffinity()}.
+     */
+    public UseCase.Affinity getAffinity() {
+        return UseCase.Affinity.CPU;
+    }
+
+    /**
+     * Used to communicate each chunk of results back to the caller.
+     *
+     * @param <C> type of each item in a chunk.
+     */
+    public interface StreamCallback<C> {
+
+        /**
+         * Called with the next chunk of results.
+         */
+        void onNext(List<C> chunk);
+
+        /**
+         * Called once all chunks have been passed to {@link #onNext}.
+         */
+        void onComplete();
+
+        /**
+         * Called if the {@code StreamingUseCase} fails. Any chunks passed to {@link #onNext} before the failure will
+         * already have been delivered.
+         *
+         * @param error cause of the failure. See {@link UseCase.UseCaseCallback#onError}.
+         */
+        void onError(Throwable error);
+    }
+}
@@ -0,0 +1,83 @@
+package com.scholefield.lee.androidtemplate.usecase;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Controls when a UseCase passed to {@link UseCaseHandler#execute(String, Submission, UseCase, UseCase.RequestValues,
+ * UseCase.UseCaseCallback)} is run, relative to the other UseCases submitted on the same channel.
+ *
+ * Whatever the mode, only the most recent submission on a channel is ever passed to its callback. Older submissions that
+ * are still waiting are dropped before they reach the {@link UseCaseScheduler}, and the results of any that are already
+ * running are discarded.
+ *
+ * Example, for a search box that fires on every keystroke:
+ * <pre>
+ *     {@code
+ *     private static final Submission SEARCH = Submission.debounce(300, TimeUnit.MILLISECONDS);
+ *
+ *     public void onQueryChanged(String query) {
+ *         useCaseHandler.execute("search", SEARCH, searchUseCase, new SearchRequest(query), callback);
+ *     }
+ *     }
+ * </pre>
+ */
+public final class Submission {
+
+    enum Mode {
+        LATEST_ONLY,
+        DEBOUNCE,
+        THROTTLE
+    }
+
+    private static final Submission LATEST_ONLY = new Submission(Mode.LATEST_ONLY, 0);
+
+    private final Mode mode;
+
+    private final long intervalNanos;
+
+    private Submission(Mode mode, long intervalNanos) {
+        this.mode = mode;
+        this.intervalNanos = intervalNanos;
+    }
+
+    /**
+     * Runs each UseCase straight away, dropping the result of any earlier submission that has not yet been delivered.
+     */
+    public static Submission latestOnly() {
+        return LATEST_ONLY;
+    }
+
+    /**
+     * Only runs a UseCase once no other UseCase has been submitted on the channel for {@code delay}. A steady stream of
+     * submissions, such as typing, runs a single UseCase once it pauses.
+     */
+    public static Submission debounce(long delay, TimeUnit unit) {
+        return new Submission(Mode.DEBOUNCE, toNanos(delay, unit));
+    }
+
+    /**
+     * Runs a UseCase straight away, then runs at most one more per {@code interval}. Anything submitted during the
+     * interval is run once it has elapsed, and only the most recent of those submissions is run.
+     */
+    public static Submission throttle(long interval, TimeUnit unit) {
+        return new Submission(Mode.THROTTLE, toNanos(interval, unit));
+    }
+
+    private static long toNanos(long duration, TimeUnit unit) {
+        if (unit == null) {
+            throw new IllegalArgumentException("unit == null");
+        }
+        if (duration <= 0) {
+            throw new IllegalArgumentException("duration <= 0");
+        }
+        return unit.toNanos(duration);
+    }
+
+    Mode getMode() {
+        return mode;
+    }
+
+    long getIntervalNanos() {
+        return intervalNanos;
+    }
+}
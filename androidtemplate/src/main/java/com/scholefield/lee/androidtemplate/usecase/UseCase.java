@@ -1,52 +1,63 @@
 package com.scholefield.lee.androidtemplate.usecase;
 
 /**
- * The base class for a new {@code UseCase}. When instantiating a new UseCase the caller must set the {@link RequestValues}
- * via {@link #setRequestValues}. If the caller expects a response it must also set a {@link UseCaseCallback} via
- * {@link #setUseCaseCallback}.
+ * The base class for a new {@code UseCase}. The {@link RequestValues} and the {@link UseCaseCallback} for an execution are
+ * passed to {@link #run} rather than stored on the UseCase, so a UseCase holds no per-execution state and a single instance
+ * can be executed any number of times, including concurrently.
  *
  * A Use Case acts as an interface between the domain layer and the application. They are used to define all of the operations that
  * the presenter can perform.
  *
  * Since the execution of a {@code UseCase} will be handled by a separate thread it is best to avoid relying on mutable objects
- * or un-thread-safe classes.
+ * or un-thread-safe classes. Any fields a subclass declares are shared by every execution, so they should be immutable
+ * dependencies such as a data accessor.
  */
 public abstract class UseCase<Q extends UseCase.RequestValues, P extends UseCase.ResponseValue> {
 
-    private Q requestValues;
-
-    private UseCaseCallback<P> useCaseCallback;
-
-    public void setRequestValues(Q requestValues) {
-        this.requestValues = requestValues;
-    }
-
-    public Q getRequestValues() {
-        return requestValues;
-    }
-
-    public UseCaseCallback<P> getUseCaseCallback() {
-        return useCaseCallback;
+    /**
+     * Executes the {@code UseCase}.
+     *
+     * @param requestValues {@code RequestValues} for this execution.
+     * @param callback callback used to communicate with the calling thread. Must be called exactly once per execution.
+     */
+    public final void run(Q requestValues, UseCaseCallback<P> callback) {
+        executeUseCase(requestValues, callback);
     }
 
     /**
-     * @param callback callback used to communicate with calling thread.
+     * Subclasses must override this to provide implementation details.
+     *
+     * @param requestValues {@code RequestValues} for this execution.
+     * @param callback callback for this execution. Must be called exactly once, either before this returns or later from
+     *                 another thread.
      */
-    public void setUseCaseCallback(UseCaseCallback<P> callback) {
-        this.useCaseCallback = callback;
-    }
+    protected abstract void executeUseCase(Q requestValues, UseCaseCallback<P> callback);
 
     /**
-     * Executes the {@code UseCase}.
+     * Returns the kind of work this UseCase mostly does, which a {@link UseCaseScheduler} can use to pick the threads it
+     * runs on. By default this returns {@link Affinity#CPU}; UseCases that spend most of their time blocked, for example on
+     * SQLite or the network, should return {@link Affinity#IO}.
      */
-    public final void run() {
-        executeUseCase(requestValues);
+    public Affinity getAffinity() {
+        return Affinity.CPU;
     }
 
     /**
-     * Subclasses must override this to provide implementation details.
+     * The kind of work a UseCase does.
      */
-    protected abstract void executeUseCase(Q requestValues);
+    public enum Affinity {
+
+        /**
+         * Mostly computation. These should run on a small number of threads, roughly one per processor.
+         */
+        CPU,
+
+        /**
+         * Mostly waiting on blocking calls such as disk or network access. These should run on separate threads so that
+         * while they wait they do not stop {@link #CPU} UseCases from running.
+         */
+        IO
+    }
 
     /**
      * Used to wrap additional options for the returned {@code ResponseValue}. For example, you could pass a Utility class
@@ -67,6 +78,18 @@ public abstract class UseCase<Q extends UseCase.RequestValues, P extends UseCase
      */
     public interface UseCaseCallback<R> {
         void onSuccess(R response);
-        void onError();
+
+        /**
+         * Called when the UseCase fails. The type of {@code error} tells the caller what went wrong so it can decide how
+         * to recover, for example:
+         * <ul>
+         *     <li>{@link java.util.concurrent.RejectedExecutionException}: the scheduler was too busy to run a retry.</li>
+         *     <li>{@link CircuitOpenException}: the UseCase was not run because it has been failing repeatedly.</li>
+         *     <li>{@link android.database.SQLException}: the database could not be read or written.</li>
+         * </ul>
+         *
+         * @param error cause of the failure. Should never be {@code null}.
+         */
+        void onError(Throwable error);
     }
 }
\ No newline at end of file
@@ -1,5 +1,7 @@
 package com.scholefield.lee.androidtemplate.usecase;
 
+import java.util.concurrent.TimeUnit;
+
 /**
  * This class is responsible for executing a {@link UseCase}.
  */
@@ -7,4 +9,32 @@ public interface UseCaseHandler {
 
     <V extends UseCase.RequestValues, R extends UseCase.ResponseValue> void execute(
             final UseCase<V, R> useCase, V values, UseCase.UseCaseCallback<R> callback);
+
+    /**
+     * Executes the {@code useCase} on the given {@code channel}, which is any name the caller chooses. Each submission on
+     * a channel supersedes the previous one, and {@code submission} decides when the UseCase is actually run. See
+     * {@link Submission}.
+     */
+    <V extends UseCase.RequestValues, R extends UseCase.ResponseValue> void execute(
+            String channel, Submission submission, UseCase<V, R> useCase, V values, UseCase.UseCaseCallback<R> callback);
+
+    <V extends UseCase.RequestValues, C> void executeStreaming(
+            final StreamingUseCase<V, C> useCase, V values, StreamingUseCase.StreamCallback<C> callback);
+
+    /**
+     * Starts the threads UseCases run on ahead of time, so the first UseCase does not have to wait for one to be created.
+     */
+    void warmUp();
+
+    /**
+     * Stops executing new UseCases. UseCases that have already been accepted still run and have their results delivered.
+     */
+    void shutdown();
+
+    /**
+     * Blocks until every UseCase accepted before {@link #shutdown()} has finished running, or the {@code timeout} elapses.
+     *
+     * @return {@code true} if every UseCase finished.
+     */
+    boolean awaitDrain(long timeout, TimeUnit unit) throws InterruptedException;
 }
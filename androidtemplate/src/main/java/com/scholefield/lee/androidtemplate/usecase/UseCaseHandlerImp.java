@@ -1,13 +1,28 @@
 package com.scholefield.lee.androidtemplate.usecase;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
 /**
  * This is responsible for executing {@link UseCase}s via a {@link UseCaseScheduler}.
  *
- * todo need some way to attach a callback to active use cases in-case of orientation change.
+ * To stop a result being delivered to a view that is being recreated after an orientation change, bind the callback to
+ * the presenter via {@link com.scholefield.lee.androidtemplate.ui.PresenterManager#bindCallback} before passing it to
+ * {@link #execute}.
  */
 public class UseCaseHandlerImp implements UseCaseHandler {
 
-    private static UseCaseHandlerImp INSTANCE;
+    /**
+     * Maximum number of finished {@link ExecutionTask}s kept for reuse. Any tasks over this are left to the garbage
+     * collector, so this only needs to cover the number of UseCases that are normally in flight at once.
+     */
+    private static final int MAX_POOLED_TASKS = 16;
 
     /**
      * Handles thread execution and communication with the UI.
@@ -15,24 +30,93 @@ public class UseCaseHandlerImp implements UseCaseHandler {
     private final UseCaseScheduler scheduler;
 
     /**
-     * Package-private constructor for testing. Use {@link #getInstance()} to get a reference.
+     * Records how long each UseCase class spends queued, executing and waiting for its callback to be delivered.
+     */
+    private final UseCaseMetrics metrics;
+
+    /**
+     * {@link RetryPolicy} for each UseCase class that should be retried when it fails.
+     */
+    private final Map<Class<?>, RetryPolicy> retryPolicies;
+
+    /**
+     * {@link CircuitBreaker} for each UseCase class that should stop being executed when it keeps failing.
+     */
+    private final Map<Class<?>, CircuitBreaker> circuitBreakers;
+
+    /**
+     * Stores the results of UseCases that do not need to be run again for the same {@code RequestValues}. May be
+     * {@code null}.
+     */
+    private final UseCaseResultCache resultCache;
+
+    /**
+     * {@link ExecutionTask}s that have finished and can be reused, so that executing a UseCase does not allocate a new
+     * task once the pool has filled up. Guarded by itself.
+     */
+    private final ExecutionTask[] taskPool = new ExecutionTask[MAX_POOLED_TASKS];
+
+    /**
+     * Number of tasks in the {@link #taskPool}. Guarded by {@code taskPool}.
+     */
+    private int pooledTasks = 0;
+
+    /**
+     * Every channel passed to {@link #execute(String, Submission, UseCase, UseCase.RequestValues, UseCase.UseCaseCallback)},
+     * by name. Guarded by itself.
+     */
+    private final Map<String, Channel> channels = new HashMap<>();
+
+    /**
+     * Package-private constructor for testing. Use {@link #getInstance()} to get a reference, or a {@link Builder} to
+     * create a handler with a different {@link UseCaseScheduler}.
      */
     UseCaseHandlerImp(UseCaseScheduler scheduler) {
+        this(scheduler, new UseCaseMetrics(), Collections.<Class<?>, RetryPolicy>emptyMap(),
+                Collections.<Class<?>, CircuitBreaker>emptyMap(), null);
+    }
+
+    private UseCaseHandlerImp(UseCaseScheduler scheduler, UseCaseMetrics metrics,
+                              Map<Class<?>, RetryPolicy> retryPolicies, Map<Class<?>, CircuitBreaker> circuitBreakers,
+                              UseCaseResultCache resultCache) {
         this.scheduler = scheduler;
+        this.metrics = metrics;
+        this.retryPolicies = retryPolicies;
+        this.circuitBreakers = circuitBreakers;
+        this.resultCache = resultCache;
     }
 
     /**
-     * Gets the singleton class reference.
+     * Gets the singleton class reference. This uses a {@link UseCaseThreadPoolScheduler}.
+     *
+     * This is safe to call from any thread. The instance is created the first time this is called and is never locked on.
      */
     public static UseCaseHandlerImp getInstance() {
-        if (INSTANCE == null) {
-            INSTANCE = new UseCaseHandlerImp(new UseCaseThreadPoolScheduler());
-        }
-        return INSTANCE;
+        return InstanceHolder.INSTANCE;
     }
 
     /**
-     * Executes the {@link UseCase#run()} method.
+     * Holds the singleton instance. The JVM guarantees this class is initialised exactly once, the first time
+     * {@link #getInstance()} is called, so only one scheduler (and thread pool) is ever created.
+     */
+    private static final class InstanceHolder {
+        static final UseCaseHandlerImp INSTANCE = new Builder().build();
+    }
+
+    /**
+     * Executes the {@link UseCase#run} method. The {@code values} and {@code callback} are carried by the task passed to the
+     * {@link UseCaseScheduler} rather than stored on the {@code useCase}, so the same instance can be executed any number
+     * of times concurrently.
+     *
+     * If a {@link RetryPolicy} has been registered for the UseCase class, a failed execution is retried after a delay and
+     * {@link UseCase.UseCaseCallback#onError} is only passed to the {@code callback} once the policy gives up. If a
+     * {@link CircuitBreaker} has been registered and is open, the UseCase is not run and a {@link CircuitOpenException} is
+     * passed to {@code onError} straight away.
+     *
+     * Any {@link RuntimeException} thrown by the UseCase is caught and passed to {@code onError}.
+     *
+     * If the UseCase class is cached by the {@link UseCaseResultCache} and a result is stored for {@code values}, the
+     * UseCase is not run and the stored result is passed to {@code onSuccess} via the {@link UseCaseScheduler}.
      *
      * @param useCase {@link UseCase} to execute.
      * @param values {@code UseCase.RequestValues} for the specific use case.
@@ -42,18 +126,189 @@ public class UseCaseHandlerImp implements UseCaseHandler {
      */
     @Override
     public <V extends UseCase.RequestValues, R extends UseCase.ResponseValue> void execute(
-            final UseCase<V,R> useCase, V values, UseCase.UseCaseCallback<R> callback) {
+            UseCase<V,R> useCase, V values, UseCase.UseCaseCallback<R> callback) {
+
+        startTask(prepareTask(useCase, values, callback));
+    }
+
+    /**
+     * Executes the {@code useCase} in the same way as {@link #execute(UseCase, UseCase.RequestValues,
+     * UseCase.UseCaseCallback)}, except that it may be held back or dropped according to the {@link Submission}. Only the
+     * result of the most recent submission on the {@code channel} is passed to its callback; the callbacks of superseded
+     * submissions are never called.
+     *
+     * A channel is kept for as long as this handler, so channel names should come from a fixed set rather than, for
+     * example, the request values. Each channel should always be used with the same {@code Submission}.
+     *
+     * @param channel name of the channel, chosen by the caller.
+     * @param submission decides when the UseCase is run.
+     * @param useCase {@link UseCase} to execute.
+     * @param values {@code UseCase.RequestValues} for the specific use case.
+     * @param callback to the caller.
+     * @throws RejectedExecutionException if the UseCase should be run straight away and the scheduler cannot accept it.
+     *                                    A UseCase that is held back is instead failed with this exception.
+     */
+    @Override
+    public <V extends UseCase.RequestValues, R extends UseCase.ResponseValue> void execute(
+            String channel, Submission submission, UseCase<V, R> useCase, V values, UseCase.UseCaseCallback<R> callback) {
+        if (channel == null) {
+            throw new IllegalArgumentException("channel == null");
+        }
+        if (submission == null) {
+            throw new IllegalArgumentException("submission == null");
+        }
 
-        useCase.setRequestValues(values);
-        // wrap the callback to intercept calls.
-        useCase.setUseCaseCallback(new UiCallbackWrapper<>(callback, this));
+        channelFor(channel).submit(prepareTask(useCase, values, callback), submission);
+    }
 
-        scheduler.execute(new Runnable() {
+    /**
+     * Executes the {@link StreamingUseCase#run} method. Each chunk is passed to the {@code callback} via the
+     * {@link UseCaseScheduler}. Any {@link RuntimeException} thrown by the UseCase is caught and passed to
+     * {@link StreamingUseCase.StreamCallback#onError}.
+     *
+     * @param useCase {@link StreamingUseCase} to execute.
+     * @param values {@code UseCase.RequestValues} for the specific use case.
+     * @param callback to the caller.
+     * @param <V> {@code RequestValues} for the {@code StreamingUseCase}.
+     * @param <C> type of each item in a chunk.
+     */
+    @Override
+    public <V extends UseCase.RequestValues, C> void executeStreaming(
+            final StreamingUseCase<V, C> useCase, final V values, StreamingUseCase.StreamCallback<C> callback) {
+
+        final UseCaseMetrics.Recorder recorder = metrics.recorderFor(useCase.getClass());
+        final StreamCallbackWrapper<C> wrapper = new StreamCallbackWrapper<>(callback, this);
+
+        dispatch(new Runnable() {
             @Override
             public void run() {
-                useCase.run();
+                try {
+                    useCase.run(values, wrapper);
+                } catch (RuntimeException e) {
+                    recorder.errors.incrementAndGet();
+                    wrapper.onError(e);
+                }
+            }
+        }, useCase.getAffinity(), recorder);
+    }
+
+    /**
+     * Returns an {@link ExecutionTask} for the given execution that has not yet been started.
+     */
+    private ExecutionTask prepareTask(UseCase<?, ?> useCase, UseCase.RequestValues values,
+                                      UseCase.UseCaseCallback<?> callback) {
+        Class<?> useCaseClass = useCase.getClass();
+        ExecutionTask task = obtainTask();
+        task.init(useCase, values, callback, metrics.recorderFor(useCaseClass), retryPolicies.get(useCaseClass),
+                circuitBreakers.get(useCaseClass));
+
+        if (resultCache != null && resultCache.isCached(useCaseClass)) {
+            task.resultCache = resultCache;
+        }
+        return task;
+    }
+
+    /**
+     * Starts the {@code task}, returning it to the pool if the {@link UseCaseScheduler} rejects it.
+     *
+     * @throws RejectedExecutionException if the scheduler cannot accept the task.
+     */
+    private void startTask(ExecutionTask task) {
+        try {
+            task.start();
+        } catch (RejectedExecutionException e) {
+            recycleTask(task);
+            throw e;
+        }
+    }
+
+    /**
+     * Returns the {@link Channel} with the given {@code name}, creating it if this is its first submission.
+     */
+    private Channel channelFor(String name) {
+        synchronized (channels) {
+            Channel channel = channels.get(name);
+            if (channel == null) {
+                channel = new Channel(this);
+                channels.put(name, channel);
             }
-        });
+            return channel;
+        }
+    }
+
+    /**
+     * Returns the current time in nanoseconds, according to the {@link UseCaseScheduler}. Package-private so it can be
+     * overridden for testing.
+     */
+    long now() {
+        return scheduler.now();
+    }
+
+    /**
+     * Passes the {@code task} to the {@link UseCaseScheduler}, recording how long it waits in the queue and how long it
+     * takes to run.
+     *
+     * @throws RejectedExecutionException if the scheduler cannot accept the task.
+     */
+    private void dispatch(final Runnable task, UseCase.Affinity affinity, final UseCaseMetrics.Recorder recorder) {
+        final long queuedAt = now();
+
+        try {
+            scheduler.execute(new Runnable() {
+                @Override
+                public void run() {
+                    long startedAt = now();
+                    recorder.queueWait.record(startedAt - queuedAt);
+
+                    try {
+                        task.run();
+                    } finally {
+                        recorder.execution.record(now() - startedAt);
+                    }
+                }
+            }, affinity);
+        } catch (RejectedExecutionException e) {
+            recorder.rejections.incrementAndGet();
+            throw e;
+        }
+    }
+
+    /**
+     * Returns an {@link ExecutionTask} from the pool, or a new one if the pool is empty.
+     */
+    private ExecutionTask obtainTask() {
+        synchronized (taskPool) {
+            if (pooledTasks > 0) {
+                ExecutionTask task = taskPool[--pooledTasks];
+                taskPool[pooledTasks] = null;
+                return task;
+            }
+        }
+        return new ExecutionTask(this);
+    }
+
+    /**
+     * Returns the {@code task} to the pool so it can be used by a later execution. The task must not be used by the caller
+     * afterwards.
+     */
+    private void recycleTask(ExecutionTask task) {
+        task.clear();
+        synchronized (taskPool) {
+            if (pooledTasks < taskPool.length) {
+                taskPool[pooledTasks++] = task;
+            }
+        }
+    }
+
+    /**
+     * Returns the number of {@link ExecutionTask}s waiting to be reused.
+     *
+     * Used for testing.
+     */
+    int getPooledTaskCount() {
+        synchronized (taskPool) {
+            return pooledTasks;
+        }
     }
 
     /**
@@ -69,50 +324,817 @@ public class UseCaseHandlerImp implements UseCaseHandler {
 
     /**
      * Notify the {@link UseCaseScheduler} that the {@code UseCase} encountered an error during execution. This will then call
-     * {@link UseCase.UseCaseCallback#onError()} on the UI thread.
+     * {@link UseCase.UseCaseCallback#onError} on the UI thread.
      *
+     * @param error cause of the error.
      * @param callback the callback passed to the {@link UseCaseHandlerImp#execute} method.
      */
-    <V extends UseCase.ResponseValue> void notifyError(final UseCase.UseCaseCallback<V> callback) {
-        scheduler.onError(callback);
+    <V extends UseCase.ResponseValue> void notifyError(final Throwable error, final UseCase.UseCaseCallback<V> callback) {
+        scheduler.onError(error, callback);
+    }
+
+    /**
+     * Returns the {@link UseCaseMetrics} recorded for every UseCase executed by this handler.
+     *
+     * Example:
+     * <pre>
+     *     {@code
+     *     for (UseCaseMetrics.Snapshot snapshot : UseCaseHandlerImp.getInstance().getMetrics().snapshot()) {
+     *         Log.i(TAG, snapshot.toString());
+     *     }
+     *     }
+     * </pre>
+     */
+    public UseCaseMetrics getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * Calls {@link UseCaseScheduler#prestart()}. This trades a few idle threads for a faster first UseCase, so it is best
+     * called just before the threads are needed, for example when a screen that loads data is opened.
+     */
+    @Override
+    public void warmUp() {
+        scheduler.prestart();
+    }
+
+    /**
+     * Shuts down the {@link UseCaseScheduler}. Any UseCase executed afterwards, including a retry or a submission held
+     * back on a channel, fails with a {@link RejectedExecutionException}. Since the singleton returned by
+     * {@link #getInstance()} cannot be replaced, it should only be shut down when the process is finishing.
+     */
+    @Override
+    public void shutdown() {
+        scheduler.shutdown();
+    }
+
+    /**
+     * Waits for the {@link UseCaseScheduler} to finish the UseCases accepted before {@link #shutdown()}. Results are still
+     * delivered to the UI thread afterwards, so this should not be called from the UI thread.
+     */
+    @Override
+    public boolean awaitDrain(long timeout, TimeUnit unit) throws InterruptedException {
+        return scheduler.awaitDrain(timeout, unit);
+    }
+
+    /**
+     * Returns the {@link UseCaseScheduler} used to execute UseCases. This can be passed to {@link UseCasePipeline#fanOut}
+     * so the branches of a pipeline share the same threads.
+     */
+    public UseCaseScheduler getScheduler() {
+        return scheduler;
+    }
+
+    /**
+     * Creates a new {@code UseCaseHandlerImp}. Any {@link UseCaseScheduler} implementation can be used, for example a
+     * {@link ForkJoinUseCaseScheduler} for many short UseCases, or a {@link DirectUseCaseScheduler} for tests.
+     *
+     * Example:
+     * <pre>
+     *     {@code
+     *     UseCaseHandler handler = new UseCaseHandlerImp.Builder()
+     *             .setScheduler(new ForkJoinUseCaseScheduler())
+     *             .build();
+     *     }
+     * </pre>
+     */
+    public static class Builder {
+
+        private UseCaseScheduler scheduler;
+
+        private UseCaseMetrics metrics;
+
+        private UseCaseResultCache resultCache;
+
+        private final Map<Class<?>, RetryPolicy> retryPolicies = new HashMap<>();
+
+        private final Map<Class<?>, CircuitBreaker> circuitBreakers = new HashMap<>();
+
+        /**
+         * Sets the {@link UseCaseScheduler} used to execute UseCases. If this is not set a new
+         * {@link UseCaseThreadPoolScheduler} will be created.
+         */
+        public Builder setScheduler(UseCaseScheduler scheduler) {
+            if (scheduler == null) {
+                throw new IllegalArgumentException("scheduler == null");
+            }
+            this.scheduler = scheduler;
+            return this;
+        }
+
+        /**
+         * Sets the {@link UseCaseMetrics} the handler records to. This allows several handlers to share the same metrics.
+         * If this is not set a new instance will be created.
+         */
+        public Builder setMetrics(UseCaseMetrics metrics) {
+            if (metrics == null) {
+                throw new IllegalArgumentException("metrics == null");
+            }
+            this.metrics = metrics;
+            return this;
+        }
+
+        /**
+         * Retries every {@code useCaseClass} UseCase that fails according to the given {@link RetryPolicy}. Only the
+         * exact class is matched, not its subclasses.
+         */
+        public Builder setRetryPolicy(Class<? extends UseCase> useCaseClass, RetryPolicy retryPolicy) {
+            if (useCaseClass == null) {
+                throw new IllegalArgumentException("useCaseClass == null");
+            }
+            if (retryPolicy == null) {
+                throw new IllegalArgumentException("retryPolicy == null");
+            }
+            retryPolicies.put(useCaseClass, retryPolicy);
+            return this;
+        }
+
+        /**
+         * Guards every {@code useCaseClass} UseCase with the given {@link CircuitBreaker}. Only the exact class is
+         * matched, not its subclasses.
+         */
+        public Builder setCircuitBreaker(Class<? extends UseCase> useCaseClass, CircuitBreaker circuitBreaker) {
+            if (useCaseClass == null) {
+                throw new IllegalArgumentException("useCaseClass == null");
+            }
+            if (circuitBreaker == null) {
+                throw new IllegalArgumentException("circuitBreaker == null");
+            }
+            circuitBreakers.put(useCaseClass, circuitBreaker);
+            return this;
+        }
+
+        /**
+         * Sets the {@link UseCaseResultCache} used to avoid running UseCases whose result is already known. If this is not
+         * set every UseCase is always run.
+         */
+        public Builder setResultCache(UseCaseResultCache resultCache) {
+            if (resultCache == null) {
+                throw new IllegalArgumentException("resultCache == null");
+            }
+            this.resultCache = resultCache;
+            return this;
+        }
+
+        public UseCaseHandlerImp build() {
+            UseCaseScheduler useCaseScheduler = scheduler;
+            if (useCaseScheduler == null) {
+                useCaseScheduler = new UseCaseThreadPoolScheduler();
+            }
+            UseCaseMetrics useCaseMetrics = metrics;
+            if (useCaseMetrics == null) {
+                useCaseMetrics = new UseCaseMetrics();
+            }
+            return new UseCaseHandlerImp(useCaseScheduler, useCaseMetrics,
+                    Collections.unmodifiableMap(new HashMap<>(retryPolicies)),
+                    Collections.unmodifiableMap(new HashMap<>(circuitBreakers)), resultCache);
+        }
     }
 
     /**
-     * Passed to the {@link UseCase#setUseCaseCallback} method. This intercepts {@link UseCase.UseCaseCallback} calls from the
-     * {@code UseCase} internal implementation and passes them to {@link #notifyResponse} or {@link #notifyError}.
+     * Carries a single execution of a {@link UseCase} from {@link #execute} to the caller's callback.
+     *
+     * The same object is passed to {@link UseCaseScheduler#execute} to run the UseCase, passed to
+     * {@link UseCaseScheduler#post} to deliver the result to the caller, and passed to {@link UseCaseScheduler#schedule}
+     * to retry the UseCase. {@link #state} records which of these {@link #run()} should do. Once the result has been
+     * delivered the task is returned to the handler's pool, so in the steady state the only object the handler allocates
+     * to execute a UseCase is the {@link AttemptCallback} passed to it. The {@link UseCaseScheduler} may allocate as well,
+     * for example the queue node each IO UseCase takes in {@link UseCaseThreadPoolScheduler}.
+     *
+     * The task itself is never handed to the UseCase, since a UseCase that calls back more than once, or after its task
+     * has been reused, would otherwise change another execution. Each attempt instead gets its own
+     * {@link AttemptCallback}, and only the first call made on the callback of the current attempt is used.
+     *
+     * A task is only ever used by one thread at a time, and is handed between threads by the {@link UseCaseScheduler},
+     * which makes its fields visible to the next thread.
+     *
+     * A task submitted on a {@link Channel} checks before running the UseCase, and again before calling back, whether a
+     * newer task has been submitted on the same channel. If one has, this task is returned to the pool without doing
+     * anything else.
      */
-    private static final class UiCallbackWrapper<V extends UseCase.ResponseValue> implements
-            UseCase.UseCaseCallback<V> {
+    private static final class ExecutionTask implements Runnable {
+
+        private static final int EXECUTE = 0;
+
+        private static final int RETRY = 1;
+
+        private static final int DELIVER_SUCCESS = 2;
+
+        private static final int DELIVER_ERROR = 3;
+
+        private final UseCaseHandlerImp handler;
+
+        private UseCase<UseCase.RequestValues, UseCase.ResponseValue> useCase;
+
+        private UseCase.RequestValues values;
 
         /**
          * The actual {@code UseCaseCallback} created by the {@code UseCaseHandlerImp} caller.
          */
-        private final UseCase.UseCaseCallback<V> callback;
+        private UseCase.UseCaseCallback<UseCase.ResponseValue> callback;
+
+        private UseCaseMetrics.Recorder recorder;
+
+        /**
+         * May be {@code null}.
+         */
+        private RetryPolicy retryPolicy;
+
+        /**
+         * May be {@code null}.
+         */
+        private CircuitBreaker circuitBreaker;
+
+        /**
+         * Cache to store a successful response in, or {@code null} if it should not be stored.
+         */
+        private UseCaseResultCache resultCache;
+
+        /**
+         * Number of times the {@code UseCase} has been run.
+         */
+        private int attempts;
+
+        private int state;
+
+        /**
+         * Time the task was last passed to the {@link UseCaseScheduler}, used to record queue and delivery times.
+         */
+        private long handedOffAt;
+
+        private UseCase.ResponseValue response;
+
+        private Throwable error;
+
+        /**
+         * Channel this task was submitted on, or {@code null}.
+         */
+        private Channel channel;
+
+        /**
+         * Value of {@link Channel#generation} when this task was submitted.
+         */
+        private int generation;
+
+        /**
+         * Identifies the current attempt. Each {@link AttemptCallback} holds the value it was created with, and the first
+         * of them to call back moves this on, so any later call, from the same attempt or an older one, is ignored.
+         */
+        private final AtomicInteger attemptStamp = new AtomicInteger();
+
+        ExecutionTask(UseCaseHandlerImp handler) {
+            this.handler = handler;
+        }
+
+        @SuppressWarnings("unchecked") // the UseCase is only ever run with its own values and callback
+        void init(UseCase<?, ?> useCase, UseCase.RequestValues values, UseCase.UseCaseCallback<?> callback,
+                  UseCaseMetrics.Recorder recorder, RetryPolicy retryPolicy, CircuitBreaker circuitBreaker) {
+            this.useCase = (UseCase<UseCase.RequestValues, UseCase.ResponseValue>) useCase;
+            this.values = values;
+            this.callback = (UseCase.UseCaseCallback<UseCase.ResponseValue>) callback;
+            this.recorder = recorder;
+            this.retryPolicy = retryPolicy;
+            this.circuitBreaker = circuitBreaker;
+        }
+
+        /**
+         * Removes every reference to the previous execution.
+         */
+        void clear() {
+            useCase = null;
+            values = null;
+            callback = null;
+            recorder = null;
+            retryPolicy = null;
+            circuitBreaker = null;
+            resultCache = null;
+            attempts = 0;
+            response = null;
+            error = null;
+            channel = null;
+        }
+
+        /**
+         * Passes a result from the {@link #resultCache} to the caller if there is one, otherwise passes the first attempt
+         * to the {@link UseCaseScheduler}.
+         *
+         * @throws RejectedExecutionException if the scheduler cannot accept the task.
+         */
+        void start() {
+            if (resultCache != null) {
+                UseCase.ResponseValue cached = resultCache.get(useCase.getClass(), values, handler.now());
+                if (cached != null) {
+                    deliverCached(cached);
+                    return;
+                }
+            }
+            attempt();
+        }
+
+        /**
+         * Returns {@code true} if a newer task has been submitted on this task's {@link #channel}.
+         */
+        private boolean isSuperseded() {
+            return channel != null && channel.generation != generation;
+        }
+
+        /**
+         * Passes the next attempt to the {@link UseCaseScheduler}, or fails straight away if the circuit breaker is open.
+         *
+         * @throws RejectedExecutionException if the scheduler cannot accept the task.
+         */
+        void attempt() {
+            if (circuitBreaker != null && !circuitBreaker.allowExecution(handler.now())) {
+                recorder.errors.incrementAndGet();
+                deliver(DELIVER_ERROR, null, new CircuitOpenException(useCase.getClass()));
+                return;
+            }
+
+            attempts++;
+            state = EXECUTE;
+            handedOffAt = handler.now();
+            try {
+                handler.scheduler.execute(this, useCase.getAffinity());
+            } catch (RejectedExecutionException e) {
+                recorder.rejections.incrementAndGet();
+                if (circuitBreaker != null) {
+                    circuitBreaker.release();
+                }
+                throw e;
+            }
+        }
+
+        /**
+         * Passes a response taken from the {@link UseCaseResultCache} to the caller without running the UseCase.
+         */
+        void deliverCached(UseCase.ResponseValue cached) {
+            recorder.cacheHits.incrementAndGet();
+            deliver(DELIVER_SUCCESS, cached, null);
+        }
+
+        @Override
+        public void run() {
+            switch (state) {
+                case EXECUTE:
+                    runUseCase();
+                    break;
+                case RETRY:
+                    try {
+                        attempt();
+                    } catch (RejectedExecutionException e) {
+                        deliver(DELIVER_ERROR, null, e);
+                    }
+                    break;
+                default:
+                    notifyCaller();
+                    break;
+            }
+        }
+
+        /**
+         * Runs the UseCase on the worker thread.
+         */
+        private void runUseCase() {
+            if (isSuperseded()) {
+                // the circuit breaker allowed this attempt, so give it back as it will never run
+                if (circuitBreaker != null) {
+                    circuitBreaker.release();
+                }
+                handler.recycleTask(this);
+                return;
+            }
+
+            // the UseCase may call back on another thread, after which this task can be recycled, so only locals are
+            // used once it has been run.
+            UseCase<UseCase.RequestValues, UseCase.ResponseValue> current = useCase;
+            UseCase.RequestValues currentValues = values;
+            UseCaseMetrics.Recorder currentRecorder = recorder;
+            AttemptCallback callback = new AttemptCallback(this, attemptStamp.get());
+
+            long startedAt = handler.now();
+            currentRecorder.queueWait.record(startedAt - handedOffAt);
+
+            try {
+                current.run(currentValues, callback);
+            } catch (RuntimeException e) {
+                // ignored if the UseCase had already called back
+                callback.onError(e);
+            } finally {
+                currentRecorder.execution.record(handler.now() - startedAt);
+            }
+        }
+
+        /**
+         * Returns {@code true} if {@code stamp} identifies the current attempt and nothing has called back for it yet, in
+         * which case the caller now owns the result of the attempt.
+         */
+        boolean claimAttempt(int stamp) {
+            return attemptStamp.compareAndSet(stamp, stamp + 1);
+        }
+
+        /**
+         * Called with the result of the current attempt, once {@link #claimAttempt} has succeeded.
+         */
+        void onSuccess(UseCase.ResponseValue response) {
+            if (circuitBreaker != null) {
+                circuitBreaker.onSuccess();
+            }
+            if (resultCache != null) {
+                resultCache.put(useCase.getClass(), values, response, handler.now());
+            }
+            deliver(DELIVER_SUCCESS, response, null);
+        }
+
+        /**
+         * Called with the error of the current attempt, once {@link #claimAttempt} has succeeded.
+         */
+        void onError(Throwable error) {
+            recorder.errors.incrementAndGet();
+            if (circuitBreaker != null) {
+                circuitBreaker.onFailure(handler.now());
+            }
+
+            if (retryPolicy != null && retryPolicy.shouldRetry(attempts, error)) {
+                state = RETRY;
+                handler.scheduler.schedule(this, retryPolicy.getDelayNanos(attempts), TimeUnit.NANOSECONDS);
+            } else {
+                deliver(DELIVER_ERROR, null, error);
+            }
+        }
+
+        /**
+         * Asks the {@link UseCaseScheduler} to pass the result to the caller.
+         */
+        private void deliver(int state, UseCase.ResponseValue response, Throwable error) {
+            this.state = state;
+            this.response = response;
+            this.error = error;
+            handedOffAt = handler.now();
+            handler.scheduler.post(this);
+        }
+
+        /**
+         * Passes the result to the caller's callback and returns this task to the pool.
+         */
+        private void notifyCaller() {
+            recorder.delivery.record(handler.now() - handedOffAt);
+
+            UseCase.UseCaseCallback<UseCase.ResponseValue> currentCallback = callback;
+            boolean success = state == DELIVER_SUCCESS;
+            UseCase.ResponseValue currentResponse = response;
+            Throwable currentError = error;
+            boolean superseded = isSuperseded();
+
+            // recycle before calling back so a UseCase executed from the callback can reuse this task.
+            handler.recycleTask(this);
+
+            if (superseded) {
+                return;
+            }
+            if (success) {
+                currentCallback.onSuccess(currentResponse);
+            } else {
+                currentCallback.onError(currentError);
+            }
+        }
+    }
+
+    /**
+     * The callback passed to a UseCase for one attempt of an {@link ExecutionTask}. It only passes on the first call made
+     * on it, and only while its attempt is still the task's current one, so a UseCase that calls back twice, or after its
+     * task has moved on, cannot affect the task.
+     */
+    private static final class AttemptCallback implements UseCase.UseCaseCallback<UseCase.ResponseValue> {
+
+        private final ExecutionTask task;
+
+        private final int stamp;
+
+        AttemptCallback(ExecutionTask task, int stamp) {
+            this.task = task;
+            this.stamp = stamp;
+        }
+
+        @Override
+        public void onSuccess(UseCase.ResponseValue response) {
+            if (task.claimAttempt(stamp)) {
+                task.onSuccess(response);
+            }
+        }
+
+        @Override
+        public void onError(Throwable error) {
+            if (task.claimAttempt(stamp)) {
+                task.onError(error);
+            }
+        }
+    }
+
+    /**
+     * State of one channel passed to {@link #execute(String, Submission, UseCase, UseCase.RequestValues,
+     * UseCase.UseCaseCallback)}.
+     *
+     * A submission that is held back by a debounce or throttle waits here, and is simply replaced (and returned to the
+     * pool) by the next submission, so it never reaches the {@link UseCaseScheduler}. This is also the timer passed to
+     * {@link UseCaseScheduler#schedule} to start the waiting submission. Only one timer is scheduled at a time; a debounce
+     * that is pushed back by later submissions reschedules the timer when it fires rather than scheduling one per
+     * submission.
+     */
+    private static final class Channel implements Runnable {
 
         private final UseCaseHandlerImp handler;
 
         /**
-         * Package private constructor to avoid instantiation.
+         * Incremented by every submission, so a task whose generation no longer matches has been superseded. Only written
+         * while holding the lock on {@code this}.
+         */
+        volatile int generation = 0;
+
+        /**
+         * Submission waiting for the timer, or {@code null}. Guarded by {@code this}.
+         */
+        private ExecutionTask pending;
+
+        /**
+         * Mode the {@link #pending} task was submitted with. Guarded by {@code this}.
+         */
+        private Submission pendingSubmission;
+
+        /**
+         * Time the {@link #pending} task should be started. Guarded by {@code this}.
+         */
+        private long dueAt;
+
+        /**
+         * Time the current throttle interval ends. Guarded by {@code this}.
+         */
+        private long intervalEndsAt;
+
+        /**
+         * {@code true} if this has been passed to {@link UseCaseScheduler#schedule} and has not yet run. Guarded by
+         * {@code this}.
+         */
+        private boolean timerScheduled = false;
+
+        Channel(UseCaseHandlerImp handler) {
+            this.handler = handler;
+            this.intervalEndsAt = handler.now();
+        }
+
+        /**
+         * Supersedes any earlier submission and either starts the {@code task} or holds it back until it is due.
          *
-         * @param callback callback passed to {@link UseCaseHandlerImp#execute}
-         * @param handler {@code UseCaseHandlerImp} instance.
+         * @throws RejectedExecutionException if the task should start straight away and the scheduler cannot accept it.
+         */
+        void submit(ExecutionTask task, Submission submission) {
+            long now = handler.now();
+            boolean startNow = false;
+            boolean scheduleTimer = false;
+            long timerDelay = 0;
+            ExecutionTask superseded;
+
+            synchronized (this) {
+                task.channel = this;
+                task.generation = ++generation;
+                superseded = pending;
+                pending = null;
+                pendingSubmission = null;
+
+                switch (submission.getMode()) {
+                    case DEBOUNCE:
+                        dueAt = now + submission.getIntervalNanos();
+                        break;
+                    case THROTTLE:
+                        if (!timerScheduled && now - intervalEndsAt >= 0) {
+                            intervalEndsAt = now + submission.getIntervalNanos();
+                            startNow = true;
+                        } else {
+                            dueAt = intervalEndsAt;
+                        }
+                        break;
+                    default:
+                        startNow = true;
+                        break;
+                }
+
+                if (!startNow) {
+                    pending = task;
+                    pendingSubmission = submission;
+                    scheduleTimer = !timerScheduled;
+                    timerScheduled = true;
+                    timerDelay = dueAt - now;
+                }
+            }
+
+            if (superseded != null) {
+                handler.recycleTask(superseded);
+            }
+            if (scheduleTimer) {
+                handler.scheduler.schedule(this, timerDelay, TimeUnit.NANOSECONDS);
+            }
+            if (startNow) {
+                handler.startTask(task);
+            }
+        }
+
+        /**
+         * Called when the timer fires. Starts the waiting submission if it is due, otherwise reschedules the timer. If the
+         * waiting submission has been superseded by one that started straight away there is nothing left to do.
+         */
+        @Override
+        public void run() {
+            long now = handler.now();
+            ExecutionTask task = null;
+            long remaining;
+
+            synchronized (this) {
+                if (pending == null) {
+                    timerScheduled = false;
+                    pendingSubmission = null;
+                    return;
+                }
+
+                remaining = dueAt - now;
+                if (remaining <= 0) {
+                    task = pending;
+                    pending = null;
+                    timerScheduled = false;
+                    if (pendingSubmission.getMode() == Submission.Mode.THROTTLE) {
+                        intervalEndsAt = now + pendingSubmission.getIntervalNanos();
+                    }
+                    pendingSubmission = null;
+                }
+            }
+
+            if (task == null) {
+                handler.scheduler.schedule(this, remaining, TimeUnit.NANOSECONDS);
+                return;
+            }
+
+            try {
+                task.start();
+            } catch (RejectedExecutionException e) {
+                task.deliver(ExecutionTask.DELIVER_ERROR, null, e);
+            }
+        }
+    }
+
+    /**
+     * Passed to {@link StreamingUseCase#run} as the stream callback. This collects the chunks passed to {@link #onNext}
+     * and hands them to the {@link UseCaseScheduler} as a single batch.
+     *
+     * Only one batch is ever waiting to be delivered. Any chunks that arrive before the caller has received that batch are
+     * appended to it, so the number of messages sent to the UI thread depends on how quickly it can consume them rather
+     * than on how many chunks the {@code StreamingUseCase} produces.
+     */
+    private static final class StreamCallbackWrapper<C> implements StreamingUseCase.StreamCallback<C> {
+
+        /**
+         * The actual {@code StreamCallback} created by the {@code UseCaseHandlerImp} caller.
+         */
+        private final StreamingUseCase.StreamCallback<C> callback;
+
+        private final UseCaseHandlerImp handler;
+
+        /**
+         * Passed to the {@link UseCaseScheduler} to deliver the pending batch.
+         */
+        private final UseCase.UseCaseCallback<Drain> drain = new UseCase.UseCaseCallback<Drain>() {
+            @Override
+            public void onSuccess(Drain response) {
+                deliver();
+            }
+
+            @Override
+            public void onError(Throwable error) {
+                deliver();
+            }
+        };
+
+        /**
+         * Chunks that have not yet been passed to the {@link #callback}. Guarded by {@code this}.
+         */
+        private List<C> pending = new ArrayList<>();
+
+        /**
+         * {@code true} if a batch has been passed to the scheduler and has not yet been delivered. Guarded by {@code this}.
          */
-        UiCallbackWrapper(UseCase.UseCaseCallback<V> callback, UseCaseHandlerImp handler) {
+        private boolean drainScheduled = false;
+
+        private boolean completed = false;
+
+        /**
+         * Cause passed to {@link #onError}, or {@code null} if it has not been called. Guarded by {@code this}.
+         */
+        private Throwable error = null;
+
+        /**
+         * Set once {@code onComplete} or {@code onError} has been passed to the {@link #callback}. Only accessed on the
+         * callback thread.
+         */
+        private boolean terminated = false;
+
+        StreamCallbackWrapper(StreamingUseCase.StreamCallback<C> callback, UseCaseHandlerImp handler) {
             this.callback = callback;
             this.handler = handler;
         }
 
         @Override
-        public void onSuccess(V response) {
+        public void onNext(List<C> chunk) {
+            boolean schedule;
+            synchronized (this) {
+                if (completed || error != null) {
+                    return;
+                }
+                pending.addAll(chunk);
+                schedule = markDrainScheduled();
+            }
 
-            handler.notifyResponse(response, callback);
+            if (schedule) {
+                handler.notifyResponse(Drain.INSTANCE, drain);
+            }
         }
 
         @Override
-        public void onError() {
-            handler.notifyError(callback);
+        public void onComplete() {
+            boolean schedule;
+            synchronized (this) {
+                if (completed || error != null) {
+                    return;
+                }
+                completed = true;
+                schedule = markDrainScheduled();
+            }
+
+            if (schedule) {
+                handler.notifyResponse(Drain.INSTANCE, drain);
+            }
+        }
+
+        @Override
+        public void onError(Throwable error) {
+            boolean schedule;
+            synchronized (this) {
+                if (completed || this.error != null) {
+                    return;
+                }
+                this.error = error;
+                schedule = markDrainScheduled();
+            }
+
+            if (schedule) {
+                handler.notifyError(error, drain);
+            }
         }
 
+        /**
+         * Returns {@code true} if the caller should pass a new batch to the scheduler. Must hold the lock on {@code this}.
+         */
+        private boolean markDrainScheduled() {
+            if (drainScheduled) {
+                return false;
+            }
+            drainScheduled = true;
+            return true;
+        }
+
+        /**
+         * Passes every pending chunk, followed by any terminal event, to the {@link #callback}. Called on the callback thread.
+         */
+        private void deliver() {
+            List<C> batch;
+            boolean complete;
+            Throwable failure;
+            synchronized (this) {
+                batch = pending;
+                pending = new ArrayList<>();
+                drainScheduled = false;
+                complete = completed;
+                failure = error;
+            }
+
+            if (terminated) {
+                return;
+            }
+
+            if (!batch.isEmpty()) {
+                callback.onNext(batch);
+            }
+
+            if (failure != null) {
+                terminated = true;
+                callback.onError(failure);
+            } else if (complete) {
+                terminated = true;
+                callback.onComplete();
+            }
+        }
     }
 
+    /**
+     * Placeholder {@code ResponseValue} used to ask the {@link UseCaseScheduler} to deliver a batch of chunks.
+     */
+    private static final class Drain implements UseCase.ResponseValue {
+        static final Drain INSTANCE = new Drain();
+    }
 }
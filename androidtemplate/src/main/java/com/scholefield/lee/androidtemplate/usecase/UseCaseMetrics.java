@@ -0,0 +1,196 @@
+package com.scholefield.lee.androidtemplate.usecase;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Records how each {@link UseCase} class performs when executed via a {@link UseCaseHandlerImp}.
+ *
+ * For every UseCase class this records:
+ *      <STRONG>queue wait</STRONG>: time between {@link UseCaseHandler#execute} and the UseCase starting on a worker thread.
+ *      <STRONG>execution</STRONG>: time spent in {@link UseCase#run(UseCase.RequestValues, UseCase.UseCaseCallback)}.
+ *      <STRONG>delivery</STRONG>: time between the UseCase calling its callback and the caller's callback being invoked by
+ *      the {@link UseCaseScheduler}.
+ *      <STRONG>rejections</STRONG>: number of times the scheduler refused to execute the UseCase.
+ *      <STRONG>errors</STRONG>: number of times the UseCase called {@code onError} or threw an exception.
+ *      <STRONG>cache hits</STRONG>: number of times the UseCase was not run because its result was in the
+ *      {@link UseCaseResultCache}.
+ *
+ * Recording a value never allocates once the UseCase class has been seen, so this can be left enabled in production. Call
+ * {@link #snapshot()} to get the current values, for example to write them to the log.
+ */
+public final class UseCaseMetrics {
+
+    private final ConcurrentMap<Class<?>, Recorder> recorders = new ConcurrentHashMap<>();
+
+    /**
+     * Returns the {@link Recorder} for {@code useCaseClass}, creating it if this is the first time the class has been seen.
+     */
+    Recorder recorderFor(Class<?> useCaseClass) {
+        Recorder recorder = recorders.get(useCaseClass);
+        if (recorder == null) {
+            Recorder created = new Recorder(useCaseClass.getName());
+            recorder = recorders.putIfAbsent(useCaseClass, created);
+            if (recorder == null) {
+                recorder = created;
+            }
+        }
+        return recorder;
+    }
+
+    /**
+     * Returns the current values for every UseCase class that has been executed, ordered by class name.
+     */
+    public List<Snapshot> snapshot() {
+        List<Snapshot> snapshots = new ArrayList<>(recorders.size());
+        for (Recorder recorder : recorders.values()) {
+            snapshots.add(recorder.snapshot());
+        }
+
+        Collections.sort(snapshots, new Comparator<Snapshot>() {
+            @Override
+            public int compare(Snapshot first, Snapshot second) {
+                return first.getUseCaseName().compareTo(second.getUseCaseName());
+            }
+        });
+        return snapshots;
+    }
+
+    /**
+     * Returns the current values for {@code useCaseClass}, or {@code null} if it has not been executed.
+     */
+    public Snapshot snapshot(Class<?> useCaseClass) {
+        Recorder recorder = recorders.get(useCaseClass);
+        return recorder == null ? null : recorder.snapshot();
+    }
+
+    /**
+     * Removes all recorded values.
+     */
+    public void reset() {
+        for (Map.Entry<Class<?>, Recorder> entry : recorders.entrySet()) {
+            entry.getValue().reset();
+        }
+    }
+
+    /**
+     * Records the values for a single UseCase class.
+     */
+    static final class Recorder {
+
+        private final String useCaseName;
+
+        final LatencyHistogram queueWait = new LatencyHistogram();
+
+        final LatencyHistogram execution = new LatencyHistogram();
+
+        final LatencyHistogram delivery = new LatencyHistogram();
+
+        final AtomicLong rejections = new AtomicLong();
+
+        final AtomicLong errors = new AtomicLong();
+
+        final AtomicLong cacheHits = new AtomicLong();
+
+        Recorder(String useCaseName) {
+            this.useCaseName = useCaseName;
+        }
+
+        Snapshot snapshot() {
+            return new Snapshot(useCaseName, queueWait.snapshot(), execution.snapshot(), delivery.snapshot(),
+                    rejections.get(), errors.get(), cacheHits.get());
+        }
+
+        void reset() {
+            queueWait.reset();
+            execution.reset();
+            delivery.reset();
+            rejections.set(0);
+            errors.set(0);
+            cacheHits.set(0);
+        }
+    }
+
+    /**
+     * An immutable copy of the values recorded for a single UseCase class.
+     */
+    public static final class Snapshot {
+
+        private final String useCaseName;
+
+        private final LatencyHistogram.Snapshot queueWait;
+
+        private final LatencyHistogram.Snapshot execution;
+
+        private final LatencyHistogram.Snapshot delivery;
+
+        private final long rejections;
+
+        private final long errors;
+
+        private final long cacheHits;
+
+        Snapshot(String useCaseName, LatencyHistogram.Snapshot queueWait, LatencyHistogram.Snapshot execution,
+                 LatencyHistogram.Snapshot delivery, long rejections, long errors, long cacheHits) {
+            this.useCaseName = useCaseName;
+            this.queueWait = queueWait;
+            this.execution = execution;
+            this.delivery = delivery;
+            this.rejections = rejections;
+            this.errors = errors;
+            this.cacheHits = cacheHits;
+        }
+
+        /**
+         * Returns the fully qualified class name of the UseCase.
+         */
+        public String getUseCaseName() {
+            return useCaseName;
+        }
+
+        public LatencyHistogram.Snapshot getQueueWait() {
+            return queueWait;
+        }
+
+        public LatencyHistogram.Snapshot getExecution() {
+            return execution;
+        }
+
+        public LatencyHistogram.Snapshot getDelivery() {
+            return delivery;
+        }
+
+        public long getRejections() {
+            return rejections;
+        }
+
+        public long getErrors() {
+            return errors;
+        }
+
+        public long getCacheHits() {
+            return cacheHits;
+        }
+
+        /**
+         * Returns a single line summary that is suitable for logging.
+         */
+        @Override
+        public String toString() {
+            return useCaseName
+                    + " executed=" + execution.getCount()
+                    + " errors=" + errors
+                    + " rejected=" + rejections
+                    + " cached=" + cacheHits
+                    + " queue[" + queueWait + "]"
+                    + " run[" + execution + "]"
+                    + " delivery[" + delivery + "]";
+        }
+    }
+}
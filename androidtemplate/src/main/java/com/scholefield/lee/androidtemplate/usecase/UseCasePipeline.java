@@ -0,0 +1,358 @@
+package com.scholefield.lee.androidtemplate.usecase;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A {@link UseCase} that is composed from other UseCases. Since a pipeline is itself a UseCase it is executed in the same
+ * way as any other, via {@link UseCaseHandler#execute}.
+ *
+ * Each step of the pipeline runs on the worker thread that completed the previous step, so intermediate results never
+ * pass through the UI thread. Only the final {@code ResponseValue} is passed to the {@link UseCase.UseCaseCallback}, which
+ * the {@link UseCaseHandler} then delivers via its {@link UseCaseScheduler} as normal. If any step fails the remaining
+ * steps are skipped and {@link UseCase.UseCaseCallback#onError} is called with the cause of the failure.
+ *
+ * Example:
+ * <pre>
+ *     {@code
+ *     UseCasePipeline<UserRequest, SummaryResponse> pipeline = UseCasePipeline.of(new GetUser())
+ *             .then(new GetOrders(), new UseCasePipeline.Function<UserResponse, OrdersRequest>() {
+ *                 public OrdersRequest apply(UserResponse user) {
+ *                     return new OrdersRequest(user.getId());
+ *                 }
+ *             })
+ *             .map(new UseCasePipeline.Function<OrdersResponse, SummaryResponse>() {
+ *                 public SummaryResponse apply(OrdersResponse orders) {
+ *                     return new SummaryResponse(orders.getTotal());
+ *                 }
+ *             });
+ *
+ *     useCaseHandler.execute(pipeline, new UserRequest(id), callback);
+ *     }
+ * </pre>
+ *
+ * {@link #zip} and {@link #fanOut} run their branches in parallel. The first branch runs on the current worker thread and
+ * the rest are passed to an {@link Executor} (usually the {@link UseCaseScheduler}). Whichever branch finishes last
+ * joins the results and continues the pipeline on its own thread.
+ *
+ * UseCases hold no per-execution state, so the same UseCase instance can appear more than once in a pipeline and the
+ * pipeline itself can be executed concurrently.
+ *
+ * @param <Q> RequestValues passed to the first step.
+ * @param <P> ResponseValue returned by the last step.
+ */
+public final class UseCasePipeline<Q extends UseCase.RequestValues, P extends UseCase.ResponseValue> extends UseCase<Q, P> {
+
+    /**
+     * The composed steps of this pipeline.
+     */
+    private final Step<Q, P> step;
+
+    private UseCasePipeline(Step<Q, P> step) {
+        this.step = step;
+    }
+
+    /**
+     * Creates a new pipeline whose first step is the given {@code useCase}.
+     */
+    public static <Q extends UseCase.RequestValues, P extends UseCase.ResponseValue> UseCasePipeline<Q, P> of(
+            UseCase<Q, P> useCase) {
+        if (useCase == null) {
+            throw new IllegalArgumentException("useCase == null");
+        }
+
+        return new UseCasePipeline<Q, P>(new UseCaseStep<Q, P>(useCase));
+    }
+
+    /**
+     * Runs all of the {@code branches} in parallel with the same {@code RequestValues} and passes their results to the
+     * {@code join} function. The results are in the same order as the branches.
+     *
+     * @param branches UseCases to run. Must contain at least one UseCase.
+     * @param join combines the results of all the branches.
+     * @param executor executes all but the first branch. If the executor rejects a branch it is run on the current thread.
+     */
+    public static <Q extends UseCase.RequestValues, A extends UseCase.ResponseValue, R extends UseCase.ResponseValue>
+    UseCasePipeline<Q, R> fanOut(List<? extends UseCase<Q, ? extends A>> branches, Function<? super List<A>, R> join,
+                                 Executor executor) {
+        if (branches == null || branches.isEmpty() || join == null || executor == null) {
+            throw new IllegalArgumentException("branches == null || branches.isEmpty() || join == null || executor == null");
+        }
+
+        return new UseCasePipeline<Q, R>(new FanOutStep<Q, A, R>(branches, join, executor));
+    }
+
+    /**
+     * Runs {@code first} and {@code second} in parallel with the same {@code RequestValues} and passes both results to the
+     * {@code combiner}.
+     *
+     * @param executor executes the {@code second} UseCase. If the executor rejects it it is run on the current thread.
+     */
+    public static <Q extends UseCase.RequestValues, A extends UseCase.ResponseValue, B extends UseCase.ResponseValue,
+            R extends UseCase.ResponseValue> UseCasePipeline<Q, R> zip(UseCase<Q, A> first, UseCase<Q, B> second,
+                                                                       final Combiner<? super A, ? super B, R> combiner,
+                                                                       Executor executor) {
+        if (first == null || second == null || combiner == null) {
+            throw new IllegalArgumentException("first == null || second == null || combiner == null");
+        }
+
+        List<UseCase<Q, ? extends UseCase.ResponseValue>> branches = new ArrayList<>();
+        branches.add(first);
+        branches.add(second);
+
+        return fanOut(branches, new Function<List<UseCase.ResponseValue>, R>() {
+            @SuppressWarnings("unchecked") // branch order is fixed so the casts are safe
+            @Override
+            public R apply(List<UseCase.ResponseValue> results) {
+                return combiner.combine((A) results.get(0), (B) results.get(1));
+            }
+        }, executor);
+    }
+
+    /**
+     * Returns a new pipeline that converts the result of this one using {@code function}. The function runs on the same
+     * worker thread as the previous step.
+     */
+    public <R extends UseCase.ResponseValue> UseCasePipeline<Q, R> map(Function<? super P, R> function) {
+        if (function == null) {
+            throw new IllegalArgumentException("function == null");
+        }
+
+        return new UseCasePipeline<Q, R>(new ChainStep<Q, P, R>(step, new MapStep<P, R>(function)));
+    }
+
+    /**
+     * Returns a new pipeline that executes {@code next} once this one has completed. {@code toRequest} creates the
+     * {@code RequestValues} for {@code next} from the result of this pipeline.
+     */
+    public <V extends UseCase.RequestValues, R extends UseCase.ResponseValue> UseCasePipeline<Q, R> then(
+            UseCase<V, R> next, Function<? super P, ? extends V> toRequest) {
+        if (next == null || toRequest == null) {
+            throw new IllegalArgumentException("next == null || toRequest == null");
+        }
+
+        Step<Q, V> request = new ChainStep<Q, P, V>(step, new MapStep<P, V>(toRequest));
+        return new UseCasePipeline<Q, R>(new ChainStep<Q, V, R>(request, new UseCaseStep<V, R>(next)));
+    }
+
+    /**
+     * Runs each step of the pipeline on the current thread.
+     */
+    @Override
+    protected void executeUseCase(Q requestValues, UseCase.UseCaseCallback<P> callback) {
+        step.run(requestValues, callback);
+    }
+
+    /**
+     * Converts a value of type {@code I} to type {@code O}.
+     */
+    public interface Function<I, O> {
+        O apply(I input);
+    }
+
+    /**
+     * Combines the results of the two UseCases passed to {@link #zip}.
+     */
+    public interface Combiner<A, B, O> {
+        O combine(A first, B second);
+    }
+
+    /**
+     * A single step in the pipeline. The step must eventually call exactly one of the {@code callback} methods.
+     */
+    private interface Step<I, O> {
+        void run(I input, UseCase.UseCaseCallback<O> callback);
+    }
+
+    /**
+     * Executes a {@link UseCase} on the current thread.
+     */
+    private static final class UseCaseStep<I extends UseCase.RequestValues, O extends UseCase.ResponseValue>
+            implements Step<I, O> {
+
+        private final UseCase<I, O> useCase;
+
+        UseCaseStep(UseCase<I, O> useCase) {
+            this.useCase = useCase;
+        }
+
+        @Override
+        public void run(I input, UseCase.UseCaseCallback<O> callback) {
+            try {
+                useCase.run(input, callback);
+            } catch (RuntimeException e) {
+                callback.onError(e);
+            }
+        }
+    }
+
+    /**
+     * Applies a {@link Function} to the input.
+     */
+    private static final class MapStep<I, O> implements Step<I, O> {
+
+        private final Function<? super I, ? extends O> function;
+
+        MapStep(Function<? super I, ? extends O> function) {
+            this.function = function;
+        }
+
+        @Override
+        public void run(I input, UseCase.UseCaseCallback<O> callback) {
+            O output;
+            try {
+                output = function.apply(input);
+            } catch (RuntimeException e) {
+                callback.onError(e);
+                return;
+            }
+
+            callback.onSuccess(output);
+        }
+    }
+
+    /**
+     * Passes the result of {@code first} to {@code second}.
+     */
+    private static final class ChainStep<I, M, O> implements Step<I, O> {
+
+        private final Step<I, M> first;
+
+        private final Step<M, O> second;
+
+        ChainStep(Step<I, M> first, Step<M, O> second) {
+            this.first = first;
+            this.second = second;
+        }
+
+        @Override
+        public void run(I input, final UseCase.UseCaseCallback<O> callback) {
+            first.run(input, new UseCase.UseCaseCallback<M>() {
+                @Override
+                public void onSuccess(M response) {
+                    second.run(response, callback);
+                }
+
+                @Override
+                public void onError(Throwable error) {
+                    callback.onError(error);
+                }
+            });
+        }
+    }
+
+    /**
+     * Runs a number of UseCases in parallel and joins the results.
+     */
+    private static final class FanOutStep<I extends UseCase.RequestValues, A extends UseCase.ResponseValue, O>
+            implements Step<I, O> {
+
+        private final List<UseCaseStep<I, A>> branches;
+
+        private final Function<? super List<A>, O> join;
+
+        private final Executor executor;
+
+        @SuppressWarnings("unchecked") // a branch only ever passes an A (or a subtype of A) to its callback
+        FanOutStep(List<? extends UseCase<I, ? extends A>> useCases, Function<? super List<A>, O> join, Executor executor) {
+            List<UseCaseStep<I, A>> steps = new ArrayList<>(useCases.size());
+            for (UseCase<I, ? extends A> useCase : useCases) {
+                if (useCase == null) {
+                    throw new IllegalArgumentException("branch == null");
+                }
+                steps.add(new UseCaseStep<>((UseCase<I, A>) useCase));
+            }
+
+            this.branches = Collections.unmodifiableList(steps);
+            this.join = join;
+            this.executor = executor;
+        }
+
+        @Override
+        public void run(final I input, UseCase.UseCaseCallback<O> callback) {
+            FanIn<A, O> fanIn = new FanIn<>(branches.size(), join, callback);
+
+            for (int i = 1; i < branches.size(); i++) {
+                final UseCaseStep<I, A> branch = branches.get(i);
+                final UseCase.UseCaseCallback<A> branchCallback = fanIn.branchCallback(i);
+
+                Runnable runnable = new Runnable() {
+                    @Override
+                    public void run() {
+                        branch.run(input, branchCallback);
+                    }
+                };
+
+                try {
+                    executor.execute(runnable);
+                } catch (RejectedExecutionException e) {
+                    // the pool is saturated so run it here rather than failing the whole pipeline
+                    runnable.run();
+                }
+            }
+
+            branches.get(0).run(input, fanIn.branchCallback(0));
+        }
+    }
+
+    /**
+     * Collects the results of a {@link FanOutStep}. The branch that completes last calls the join function on its own thread.
+     */
+    private static final class FanIn<A, O> {
+
+        private final Object[] results;
+
+        /**
+         * Number of branches that have not yet completed. Decrementing this publishes the write to {@link #results}.
+         */
+        private final AtomicInteger remaining;
+
+        /**
+         * Set by the first branch to fail so the callback is only notified once.
+         */
+        private final AtomicBoolean failed = new AtomicBoolean();
+
+        private final Function<? super List<A>, O> join;
+
+        private final UseCase.UseCaseCallback<O> callback;
+
+        FanIn(int branches, Function<? super List<A>, O> join, UseCase.UseCaseCallback<O> callback) {
+            this.results = new Object[branches];
+            this.remaining = new AtomicInteger(branches);
+            this.join = join;
+            this.callback = callback;
+        }
+
+        UseCase.UseCaseCallback<A> branchCallback(final int index) {
+            return new UseCase.UseCaseCallback<A>() {
+                @Override
+                public void onSuccess(A response) {
+                    results[index] = response;
+
+                    if (remaining.decrementAndGet() == 0 && !failed.get()) {
+                        complete();
+                    }
+                }
+
+                @Override
+                public void onError(Throwable error) {
+                    if (failed.compareAndSet(false, true)) {
+                        callback.onError(error);
+                    }
+                }
+            };
+        }
+
+        @SuppressWarnings("unchecked") // every element was set by a UseCaseCallback<A>
+        private void complete() {
+            List<A> joined = (List<A>) Arrays.asList(results);
+            new MapStep<List<A>, O>(join).run(joined, callback);
+        }
+    }
+}
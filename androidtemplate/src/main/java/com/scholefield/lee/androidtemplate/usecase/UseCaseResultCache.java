@@ -0,0 +1,199 @@
+package com.scholefield.lee.androidtemplate.usecase;
+
+import com.scholefield.lee.androidtemplate.cache.Cache;
+import com.scholefield.lee.androidtemplate.cache.SoftCache;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Remembers the {@code ResponseValue} returned by {@link UseCase}s whose result depends only on their
+ * {@code RequestValues}, so that a {@link UseCaseHandlerImp} does not need to run them again. Set on the handler via
+ * {@link UseCaseHandlerImp.Builder#setResultCache}.
+ *
+ * Only the UseCase classes registered with {@link Builder#setTimeToLive} are cached, and each result is discarded once its
+ * time to live has passed, as measured by the {@link UseCaseScheduler#now() clock} of the handler's scheduler. Results
+ * are stored under the UseCase class and its {@code RequestValues}, so the {@code RequestValues} of a cached UseCase
+ * <STRONG>must</STRONG> implement {@code equals} and {@code hashCode}, and the {@code ResponseValue} should be immutable
+ * since the same instance is passed to every caller.
+ *
+ * Example:
+ * <pre>
+ *     {@code
+ *     UseCaseResultCache resultCache = new UseCaseResultCache.Builder()
+ *             .setTimeToLive(FormatPrices.class, 5, TimeUnit.MINUTES)
+ *             .build();
+ *     }
+ * </pre>
+ */
+public final class UseCaseResultCache {
+
+    /**
+     * Maximum number of results held by the default {@link SoftCache}.
+     */
+    private static final int DEFAULT_MAX_SIZE = 100;
+
+    private final Cache<Key, Entry> store;
+
+    /**
+     * Time to live in nanoseconds for each cached UseCase class.
+     */
+    private final Map<Class<?>, Long> timesToLive;
+
+    private UseCaseResultCache(Cache<Key, Entry> store, Map<Class<?>, Long> timesToLive) {
+        this.store = store;
+        this.timesToLive = timesToLive;
+    }
+
+    /**
+     * Returns {@code true} if the results of {@code useCaseClass} should be cached.
+     */
+    public boolean isCached(Class<?> useCaseClass) {
+        return timesToLive.containsKey(useCaseClass);
+    }
+
+    /**
+     * Returns the result stored for the given UseCase class and {@code RequestValues}, or {@code null} if there is no
+     * result or it has expired.
+     *
+     * @param now current time in nanoseconds, from the same clock that was passed to {@link #put}.
+     */
+    @SuppressWarnings("unchecked") // only a UseCase of this class could have stored the response
+    <R extends UseCase.ResponseValue> R get(Class<?> useCaseClass, UseCase.RequestValues values, long now) {
+        Key key = new Key(useCaseClass, values);
+        Entry entry = store.get(key);
+        if (entry == null) {
+            return null;
+        }
+
+        if (now - entry.expiresAt >= 0) {
+            store.remove(key);
+            return null;
+        }
+        return (R) entry.response;
+    }
+
+    /**
+     * Stores {@code response} for the given UseCase class and {@code RequestValues} if the class is cached.
+     *
+     * @param now current time in nanoseconds, which the time to live is counted from.
+     */
+    void put(Class<?> useCaseClass, UseCase.RequestValues values, UseCase.ResponseValue response, long now) {
+        Long timeToLive = timesToLive.get(useCaseClass);
+        if (timeToLive == null || response == null) {
+            return;
+        }
+        store.put(new Key(useCaseClass, values), new Entry(response, now + timeToLive));
+    }
+
+    /**
+     * Removes the result stored for the given UseCase class and {@code RequestValues}, for example because the data it was
+     * calculated from has changed.
+     */
+    public void invalidate(Class<? extends UseCase> useCaseClass, UseCase.RequestValues values) {
+        store.remove(new Key(useCaseClass, values));
+    }
+
+    /**
+     * Removes every stored result.
+     */
+    public void invalidateAll() {
+        store.removeAll();
+    }
+
+    /**
+     * The key a result is stored under in the {@link Cache}.
+     */
+    public static final class Key {
+
+        private final Class<?> useCaseClass;
+
+        private final UseCase.RequestValues values;
+
+        Key(Class<?> useCaseClass, UseCase.RequestValues values) {
+            this.useCaseClass = useCaseClass;
+            this.values = values;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof Key)) return false;
+
+            Key other = (Key) o;
+            return useCaseClass == other.useCaseClass
+                    && (values == null ? other.values == null : values.equals(other.values));
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * useCaseClass.hashCode() + (values == null ? 0 : values.hashCode());
+        }
+    }
+
+    /**
+     * A result stored in the {@link Cache}.
+     */
+    public static final class Entry {
+
+        private final UseCase.ResponseValue response;
+
+        /**
+         * Time in nanoseconds, as returned by {@link UseCaseScheduler#now()}, after which the result should no longer be
+         * used.
+         */
+        private final long expiresAt;
+
+        Entry(UseCase.ResponseValue response, long expiresAt) {
+            this.response = response;
+            this.expiresAt = expiresAt;
+        }
+    }
+
+    /**
+     * Creates a new {@link UseCaseResultCache}.
+     */
+    public static class Builder {
+
+        private Cache<Key, Entry> store;
+
+        private final Map<Class<?>, Long> timesToLive = new HashMap<>();
+
+        /**
+         * Sets the {@link Cache} results are stored in. If this is not set a {@link SoftCache} holding up to 100 results
+         * will be created.
+         */
+        public Builder setStore(Cache<Key, Entry> store) {
+            if (store == null) {
+                throw new IllegalArgumentException("store == null");
+            }
+            this.store = store;
+            return this;
+        }
+
+        /**
+         * Caches the results of every {@code useCaseClass} UseCase for {@code timeToLive}. Only the exact class is
+         * matched, not its subclasses.
+         */
+        public Builder setTimeToLive(Class<? extends UseCase> useCaseClass, long timeToLive, TimeUnit unit) {
+            if (useCaseClass == null) {
+                throw new IllegalArgumentException("useCaseClass == null");
+            }
+            if (timeToLive <= 0) {
+                throw new IllegalArgumentException("timeToLive must be greater than 0");
+            }
+            timesToLive.put(useCaseClass, unit.toNanos(timeToLive));
+            return this;
+        }
+
+        public UseCaseResultCache build() {
+            Cache<Key, Entry> cache = store;
+            if (cache == null) {
+                cache = new SoftCache<>(DEFAULT_MAX_SIZE);
+            }
+            return new UseCaseResultCache(cache, Collections.unmodifiableMap(new HashMap<>(timesToLive)));
+        }
+    }
+}
@@ -1,12 +1,67 @@
 package com.scholefield.lee.androidtemplate.usecase;
 
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+
 /**
  * A scheduler is responsible for executing a {@link UseCase}
+ *
+ * This extends {@link Executor} so a scheduler can also be used to run the parallel branches of a {@link UseCasePipeline}.
  */
-public interface UseCaseScheduler {
+public interface UseCaseScheduler extends Executor {
 
+    /**
+     * Executes the {@code runnable} on a worker thread.
+     */
+    @Override
     void execute(Runnable runnable);
 
+    /**
+     * Executes the {@code runnable} on a worker thread suited to the given {@link UseCase.Affinity}. Schedulers that only
+     * have one set of threads can simply pass the runnable to {@link #execute(Runnable)}.
+     */
+    void execute(Runnable runnable, UseCase.Affinity affinity);
+
+    /**
+     * Runs the {@code runnable} once {@code delay} has elapsed. The runnable should do very little work, typically just
+     * passing a task to {@link #execute}, since it may run on a thread shared by every delayed task.
+     */
+    void schedule(Runnable runnable, long delay, TimeUnit unit);
+
+    /**
+     * Runs the {@code runnable} on the thread that callbacks are delivered on, usually the UI thread. Unlike
+     * {@link #notifyResponse} this does not need to wrap the callback, so it should not allocate.
+     */
+    void post(Runnable runnable);
+
+    /**
+     * Returns the current time in nanoseconds, which the {@link UseCaseHandler} uses to time UseCases and delays. This is
+     * {@link System#nanoTime()} unless the scheduler keeps its own clock, as {@link VirtualTimeUseCaseScheduler} does.
+     */
+    long now();
+
+    /**
+     * Starts the worker threads straight away rather than when the first UseCase is executed, so that the first UseCase
+     * does not wait for a thread to be created. Threads started this way still exit once they have been idle for a while.
+     *
+     * @return number of threads started, which is 0 for schedulers that do not keep their own threads.
+     */
+    int prestart();
+
+    /**
+     * Stops accepting new work. Anything already accepted still runs and has its result delivered, but from now on
+     * {@link #execute} throws a {@link java.util.concurrent.RejectedExecutionException}.
+     */
+    void shutdown();
+
+    /**
+     * Blocks until everything accepted before {@link #shutdown()} was called has finished running, or until the
+     * {@code timeout} has elapsed. This should only be called after {@code shutdown()}.
+     *
+     * @return {@code true} if all of the work finished, {@code false} if the timeout elapsed first.
+     */
+    boolean awaitDrain(long timeout, TimeUnit unit) throws InterruptedException;
+
     /**
      * Called when the {@code UseCase} has successfully executed.
      *
@@ -18,7 +73,8 @@ public interface UseCaseScheduler {
     /**
      * Called when the {@code UseCase} encounters an error during execution.
      *
+     * @param error cause of the error.
      * @param callback callback used to communicate with the UI thread.
      */
-    <V extends UseCase.ResponseValue> void onError(final UseCase.UseCaseCallback<V> callback);
+    <V extends UseCase.ResponseValue> void onError(final Throwable error, final UseCase.UseCaseCallback<V> callback);
 }
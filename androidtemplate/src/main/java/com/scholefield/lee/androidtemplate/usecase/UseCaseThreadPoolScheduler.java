@@ -4,18 +4,24 @@ package com.scholefield.lee.androidtemplate.usecase;
 import android.os.Handler;
 
 import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * Uses a {@link ThreadPoolExecutor} to execute the {@link UseCase}s and a {@link Handler} to communicate with the Ui thread.
+ *
+ * Every thread, including the core threads, exits once it has been idle for the keep alive time, so an idle app does not
+ * hold on to any threads. The cost is that the first UseCase after a quiet period has to wait for a thread to be created;
+ * call {@link #prestart()} before a burst of work to avoid this, or use a longer keep alive time.
+ *
+ * UseCases with an {@link UseCase.Affinity#IO} affinity are run on a second, separately sized pool, so a number of slow
+ * blocking reads cannot occupy every thread and stop {@link UseCase.Affinity#CPU} UseCases from running. The IO pool has an
+ * unbounded queue, so IO UseCases are never rejected; its threads are only created when needed and exit once idle. That
+ * queue allocates a node for every IO UseCase it holds.
  */
-public class UseCaseThreadPoolScheduler implements UseCaseScheduler {
-
-    /**
-     * Used to communicate with the UI thread.
-     */
-    private final Handler handler = new Handler();
+public class UseCaseThreadPoolScheduler extends MainThreadUseCaseScheduler {
 
     /**
      * Initial number of Threads the {@link ThreadPoolExecutor} should keep alive.
@@ -28,22 +34,69 @@ public class UseCaseThreadPoolScheduler implements UseCaseScheduler {
     private static final int MAX_POOL_SIZE = 4;
 
     /**
-     * Seconds excess (i.e. any pools over the {@link #POOL_SIZE}) Threads should be kept alive if they become idle.
+     * Number of Threads that execute {@link UseCase.Affinity#IO} UseCases.
+     */
+    private static final int IO_POOL_SIZE = 4;
+
+    /**
+     * Seconds Threads should be kept alive if they become idle.
      */
     private static final int TIMEOUT = 30;
 
+    /**
+     * Total number of schedulers created. Each one creates two {@link ThreadPoolExecutor}s, for CPU and IO UseCases.
+     */
+    private static final AtomicInteger SCHEDULERS_CREATED = new AtomicInteger();
+
     /**
      * Executes {@link UseCase}s in a separate Thread.
      */
     private ThreadPoolExecutor threadPoolExecutor;
 
+    /**
+     * Executes {@link UseCase.Affinity#IO} UseCases.
+     */
+    private final ThreadPoolExecutor ioExecutor;
+
+
+    /**
+     * Public constructor.
+     */
+    public UseCaseThreadPoolScheduler() {
+        this(POOL_SIZE, MAX_POOL_SIZE, IO_POOL_SIZE);
+    }
 
     /**
-     * Package-private constructor.
+     * Constructor.
+     *
+     * @param poolSize number of Threads that execute {@link UseCase.Affinity#CPU} UseCases before any are queued. This
+     *                 is also the number of UseCases that can be queued before extra Threads are created.
+     * @param maxPoolSize maximum number of Threads that execute {@link UseCase.Affinity#CPU} UseCases.
+     * @param ioPoolSize maximum number of Threads that execute {@link UseCase.Affinity#IO} UseCases.
+     */
+    public UseCaseThreadPoolScheduler(int poolSize, int maxPoolSize, int ioPoolSize) {
+        this(poolSize, maxPoolSize, ioPoolSize, TIMEOUT, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param poolSize number of Threads that execute {@link UseCase.Affinity#CPU} UseCases before any are queued. This
+     *                 is also the number of UseCases that can be queued before extra Threads are created.
+     * @param maxPoolSize maximum number of Threads that execute {@link UseCase.Affinity#CPU} UseCases.
+     * @param ioPoolSize maximum number of Threads that execute {@link UseCase.Affinity#IO} UseCases.
+     * @param keepAlive how long a Thread waits for more work once it becomes idle before it exits.
      */
-    UseCaseThreadPoolScheduler() {
-        threadPoolExecutor = new ThreadPoolExecutor(POOL_SIZE, MAX_POOL_SIZE, TIMEOUT, TimeUnit.SECONDS,
-                new ArrayBlockingQueue<Runnable>(POOL_SIZE));
+    public UseCaseThreadPoolScheduler(int poolSize, int maxPoolSize, int ioPoolSize, long keepAlive, TimeUnit unit) {
+        threadPoolExecutor = new ThreadPoolExecutor(poolSize, maxPoolSize, keepAlive, unit,
+                new ArrayBlockingQueue<Runnable>(poolSize));
+        threadPoolExecutor.allowCoreThreadTimeOut(true);
+
+        ioExecutor = new ThreadPoolExecutor(ioPoolSize, ioPoolSize, keepAlive, unit,
+                new LinkedBlockingQueue<Runnable>());
+        ioExecutor.allowCoreThreadTimeOut(true);
+
+        SCHEDULERS_CREATED.incrementAndGet();
     }
 
     /**
@@ -55,33 +108,57 @@ public class UseCaseThreadPoolScheduler implements UseCaseScheduler {
     }
 
     /**
-     * Uses the {@code handler} to send the {@link UseCase.ResponseValue} back to the UI thread.
-     *
-     * @param response response received from the UseCase execution.
-     * @param callback callback used to communicate with the UI thread.
+     * Passes the given {@code runnable} to the IO pool if its {@code affinity} is {@link UseCase.Affinity#IO}, otherwise to
+     * the {@link ThreadPoolExecutor}.
      */
     @Override
-    public <V extends UseCase.ResponseValue> void notifyResponse(final V response, final UseCase.UseCaseCallback<V> callback) {
-        handler.post(new Runnable() {
-            @Override
-            public void run() {
-                callback.onSuccess(response);
-            }
-        });
+    public void execute(Runnable runnable, UseCase.Affinity affinity) {
+        if (affinity == UseCase.Affinity.IO) {
+            ioExecutor.execute(runnable);
+        } else {
+            threadPoolExecutor.execute(runnable);
+        }
     }
 
     /**
-     * Uses the {@code handler} to notify the UI thread that the {@code UseCase} encountered an error during execution.
-     *
-     * @param callback callback to the UI thread.
+     * Starts every core Thread of both pools.
      */
     @Override
-    public <V extends UseCase.ResponseValue> void onError(final UseCase.UseCaseCallback<V> callback) {
-        handler.post(new Runnable() {
-            @Override
-            public void run() {
-                callback.onError();
-            }
-        });
+    public int prestart() {
+        return threadPoolExecutor.prestartAllCoreThreads() + ioExecutor.prestartAllCoreThreads();
+    }
+
+    /**
+     * Shuts down both pools. UseCases that are queued or running still complete.
+     */
+    @Override
+    public void shutdown() {
+        threadPoolExecutor.shutdown();
+        ioExecutor.shutdown();
+    }
+
+    @Override
+    public boolean awaitDrain(long timeout, TimeUnit unit) throws InterruptedException {
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        return threadPoolExecutor.awaitTermination(timeout, unit)
+                && ioExecutor.awaitTermination(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Returns the number of Threads currently alive in both pools.
+     *
+     * Used for testing.
+     */
+    int getThreadCount() {
+        return threadPoolExecutor.getPoolSize() + ioExecutor.getPoolSize();
+    }
+
+    /**
+     * Returns the total number of schedulers created by this class.
+     *
+     * Used for testing.
+     */
+    static int getSchedulersCreated() {
+        return SCHEDULERS_CREATED.get();
     }
 }
@@ -0,0 +1,390 @@
+package com.scholefield.lee.androidtemplate.usecase;
+
+import java.util.ArrayDeque;
+import java.util.PriorityQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A {@link UseCaseScheduler} that simulates worker threads on a virtual clock. Nothing runs until the test calls
+ * {@link #runNext()}, {@link #runUntilIdle()} or {@link #advanceBy}, and everything then runs on the calling thread in a
+ * fixed order, so timing behaviour can be tested, and scheduling policies benchmarked, reproducibly on a plain JVM.
+ *
+ * Runnables passed to {@link #execute} occupy one of a fixed number of simulated workers; any that arrive while every
+ * worker is busy wait in a queue, and are rejected once the queue is full, in the same way as a
+ * {@link java.util.concurrent.ThreadPoolExecutor}. A runnable takes no virtual time unless it calls {@link #consume}, so a
+ * UseCase can model its cost by calling it from {@link UseCase#executeUseCase}. Anything the runnable passes to the
+ * scheduler happens at the virtual time it has reached, and the worker stays busy until then.
+ *
+ * Delayed runnables, callbacks and anything else passed to {@link #post} take no virtual time and do not occupy a worker.
+ * Runnables due at the same time run in the order they were passed to the scheduler.
+ *
+ * Only the number of workers and the queue capacity can be varied. The queue is always first in, first out, since UseCases
+ * have no priority to order it by, and runnables are never batched together, so priority and batching policies can not
+ * be benchmarked with this scheduler.
+ *
+ * Example:
+ * <pre>
+ *     {@code
+ *     VirtualTimeUseCaseScheduler scheduler = new VirtualTimeUseCaseScheduler.Builder().setWorkers(2).build();
+ *     UseCaseHandlerImp handler = new UseCaseHandlerImp.Builder().setScheduler(scheduler).build();
+ *
+ *     handler.execute(useCase, values, callback);
+ *     scheduler.runUntilIdle();
+ *     }
+ * </pre>
+ *
+ * This class is not thread safe; it should only be used from the thread running the test.
+ */
+public final class VirtualTimeUseCaseScheduler implements UseCaseScheduler {
+
+    /**
+     * Everything waiting to run, in the order it will run.
+     */
+    private final PriorityQueue<Event> events = new PriorityQueue<>();
+
+    /**
+     * Workers that run {@link UseCase.Affinity#CPU} runnables, and {@link UseCase.Affinity#IO} runnables if there is no
+     * {@link #ioWorkers}.
+     */
+    private final Workers workers;
+
+    /**
+     * Workers that run {@link UseCase.Affinity#IO} runnables. May be {@code null}.
+     */
+    private final Workers ioWorkers;
+
+    /**
+     * Number of events created, used to run events due at the same time in order.
+     */
+    private long sequence = 0;
+
+    /**
+     * Current virtual time in nanoseconds.
+     */
+    private long clock = 0;
+
+    /**
+     * Virtual time reached by the runnable currently running on a worker, or {@code -1} if no worker runnable is running.
+     */
+    private long taskClock = -1;
+
+    private boolean shutdown = false;
+
+    private VirtualTimeUseCaseScheduler(Workers workers, Workers ioWorkers) {
+        this.workers = workers;
+        this.ioWorkers = ioWorkers;
+    }
+
+    /**
+     * Runs the {@code runnable} on a free worker, or queues it until one is free.
+     *
+     * @throws RejectedExecutionException if every worker is busy and the queue is full, or the scheduler has been shut
+     *                                    down.
+     */
+    @Override
+    public void execute(Runnable runnable) {
+        submit(workers, runnable);
+    }
+
+    /**
+     * Runs the {@code runnable} on a free IO worker if the scheduler has any and the {@code affinity} is
+     * {@link UseCase.Affinity#IO}, otherwise behaves like {@link #execute(Runnable)}.
+     */
+    @Override
+    public void execute(Runnable runnable, UseCase.Affinity affinity) {
+        submit(affinity == UseCase.Affinity.IO && ioWorkers != null ? ioWorkers : workers, runnable);
+    }
+
+    /**
+     * Runs the {@code runnable} once the virtual clock has advanced by {@code delay}.
+     */
+    @Override
+    public void schedule(Runnable runnable, long delay, TimeUnit unit) {
+        enqueue(now() + unit.toNanos(delay), runnable, null, false);
+    }
+
+    /**
+     * Runs the {@code runnable} at the current virtual time, after anything already due.
+     */
+    @Override
+    public void post(Runnable runnable) {
+        enqueue(now(), runnable, null, false);
+    }
+
+    /**
+     * Returns the current virtual time in nanoseconds. Inside a runnable passed to {@link #execute} this includes any time
+     * it has {@link #consume consumed}.
+     */
+    @Override
+    public long now() {
+        return taskClock >= 0 ? taskClock : clock;
+    }
+
+    @Override
+    public <V extends UseCase.ResponseValue> void notifyResponse(final V response, final UseCase.UseCaseCallback<V> callback) {
+        post(new Runnable() {
+            @Override
+            public void run() {
+                callback.onSuccess(response);
+            }
+        });
+    }
+
+    @Override
+    public <V extends UseCase.ResponseValue> void onError(final Throwable error, final UseCase.UseCaseCallback<V> callback) {
+        post(new Runnable() {
+            @Override
+            public void run() {
+                callback.onError(error);
+            }
+        });
+    }
+
+    /**
+     * The simulated workers are always available, so this returns 0.
+     */
+    @Override
+    public int prestart() {
+        return 0;
+    }
+
+    @Override
+    public void shutdown() {
+        shutdown = true;
+    }
+
+    /**
+     * Runs every event due within {@code timeout} of virtual time, in the same way as {@link #advanceBy}.
+     *
+     * @return {@code true} if nothing is left to run.
+     */
+    @Override
+    public boolean awaitDrain(long timeout, TimeUnit unit) {
+        advanceBy(timeout, unit);
+        return events.isEmpty();
+    }
+
+    /**
+     * Advances the virtual time of the runnable currently running on a worker, which keeps the worker busy for longer.
+     *
+     * @throws IllegalStateException if this is not called from a runnable passed to {@link #execute}.
+     */
+    public void consume(long duration, TimeUnit unit) {
+        if (taskClock < 0) {
+            throw new IllegalStateException("consume() called outside of an executed runnable");
+        }
+        if (duration < 0) {
+            throw new IllegalArgumentException("duration < 0");
+        }
+        taskClock += unit.toNanos(duration);
+    }
+
+    /**
+     * Moves the clock to the next event and runs it.
+     *
+     * @return {@code false} if there was nothing to run.
+     */
+    public boolean runNext() {
+        Event event = events.poll();
+        if (event == null) {
+            return false;
+        }
+
+        clock = event.time;
+        if (event.workers == null) {
+            event.runnable.run();
+        } else if (event.release) {
+            release(event.workers);
+        } else {
+            runOnWorker(event.workers, event.runnable);
+        }
+        return true;
+    }
+
+    /**
+     * Runs events until there are none left, including any created by the events that are run.
+     */
+    public void runUntilIdle() {
+        while (runNext()) {
+            // keep going
+        }
+    }
+
+    /**
+     * Runs every event due within {@code duration}, then moves the clock on by {@code duration}.
+     */
+    public void advanceBy(long duration, TimeUnit unit) {
+        if (duration < 0) {
+            throw new IllegalArgumentException("duration < 0");
+        }
+
+        long target = clock + unit.toNanos(duration);
+        while (!events.isEmpty() && events.peek().time <= target) {
+            runNext();
+        }
+        clock = target;
+    }
+
+    /**
+     * Returns the number of runnables waiting for a worker.
+     */
+    public int getQueuedCount() {
+        return workers.queue.size() + (ioWorkers == null ? 0 : ioWorkers.queue.size());
+    }
+
+    private void submit(Workers target, Runnable runnable) {
+        if (shutdown) {
+            throw new RejectedExecutionException("scheduler has been shut down");
+        }
+
+        if (target.busy < target.count) {
+            target.busy++;
+            enqueue(now(), runnable, target, false);
+        } else if (target.queue.size() < target.queueCapacity) {
+            target.queue.add(runnable);
+        } else {
+            throw new RejectedExecutionException("every worker is busy and the queue is full");
+        }
+    }
+
+    private void runOnWorker(Workers target, Runnable runnable) {
+        taskClock = clock;
+        try {
+            runnable.run();
+        } finally {
+            long finishedAt = taskClock;
+            taskClock = -1;
+            enqueue(finishedAt, null, target, true);
+        }
+    }
+
+    /**
+     * Called when a worker finishes. Passes the next queued runnable to the worker, or marks it as free.
+     */
+    private void release(Workers target) {
+        Runnable next = target.queue.poll();
+        if (next != null) {
+            enqueue(clock, next, target, false);
+        } else {
+            target.busy--;
+        }
+    }
+
+    private void enqueue(long time, Runnable runnable, Workers target, boolean release) {
+        events.add(new Event(time, sequence++, runnable, target, release));
+    }
+
+    /**
+     * Something to run at a given virtual time.
+     */
+    private static final class Event implements Comparable<Event> {
+
+        final long time;
+
+        final long sequence;
+
+        final Runnable runnable;
+
+        /**
+         * Workers the runnable occupies, or {@code null} if it runs without one.
+         */
+        final Workers workers;
+
+        /**
+         * {@code true} if this event frees a worker rather than running a runnable.
+         */
+        final boolean release;
+
+        Event(long time, long sequence, Runnable runnable, Workers workers, boolean release) {
+            this.time = time;
+            this.sequence = sequence;
+            this.runnable = runnable;
+            this.workers = workers;
+            this.release = release;
+        }
+
+        @Override
+        public int compareTo(Event other) {
+            if (time != other.time) {
+                return time < other.time ? -1 : 1;
+            }
+            return sequence < other.sequence ? -1 : (sequence == other.sequence ? 0 : 1);
+        }
+    }
+
+    /**
+     * A set of simulated worker threads with their queue.
+     */
+    private static final class Workers {
+
+        final int count;
+
+        final int queueCapacity;
+
+        final ArrayDeque<Runnable> queue = new ArrayDeque<>();
+
+        /**
+         * Number of workers running, or about to run, a runnable.
+         */
+        int busy = 0;
+
+        Workers(int count, int queueCapacity) {
+            this.count = count;
+            this.queueCapacity = queueCapacity;
+        }
+    }
+
+    /**
+     * Creates a new {@code VirtualTimeUseCaseScheduler}. By default it has one worker, no separate IO workers, and an
+     * unbounded queue.
+     */
+    public static class Builder {
+
+        private int workers = 1;
+
+        private int ioWorkers = 0;
+
+        private int queueCapacity = Integer.MAX_VALUE;
+
+        /**
+         * Sets the number of simulated workers. Must be at least 1.
+         */
+        public Builder setWorkers(int workers) {
+            if (workers < 1) {
+                throw new IllegalArgumentException("workers < 1");
+            }
+            this.workers = workers;
+            return this;
+        }
+
+        /**
+         * Sets the number of simulated workers reserved for {@link UseCase.Affinity#IO} runnables, as
+         * {@link UseCaseThreadPoolScheduler} has. If this is 0, the default, IO runnables share the other workers.
+         */
+        public Builder setIoWorkers(int ioWorkers) {
+            if (ioWorkers < 0) {
+                throw new IllegalArgumentException("ioWorkers < 0");
+            }
+            this.ioWorkers = ioWorkers;
+            return this;
+        }
+
+        /**
+         * Sets the number of runnables that can wait for a worker before {@link #execute} throws a
+         * {@link RejectedExecutionException}. This applies separately to the IO workers.
+         */
+        public Builder setQueueCapacity(int queueCapacity) {
+            if (queueCapacity < 0) {
+                throw new IllegalArgumentException("queueCapacity < 0");
+            }
+            this.queueCapacity = queueCapacity;
+            return this;
+        }
+
+        public VirtualTimeUseCaseScheduler build() {
+            return new VirtualTimeUseCaseScheduler(new Workers(workers, queueCapacity),
+                    ioWorkers > 0 ? new Workers(ioWorkers, queueCapacity) : null);
+        }
+    }
+}
@@ -54,4 +54,28 @@ public class SearchQueryTest {
         assertEquals(expected, query.getQuery());
     }
 
+    @Test
+    public void getQuery_with_order_by() throws Exception {
+        String expected = "SELECT * FROM table1 WHERE age > 25 ORDER BY name";
+
+        SearchQuery query = new SearchQuery("table1", "age > 25").setOrderBy("name");
+
+        assertEquals(expected, query.getQuery());
+    }
+
+    @Test
+    public void page_returns_copy_with_limit_and_offset() throws Exception {
+        String expected = "SELECT name FROM table1 ORDER BY id LIMIT 50 OFFSET 100";
+
+        SearchQuery query = new SearchQuery("table1", new String[]{"name"}, null).setOrderBy("id");
+
+        assertEquals(expected, query.page(100, 50).getQuery());
+        assertEquals("SELECT name FROM table1 ORDER BY id", query.getQuery());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void page_with_negative_offset_throws_exception() throws Exception {
+        new SearchQuery("table1").page(-1, 50);
+    }
+
 }
\ No newline at end of file
@@ -1,11 +1,21 @@
 package com.scholefield.lee.androidtemplate.ui;
 
+import com.scholefield.lee.androidtemplate.usecase.UseCase;
+
 import org.junit.Before;
 import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.ExpectedException;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 
 import static org.junit.Assert.*;
 
@@ -69,6 +79,29 @@ public class PresenterManagerTest {
         assertNotNull(manager.getPresenter("key"));
     }
 
+    @Test
+    public void getInstance_returns_same_instance_on_every_thread() throws Exception {
+        final int threads = 16;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        final CyclicBarrier start = new CyclicBarrier(threads);
+        List<Future<PresenterManager>> results = new ArrayList<>();
+
+        for (int i = 0; i < threads; i++) {
+            results.add(executor.submit(new Callable<PresenterManager>() {
+                @Override
+                public PresenterManager call() throws Exception {
+                    start.await();
+                    return PresenterManager.getInstance();
+                }
+            }));
+        }
+
+        for (Future<PresenterManager> result : results) {
+            assertSame(classUnderTest, result.get(10, TimeUnit.SECONDS));
+        }
+        executor.shutdown();
+    }
+
     @Test
     public void deregisterPresenter_removes_presenter_from_active_presenters() throws Exception {
         classUnderTest.registerPresenter("key", createPresenter());
@@ -79,6 +112,93 @@ public class PresenterManagerTest {
         assertNull(classUnderTest.getPresenter("key"));
     }
 
+    @Test
+    public void bound_callback_is_called_while_view_is_attached() throws Exception {
+        classUnderTest.registerPresenter("key", createPresenter());
+        RecordingCallback callback = new RecordingCallback();
+
+        classUnderTest.bindCallback("key", callback).onSuccess("result");
+
+        assertEquals(1, callback.results.size());
+    }
+
+    @Test
+    public void results_are_parked_while_view_is_detached_and_replayed_once_on_attach() throws Exception {
+        classUnderTest.registerPresenter("key", createPresenter());
+        RecordingCallback callback = new RecordingCallback();
+        UseCase.UseCaseCallback<String> first = classUnderTest.bindCallback("key", callback);
+        UseCase.UseCaseCallback<String> second = classUnderTest.bindCallback("key", callback);
+
+        classUnderTest.onViewDetached("key");
+        first.onSuccess("first");
+        second.onError(new IllegalStateException());
+
+        assertTrue(callback.results.isEmpty());
+        assertEquals(2, classUnderTest.getCallbackBinding("key").getParkedCount());
+
+        classUnderTest.onViewAttached("key");
+        classUnderTest.onViewDetached("key");
+        classUnderTest.onViewAttached("key");
+
+        assertEquals(2, callback.results.size());
+        assertEquals("first", callback.results.get(0));
+        assertTrue(callback.results.get(1) instanceof IllegalStateException);
+    }
+
+    @Test
+    public void parked_results_are_dropped_when_presenter_deregisters() throws Exception {
+        classUnderTest.registerPresenter("key", createPresenter());
+        RecordingCallback callback = new RecordingCallback();
+        UseCase.UseCaseCallback<String> parked = classUnderTest.bindCallback("key", callback);
+        UseCase.UseCaseCallback<String> running = classUnderTest.bindCallback("key", callback);
+
+        classUnderTest.onViewDetached("key");
+        parked.onSuccess("parked");
+        classUnderTest.deregisterPresenter("key");
+        running.onSuccess("late");
+        classUnderTest.onViewAttached("key");
+
+        assertTrue(callback.results.isEmpty());
+        assertNull(classUnderTest.getCallbackBinding("key"));
+    }
+
+    @Test
+    public void onViewDetached_does_nothing_after_presenter_deregisters() throws Exception {
+        classUnderTest.registerPresenter("key", createPresenter());
+        classUnderTest.deregisterPresenter("key");
+
+        classUnderTest.onViewDetached("key");
+
+        assertNull(classUnderTest.getCallbackBinding("key"));
+    }
+
+    @Test
+    public void bound_callback_is_only_called_once() throws Exception {
+        classUnderTest.registerPresenter("key", createPresenter());
+        RecordingCallback callback = new RecordingCallback();
+        UseCase.UseCaseCallback<String> bound = classUnderTest.bindCallback("key", callback);
+
+        bound.onSuccess("first");
+        bound.onSuccess("second");
+
+        assertEquals(1, callback.results.size());
+    }
+
+    private static class RecordingCallback implements UseCase.UseCaseCallback<String> {
+
+        final List<Object> results = new ArrayList<>();
+
+        @Override
+        public void onSuccess(String response) {
+            results.add(response);
+        }
+
+        @Override
+        public void onError(Throwable error) {
+            results.add(error);
+        }
+    }
+
     private BaseContract.BasePresenter createPresenter() {
         return new BaseContract.BasePresenter() {
 
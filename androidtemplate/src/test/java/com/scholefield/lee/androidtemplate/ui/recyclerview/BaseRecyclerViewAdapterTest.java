@@ -1,18 +1,29 @@
 package com.scholefield.lee.androidtemplate.ui.recyclerview;
 
+import android.support.v7.widget.LinearLayoutManager;
+import android.support.v7.widget.RecyclerView;
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.FrameLayout;
 import com.lee.scholefield.androidtemplate.ui.BaseRecyclerViewAdapterImp;
+import com.scholefield.lee.androidtemplate.usecase.DirectUseCaseScheduler;
 import org.junit.Before;
 import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.ExpectedException;
 import org.junit.runner.RunWith;
 import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
 import org.robolectric.annotation.Config;
 
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
 import static org.junit.Assert.*;
+import static org.junit.Assume.assumeTrue;
 
 /**
  *
@@ -94,4 +105,602 @@ public class BaseRecyclerViewAdapterTest {
         assertEquals("second", classUnderTest.getDataSet().get(0));
     }
 
+    @Test
+    public void insertItem_notifies_position_of_item_added_to_end() throws Exception {
+        RecordingObserver observer = new RecordingObserver();
+        classUnderTest.registerAdapterDataObserver(observer);
+
+        classUnderTest.insertItem("inserted");
+
+        assertEquals(Arrays.asList("inserted 2+1"), observer.ranges);
+    }
+
+    @Test
+    public void insertAll_inserts_items_with_single_notification() throws Exception {
+        RecordingObserver observer = new RecordingObserver();
+        classUnderTest.registerAdapterDataObserver(observer);
+
+        classUnderTest.insertAll(1, Arrays.asList("a", "b", "c"));
+
+        assertEquals(Arrays.asList("first", "a", "b", "c", "second"), classUnderTest.getDataSet());
+        assertEquals(Arrays.asList("inserted 1+3"), observer.ranges);
+    }
+
+    @Test
+    public void insertAll_with_position_END() throws Exception {
+        classUnderTest.insertAll(BaseRecyclerViewAdapterImp.END, Arrays.asList("a", "b"));
+
+        assertEquals(Arrays.asList("first", "second", "a", "b"), classUnderTest.getDataSet());
+    }
+
+    @Test
+    public void removeRange_removes_items_with_single_notification() throws Exception {
+        classUnderTest.insertAll(BaseRecyclerViewAdapterImp.END, Arrays.asList("a", "b", "c"));
+        RecordingObserver observer = new RecordingObserver();
+        classUnderTest.registerAdapterDataObserver(observer);
+
+        classUnderTest.removeRange(1, 3);
+
+        assertEquals(Arrays.asList("first", "c"), classUnderTest.getDataSet());
+        assertEquals(Arrays.asList("removed 1+3"), observer.ranges);
+    }
+
+    @Test
+    public void removeAll_notifies_each_contiguous_range_once() throws Exception {
+        classUnderTest.replaceAll(new ArrayList<>(Arrays.asList("1", "x", "x", "2", "x", "3", "x", "x", "x")));
+        RecordingObserver observer = new RecordingObserver();
+        classUnderTest.registerAdapterDataObserver(observer);
+
+        int removed = classUnderTest.removeAll(new BaseRecyclerViewAdapter.Predicate<String>() {
+            @Override
+            public boolean test(String item) {
+                return item.equals("x");
+            }
+        });
+
+        assertEquals(6, removed);
+        assertEquals(Arrays.asList("1", "2", "3"), classUnderTest.getDataSet());
+        assertEquals(Arrays.asList("removed 1+2", "removed 2+1", "removed 3+3"), observer.ranges);
+    }
+
+    @Test
+    public void removeItem_with_identity_index_removes_item() throws Exception {
+        List<String> items = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            items.add("item " + i);
+        }
+        classUnderTest.replaceAll(items);
+        classUnderTest.setIdentityIndexEnabled(true);
+
+        classUnderTest.removeItem(items.get(10));
+        classUnderTest.insertItem("inserted", 0);
+        String last = items.get(items.size() - 1);
+        classUnderTest.removeItem(last);
+        classUnderTest.removeItem(items.get(50));
+
+        assertEquals(98, classUnderTest.getItemCount());
+        assertEquals("inserted", classUnderTest.getDataSet().get(0));
+        assertFalse(classUnderTest.getDataSet().contains(last));
+        assertFalse(classUnderTest.getDataSet().contains("item 10"));
+        assertEquals("item 51", classUnderTest.getDataSet().get(50));
+    }
+
+    @Test
+    public void removeItem_with_identity_index_ignores_missing_item() throws Exception {
+        classUnderTest.setIdentityIndexEnabled(true);
+
+        classUnderTest.removeItem("missing");
+
+        assertEquals(2, classUnderTest.getItemCount());
+    }
+
+    @Test
+    public void replaceAll_empties_identity_index() throws Exception {
+        // the index size is only visible through the base class from this package
+        BaseRecyclerViewAdapter<String, ?> adapter = classUnderTest;
+        classUnderTest.setIdentityIndexEnabled(true);
+        classUnderTest.removeItem("missing");
+        assertEquals(2, adapter.getIdentityIndexSize());
+
+        classUnderTest.replaceAll(new ArrayList<>(Arrays.asList("third", "fourth", "fifth")));
+
+        assertEquals(0, adapter.getIdentityIndexSize());
+        classUnderTest.removeItem("fourth");
+        assertEquals(Arrays.asList("third", "fifth"), classUnderTest.getDataSet());
+    }
+
+    @Test
+    public void replaceAll_replaces_data_set() throws Exception {
+        List<String> items = new ArrayList<>();
+        items.add("second");
+        items.add("third");
+
+        classUnderTest.replaceAll(items);
+
+        assertEquals(items, classUnderTest.getDataSet());
+    }
+
+    @Test
+    public void replaceAll_notifies_inserted_and_removed_items() throws Exception {
+        RecordingObserver observer = new RecordingObserver();
+        classUnderTest.registerAdapterDataObserver(observer);
+        List<String> items = new ArrayList<>();
+        items.add("second");
+        items.add("third");
+
+        classUnderTest.replaceAll(items);
+
+        assertEquals(1, observer.removed);
+        assertEquals(1, observer.inserted);
+        assertEquals(0, observer.changed);
+        assertEquals(0, observer.dataSetChanges);
+    }
+
+    @Test
+    public void replaceAll_only_notifies_changed_items_of_large_list() throws Exception {
+        List<String> oldItems = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            oldItems.add(i + ":unchanged");
+        }
+        classUnderTest.replaceAll(oldItems);
+        classUnderTest.setItemComparator(new IdComparator());
+
+        List<String> newItems = new ArrayList<>(oldItems);
+        newItems.set(10, "10:changed");
+        newItems.remove(500);
+        newItems.add(700, "new:unchanged");
+
+        RecordingObserver observer = new RecordingObserver();
+        classUnderTest.registerAdapterDataObserver(observer);
+        classUnderTest.replaceAll(newItems);
+
+        assertEquals(1, observer.changed);
+        assertEquals(1, observer.removed);
+        assertEquals(1, observer.inserted);
+        assertEquals(0, observer.dataSetChanges);
+    }
+
+    @Test
+    public void replaceAll_with_null_throws_exception() throws Exception {
+        expectedException.expect(IllegalArgumentException.class);
+
+        classUnderTest.replaceAll(null);
+    }
+
+    @Test
+    public void submitList_applies_diff_on_main_thread() throws Exception {
+        QueueingScheduler scheduler = new QueueingScheduler();
+        classUnderTest.setDiffScheduler(scheduler);
+        List<String> items = new ArrayList<>();
+        items.add("second");
+        items.add("third");
+
+        classUnderTest.submitList(items);
+        scheduler.runBackground();
+
+        assertEquals(defaultItems, classUnderTest.getDataSet());
+
+        scheduler.runMain();
+
+        assertEquals(items, classUnderTest.getDataSet());
+    }
+
+    @Test
+    public void submitList_discards_superseded_list() throws Exception {
+        QueueingScheduler scheduler = new QueueingScheduler();
+        classUnderTest.setDiffScheduler(scheduler);
+        List<String> first = new ArrayList<>();
+        first.add("first");
+        List<String> second = new ArrayList<>();
+        second.add("second");
+        second.add("third");
+
+        classUnderTest.submitList(first);
+        scheduler.runBackground();
+        classUnderTest.submitList(second);
+        scheduler.runBackground();
+        scheduler.runMain();
+
+        assertEquals(second, classUnderTest.getDataSet());
+    }
+
+    @Test
+    public void replaceAll_discards_pending_submitted_list() throws Exception {
+        QueueingScheduler scheduler = new QueueingScheduler();
+        classUnderTest.setDiffScheduler(scheduler);
+        List<String> submitted = new ArrayList<>();
+        submitted.add("submitted");
+        List<String> replaced = new ArrayList<>();
+        replaced.add("replaced");
+
+        classUnderTest.submitList(submitted);
+        classUnderTest.replaceAll(replaced);
+        scheduler.runBackground();
+        scheduler.runMain();
+
+        assertEquals(replaced, classUnderTest.getDataSet());
+    }
+
+    @Test
+    public void submitList_only_notifies_changed_items_of_large_list() throws Exception {
+        QueueingScheduler scheduler = new QueueingScheduler();
+        List<String> oldItems = new ArrayList<>();
+        for (int i = 0; i < 50000; i++) {
+            oldItems.add(i + ":unchanged");
+        }
+        classUnderTest.replaceAll(oldItems);
+        classUnderTest.setItemComparator(new IdComparator());
+        classUnderTest.setDiffScheduler(scheduler);
+
+        List<String> newItems = new ArrayList<>(oldItems);
+        for (int i = 0; i < 10; i++) {
+            newItems.set(i * 4000, (i * 4000) + ":changed");
+        }
+        for (int i = 0; i < 5; i++) {
+            newItems.remove(45000 - i * 9000);
+            newItems.add(2000 + i * 9000, "new" + i + ":unchanged");
+        }
+
+        RecordingObserver observer = new RecordingObserver();
+        classUnderTest.registerAdapterDataObserver(observer);
+
+        classUnderTest.submitList(newItems);
+        assertSame(oldItems, classUnderTest.getDataSet());
+
+        scheduler.runBackground();
+        scheduler.runMain();
+
+        assertSame(newItems, classUnderTest.getDataSet());
+        assertEquals(10, observer.changed);
+        assertEquals(5, observer.removed);
+        assertEquals(5, observer.inserted);
+        assertEquals(0, observer.dataSetChanges);
+    }
+
+    @Test
+    public void submitList_with_null_throws_exception() throws Exception {
+        expectedException.expect(IllegalArgumentException.class);
+
+        classUnderTest.submitList(null);
+    }
+
+    @Test
+    public void click_reports_item_at_current_position_of_view_holder() throws Exception {
+        PlainAdapter adapter = new PlainAdapter(defaultItems);
+        RecordingCallback callback = new RecordingCallback();
+        adapter.setCallback(callback);
+        PlainViewHolder holder = adapter.createViewHolder(new FrameLayout(RuntimeEnvironment.application), 0);
+
+        adapter.bindViewHolder(holder, 0);
+        adapter.bindViewHolder(holder, 1);
+        holder.itemView.performClick();
+        holder.itemView.performLongClick();
+
+        assertEquals("second", callback.clicked);
+        assertEquals(1, callback.clickedPosition);
+        assertEquals("second", callback.longClicked);
+    }
+
+    @Test
+    public void click_on_view_holder_without_position_is_ignored() throws Exception {
+        PlainAdapter adapter = new PlainAdapter(defaultItems);
+        RecordingCallback callback = new RecordingCallback();
+        adapter.setCallback(callback);
+        PlainViewHolder holder = adapter.createViewHolder(new FrameLayout(RuntimeEnvironment.application), 0);
+
+        holder.itemView.performClick();
+
+        assertNull(callback.clicked);
+        assertTrue(holder.itemView.performLongClick());
+        assertNull(callback.longClicked);
+    }
+
+    @Test
+    public void binding_view_holder_does_not_allocate_listeners() throws Exception {
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        assumeTrue(threads instanceof com.sun.management.ThreadMXBean);
+        com.sun.management.ThreadMXBean allocations = (com.sun.management.ThreadMXBean) threads;
+        long thread = Thread.currentThread().getId();
+
+        PlainAdapter adapter = new PlainAdapter(defaultItems);
+        PlainViewHolder holder = adapter.createViewHolder(new FrameLayout(RuntimeEnvironment.application), 0);
+        for (int i = 0; i < 10000; i++) {
+            adapter.onBindViewHolder(holder, i % 2);
+        }
+
+        long before = allocations.getThreadAllocatedBytes(thread);
+        for (int i = 0; i < 10000; i++) {
+            adapter.onBindViewHolder(holder, i % 2);
+        }
+        long allocated = allocations.getThreadAllocatedBytes(thread) - before;
+
+        // two listeners per bind would be at least 320KB
+        assertTrue(allocated < 10000 * 8);
+    }
+
+    @Test
+    public void item_ids_are_not_stable_by_default() throws Exception {
+        assertFalse(classUnderTest.hasStableIds());
+        assertEquals(RecyclerView.NO_ID, classUnderTest.getItemId(0));
+    }
+
+    @Test
+    public void idExtractor_gives_stable_ids() throws Exception {
+        classUnderTest.setIdExtractor(new BaseRecyclerViewAdapter.IdExtractor<String>() {
+            @Override
+            public long getId(String item) {
+                return item.length();
+            }
+        });
+
+        assertTrue(classUnderTest.hasStableIds());
+        assertEquals(5L, classUnderTest.getItemId(0));
+        assertEquals(6L, classUnderTest.getItemId(1));
+    }
+
+    @Test
+    public void attached_recyclerViews_share_pool() throws Exception {
+        RecyclerView.RecycledViewPool pool = new RecyclerView.RecycledViewPool();
+        classUnderTest.setRecycledViewPool(pool);
+        RecyclerView first = new RecyclerView(RuntimeEnvironment.application);
+        RecyclerView second = new RecyclerView(RuntimeEnvironment.application);
+
+        first.setAdapter(classUnderTest);
+        second.setAdapter(classUnderTest);
+
+        assertSame(pool, first.getRecycledViewPool());
+        assertSame(pool, second.getRecycledViewPool());
+    }
+
+    @Test
+    public void initial_prefetch_count_is_set_on_layout_manager() throws Exception {
+        classUnderTest.setInitialPrefetchItemCount(6);
+        RecyclerView recyclerView = new RecyclerView(RuntimeEnvironment.application);
+        LinearLayoutManager layoutManager = new LinearLayoutManager(RuntimeEnvironment.application);
+        recyclerView.setLayoutManager(layoutManager);
+
+        recyclerView.setAdapter(classUnderTest);
+
+        assertEquals(6, layoutManager.getInitialPrefetchItemCount());
+    }
+
+    @Test
+    public void updateItem_notifies_change_with_payload() throws Exception {
+        RecordingObserver observer = new RecordingObserver();
+        classUnderTest.registerAdapterDataObserver(observer);
+
+        classUnderTest.updateItem(1, "progress");
+
+        assertEquals(1, observer.changed);
+        assertEquals(Arrays.<Object>asList("progress"), observer.payloads);
+    }
+
+    @Test
+    public void updateItem_replaces_item() throws Exception {
+        RecordingObserver observer = new RecordingObserver();
+        classUnderTest.registerAdapterDataObserver(observer);
+
+        String replaced = classUnderTest.updateItem(0, "updated", "name");
+
+        assertEquals("first", replaced);
+        assertEquals("updated", classUnderTest.getDataSet().get(0));
+        assertEquals(Arrays.<Object>asList("name"), observer.payloads);
+    }
+
+    @Test
+    public void updateItem_outside_data_set_throws_exception() throws Exception {
+        expectedException.expect(IndexOutOfBoundsException.class);
+
+        classUnderTest.updateItem(2, "progress");
+    }
+
+    @Test
+    public void bind_with_payloads_only_binds_changes() throws Exception {
+        PayloadAdapter adapter = new PayloadAdapter(defaultItems);
+        PlainViewHolder holder = adapter.createViewHolder(new FrameLayout(RuntimeEnvironment.application), 0);
+        List<Object> payloads = Arrays.<Object>asList("progress", "name");
+
+        adapter.onBindViewHolder(holder, 1, payloads);
+
+        assertEquals(0, adapter.fullBinds);
+        assertEquals(payloads, adapter.boundPayloads);
+    }
+
+    @Test
+    public void bind_without_payloads_binds_whole_item() throws Exception {
+        PayloadAdapter adapter = new PayloadAdapter(defaultItems);
+        PlainViewHolder holder = adapter.createViewHolder(new FrameLayout(RuntimeEnvironment.application), 0);
+
+        adapter.onBindViewHolder(holder, 1, new ArrayList<Object>());
+
+        assertEquals(1, adapter.fullBinds);
+        assertNull(adapter.boundPayloads);
+        assertEquals("second", holder.item);
+    }
+
+    @Test
+    public void unhandled_payloads_bind_whole_item() throws Exception {
+        PayloadAdapter adapter = new PayloadAdapter(defaultItems);
+        adapter.handlesPayloads = false;
+        PlainViewHolder holder = adapter.createViewHolder(new FrameLayout(RuntimeEnvironment.application), 0);
+
+        adapter.onBindViewHolder(holder, 0, Arrays.<Object>asList("progress"));
+
+        assertEquals(1, adapter.fullBinds);
+        assertEquals("first", holder.item);
+    }
+
+    /**
+     * Treats the text before the ':' as the id of the item.
+     */
+    private static class IdComparator implements BaseRecyclerViewAdapter.ItemComparator<String> {
+
+        @Override
+        public boolean areItemsTheSame(String oldItem, String newItem) {
+            return id(oldItem).equals(id(newItem));
+        }
+
+        @Override
+        public boolean areContentsTheSame(String oldItem, String newItem) {
+            return oldItem.equals(newItem);
+        }
+
+        private static String id(String item) {
+            return item.substring(0, item.indexOf(':'));
+        }
+    }
+
+    /**
+     * Holds executed runnables as the background work and posted runnables as the main thread work, and only runs them
+     * when the test asks it to.
+     */
+    private static class QueueingScheduler extends DirectUseCaseScheduler {
+
+        final List<Runnable> background = new ArrayList<>();
+
+        final List<Runnable> main = new ArrayList<>();
+
+        @Override
+        public void execute(Runnable runnable) {
+            background.add(runnable);
+        }
+
+        @Override
+        public void post(Runnable runnable) {
+            main.add(runnable);
+        }
+
+        void runBackground() {
+            run(background);
+        }
+
+        void runMain() {
+            run(main);
+        }
+
+        private static void run(List<Runnable> runnables) {
+            List<Runnable> queued = new ArrayList<>(runnables);
+            runnables.clear();
+            for (Runnable runnable : queued) {
+                runnable.run();
+            }
+        }
+    }
+
+    private static class PlainAdapter extends BaseRecyclerViewAdapter<String, PlainViewHolder> {
+
+        PlainAdapter(List<String> items) {
+            super(items);
+        }
+
+        @Override
+        protected PlainViewHolder onCreateItemViewHolder(ViewGroup parent, int viewType) {
+            return new PlainViewHolder(new View(parent.getContext()));
+        }
+
+        @Override
+        public void onBindViewHolder(PlainViewHolder holder, int position) {
+            holder.item = dataSet.get(position);
+        }
+    }
+
+    /**
+     * Records whether each bind was a full bind or only bound payloads.
+     */
+    private static class PayloadAdapter extends PlainAdapter {
+
+        int fullBinds = 0;
+        List<Object> boundPayloads;
+        boolean handlesPayloads = true;
+
+        PayloadAdapter(List<String> items) {
+            super(items);
+        }
+
+        @Override
+        public void onBindViewHolder(PlainViewHolder holder, int position) {
+            fullBinds++;
+            super.onBindViewHolder(holder, position);
+        }
+
+        @Override
+        protected boolean onBindPayloads(PlainViewHolder holder, int position, List<Object> payloads) {
+            boundPayloads = payloads;
+            return handlesPayloads;
+        }
+    }
+
+    private static class PlainViewHolder extends RecyclerView.ViewHolder {
+
+        String item;
+
+        PlainViewHolder(View itemView) {
+            super(itemView);
+        }
+    }
+
+    private static class RecordingCallback implements BaseRecyclerViewAdapter.Callback<String> {
+
+        String clicked;
+        int clickedPosition = -1;
+        String longClicked;
+
+        @Override
+        public void onItemClicked(String item, int position) {
+            clicked = item;
+            clickedPosition = position;
+        }
+
+        @Override
+        public void onItemLongClicked(String item, int position) {
+            longClicked = item;
+        }
+    }
+
+    /**
+     * Counts the number of items in each kind of change notification.
+     */
+    private static class RecordingObserver extends RecyclerView.AdapterDataObserver {
+
+        int dataSetChanges = 0;
+        int changed = 0;
+        int inserted = 0;
+        int removed = 0;
+        int moved = 0;
+        final List<String> ranges = new ArrayList<>();
+        final List<Object> payloads = new ArrayList<>();
+
+        @Override
+        public void onChanged() {
+            dataSetChanges++;
+        }
+
+        @Override
+        public void onItemRangeChanged(int positionStart, int itemCount) {
+            changed += itemCount;
+        }
+
+        @Override
+        public void onItemRangeChanged(int positionStart, int itemCount, Object payload) {
+            changed += itemCount;
+            payloads.add(payload);
+        }
+
+        @Override
+        public void onItemRangeInserted(int positionStart, int itemCount) {
+            inserted += itemCount;
+            ranges.add("inserted " + positionStart + "+" + itemCount);
+        }
+
+        @Override
+        public void onItemRangeRemoved(int positionStart, int itemCount) {
+            removed += itemCount;
+            ranges.add("removed " + positionStart + "+" + itemCount);
+        }
+
+        @Override
+        public void onItemRangeMoved(int fromPosition, int toPosition, int itemCount) {
+            moved += itemCount;
+        }
+    }
 }
\ No newline at end of file
@@ -0,0 +1,376 @@
+package com.scholefield.lee.androidtemplate.ui.recyclerview;
+
+import android.content.ContentValues;
+import android.database.Cursor;
+import android.database.MatrixCursor;
+import android.support.v7.widget.RecyclerView;
+import android.view.View;
+import android.view.ViewGroup;
+import com.scholefield.lee.androidtemplate.db.Database;
+import com.scholefield.lee.androidtemplate.db.DatabaseException;
+import com.scholefield.lee.androidtemplate.db.query.Query;
+import com.scholefield.lee.androidtemplate.db.query.SearchQuery;
+import com.scholefield.lee.androidtemplate.usecase.DirectUseCaseScheduler;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.RejectedExecutionException;
+
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.mock;
+
+/**
+ *
+ */
+@Config(manifest = Config.NONE)
+@RunWith(RobolectricTestRunner.class)
+public class CursorRecyclerViewAdapterTest {
+
+    private TableDatabase database;
+
+    private QueueingScheduler scheduler;
+
+    private NameAdapter classUnderTest;
+
+    @Before
+    public void setUp() throws Exception {
+        database = new TableDatabase();
+        for (int i = 0; i < 5; i++) {
+            database.rows.add(new Object[]{(long) i, "name " + i, 0L});
+        }
+        scheduler = new QueueingScheduler();
+        classUnderTest = new NameAdapter(database, "version");
+        classUnderTest.setScheduler(scheduler);
+    }
+
+    @Test
+    public void requery_loads_rows_on_background_thread() throws Exception {
+        classUnderTest.requery();
+
+        assertEquals(0, classUnderTest.getItemCount());
+
+        scheduler.runBackground();
+        assertEquals(0, classUnderTest.getItemCount());
+
+        scheduler.runMain();
+        assertEquals(5, classUnderTest.getItemCount());
+    }
+
+    @Test
+    public void item_ids_are_read_from_key_column() throws Exception {
+        database.rows.add(0, new Object[]{42L, "answer", 0L});
+        load();
+
+        assertTrue(classUnderTest.hasStableIds());
+        assertEquals(42L, classUnderTest.getItemId(0));
+        assertEquals(4L, classUnderTest.getItemId(5));
+    }
+
+    @Test
+    public void query_thread_leaves_cursor_on_first_row() throws Exception {
+        classUnderTest.requery();
+        scheduler.runBackground();
+
+        assertEquals(0, database.cursors.get(0).getPosition());
+    }
+
+    @Test
+    public void binds_row_at_position() throws Exception {
+        load();
+        NameViewHolder holder = new NameViewHolder(new View(RuntimeEnvironment.application));
+
+        classUnderTest.onBindViewHolder(holder, 3);
+
+        assertEquals("name 3", holder.name);
+    }
+
+    @Test
+    public void requery_only_notifies_changed_rows() throws Exception {
+        load();
+        database.rows.set(1, new Object[]{1L, "renamed", 1L});
+        database.rows.remove(3);
+        database.rows.add(new Object[]{5L, "name 5", 0L});
+        RecordingObserver observer = new RecordingObserver();
+        classUnderTest.registerAdapterDataObserver(observer);
+
+        load();
+
+        assertEquals(1, observer.changed);
+        assertEquals(1, observer.removed);
+        assertEquals(1, observer.inserted);
+        assertEquals(0, observer.dataSetChanges);
+    }
+
+    @Test
+    public void requery_without_version_column_rebinds_kept_rows() throws Exception {
+        classUnderTest = new NameAdapter(database, null);
+        classUnderTest.setScheduler(scheduler);
+        load();
+        database.rows.remove(3);
+        database.rows.add(new Object[]{5L, "name 5", 0L});
+        RecordingObserver observer = new RecordingObserver();
+        classUnderTest.registerAdapterDataObserver(observer);
+
+        load();
+
+        assertEquals(4, observer.changed);
+        assertEquals(1, observer.removed);
+        assertEquals(1, observer.inserted);
+        assertEquals(0, observer.dataSetChanges);
+    }
+
+    @Test
+    public void replaced_cursor_is_closed() throws Exception {
+        load();
+        Cursor first = classUnderTest.getCursor();
+
+        load();
+
+        assertTrue(first.isClosed());
+        assertFalse(classUnderTest.getCursor().isClosed());
+    }
+
+    @Test
+    public void superseded_query_is_discarded_and_closed() throws Exception {
+        classUnderTest.requery();
+        scheduler.runBackground();
+        classUnderTest.requery();
+        scheduler.runMain();
+
+        assertNull(classUnderTest.getCursor());
+        assertEquals(1, database.cursors.size());
+        assertTrue(database.cursors.get(0).isClosed());
+
+        scheduler.runBackground();
+        scheduler.runMain();
+
+        assertEquals(5, classUnderTest.getItemCount());
+        assertFalse(database.cursors.get(1).isClosed());
+    }
+
+    @Test
+    public void swapCursor_discards_pending_query() throws Exception {
+        MatrixCursor cursor = new MatrixCursor(new String[]{"_id", "name", "version"});
+        cursor.addRow(new Object[]{7L, "swapped", 0L});
+
+        classUnderTest.requery();
+        classUnderTest.swapCursor(cursor);
+        scheduler.runBackground();
+        scheduler.runMain();
+
+        assertSame(cursor, classUnderTest.getCursor());
+        assertEquals(1, classUnderTest.getItemCount());
+    }
+
+    @Test
+    public void close_closes_cursor_and_removes_rows() throws Exception {
+        load();
+        Cursor cursor = classUnderTest.getCursor();
+
+        classUnderTest.close();
+
+        assertTrue(cursor.isClosed());
+        assertEquals(0, classUnderTest.getItemCount());
+    }
+
+    @Test
+    public void failed_query_keeps_old_rows() throws Exception {
+        load();
+        database.fail = true;
+
+        load();
+
+        assertEquals(5, classUnderTest.getItemCount());
+        assertEquals(1, classUnderTest.failures);
+    }
+
+    @Test
+    public void error_while_reading_rows_keeps_old_rows() throws Exception {
+        load();
+        database.columns = new String[]{"id", "name", "version"};
+
+        load();
+
+        assertEquals(5, classUnderTest.getItemCount());
+        assertEquals(1, classUnderTest.failures);
+        assertTrue(database.cursors.get(1).isClosed());
+    }
+
+    @Test
+    public void rejected_query_is_not_run_on_calling_thread() throws Exception {
+        load();
+        scheduler.rejecting = true;
+
+        classUnderTest.requery();
+
+        assertEquals(1, database.cursors.size());
+        assertEquals(5, classUnderTest.getItemCount());
+        assertEquals(1, classUnderTest.failures);
+    }
+
+    private void load() {
+        classUnderTest.requery();
+        scheduler.runBackground();
+        scheduler.runMain();
+    }
+
+    private static class NameAdapter extends CursorRecyclerViewAdapter<NameViewHolder> {
+
+        int failures = 0;
+
+        NameAdapter(Database database, String versionColumn) {
+            super(database, new SearchQuery("names").setOrderBy("_id"), "_id", versionColumn);
+        }
+
+        @Override
+        public NameViewHolder onCreateViewHolder(ViewGroup parent, int viewType) {
+            return new NameViewHolder(new View(parent.getContext()));
+        }
+
+        @Override
+        public void onBindViewHolder(NameViewHolder holder, Cursor cursor) {
+            holder.name = cursor.getString(1);
+        }
+
+        @Override
+        protected void onQueryFailed(Exception error) {
+            failures++;
+        }
+    }
+
+    private static class NameViewHolder extends RecyclerView.ViewHolder {
+
+        String name;
+
+        NameViewHolder(View itemView) {
+            super(itemView);
+        }
+    }
+
+    /**
+     * Returns a new cursor over {@link #rows} for every query.
+     */
+    private static class TableDatabase implements Database {
+
+        final List<Object[]> rows = new ArrayList<>();
+
+        final List<Cursor> cursors = new ArrayList<>();
+
+        boolean fail = false;
+
+        String[] columns = {"_id", "name", "version"};
+
+        @Override
+        public Cursor get(Query query) throws DatabaseException {
+            if (fail) {
+                throw mock(DatabaseException.class);
+            }
+
+            MatrixCursor cursor = new MatrixCursor(columns);
+            for (Object[] row : rows) {
+                cursor.addRow(row);
+            }
+            cursors.add(cursor);
+            return cursor;
+        }
+
+        @Override
+        public long insert(String table, ContentValues data) throws DatabaseException {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void delete(Query query) throws DatabaseException {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void update(Query query) throws DatabaseException {
+            throw new UnsupportedOperationException();
+        }
+    }
+
+    /**
+     * Holds executed runnables as the background work and posted runnables as the main thread work, and only runs them
+     * when the test asks it to.
+     */
+    private static class QueueingScheduler extends DirectUseCaseScheduler {
+
+        final List<Runnable> background = new ArrayList<>();
+
+        final List<Runnable> main = new ArrayList<>();
+
+        boolean rejecting = false;
+
+        @Override
+        public void execute(Runnable runnable) {
+            if (rejecting) {
+                throw new RejectedExecutionException();
+            }
+            background.add(runnable);
+        }
+
+        @Override
+        public void post(Runnable runnable) {
+            main.add(runnable);
+        }
+
+        void runBackground() {
+            run(background);
+        }
+
+        void runMain() {
+            run(main);
+        }
+
+        private static void run(List<Runnable> runnables) {
+            List<Runnable> queued = new ArrayList<>(runnables);
+            runnables.clear();
+            for (Runnable runnable : queued) {
+                runnable.run();
+            }
+        }
+    }
+
+    /**
+     * Counts the number of items in each kind of change notification.
+     */
+    private static class RecordingObserver extends RecyclerView.AdapterDataObserver {
+
+        int dataSetChanges = 0;
+        int changed = 0;
+        int inserted = 0;
+        int removed = 0;
+
+        @Override
+        public void onChanged() {
+            dataSetChanges++;
+        }
+
+        @Override
+        public void onItemRangeChanged(int positionStart, int itemCount) {
+            changed += itemCount;
+        }
+
+        @Override
+        public void onItemRangeChanged(int positionStart, int itemCount, Object payload) {
+            changed += itemCount;
+        }
+
+        @Override
+        public void onItemRangeInserted(int positionStart, int itemCount) {
+            inserted += itemCount;
+        }
+
+        @Override
+        public void onItemRangeRemoved(int positionStart, int itemCount) {
+            removed += itemCount;
+        }
+    }
+}
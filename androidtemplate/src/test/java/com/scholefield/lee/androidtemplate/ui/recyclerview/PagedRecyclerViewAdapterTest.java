@@ -0,0 +1,370 @@
+package com.scholefield.lee.androidtemplate.ui.recyclerview;
+
+import android.support.v7.widget.RecyclerView;
+import android.view.View;
+import android.view.ViewGroup;
+import com.scholefield.lee.androidtemplate.db.DataAccessor;
+import com.scholefield.lee.androidtemplate.db.DataReader;
+import com.scholefield.lee.androidtemplate.db.DataWriter;
+import com.scholefield.lee.androidtemplate.db.query.DeleteQuery;
+import com.scholefield.lee.androidtemplate.db.query.SearchQuery;
+import com.scholefield.lee.androidtemplate.usecase.DirectUseCaseScheduler;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.junit.Assert.*;
+
+/**
+ *
+ */
+@Config(manifest = Config.NONE)
+@RunWith(RobolectricTestRunner.class)
+public class PagedRecyclerViewAdapterTest {
+
+    private static final int PAGE_SIZE = 50;
+
+    private TableAccessor accessor;
+
+    private QueueingScheduler scheduler;
+
+    private StringAdapter classUnderTest;
+
+    @Before
+    public void setUp() throws Exception {
+        accessor = new TableAccessor(1000);
+        scheduler = new QueueingScheduler();
+        classUnderTest = new StringAdapter(accessor, PAGE_SIZE);
+        classUnderTest.setScheduler(scheduler);
+    }
+
+    @Test
+    public void first_page_is_loaded_when_attached() throws Exception {
+        classUnderTest.setPrefetchDistance(0);
+        new RecyclerView(RuntimeEnvironment.application).setAdapter(classUnderTest);
+
+        assertEquals(0, classUnderTest.getItemCount());
+
+        scheduler.runAll();
+
+        assertEquals(PAGE_SIZE, classUnderTest.getItemCount());
+        assertEquals("row 0", classUnderTest.getItem(0));
+        assertEquals(1, accessor.queries.size());
+    }
+
+    @Test
+    public void binding_near_the_end_loads_next_page() throws Exception {
+        attach();
+
+        bind(PAGE_SIZE - 1);
+        scheduler.runAll();
+
+        assertEquals(PAGE_SIZE * 2, classUnderTest.getItemCount());
+        assertEquals("row 60", classUnderTest.getItem(60));
+    }
+
+    @Test
+    public void reading_the_data_set_does_not_load_pages() throws Exception {
+        attach();
+        int queries = accessor.queries.size();
+
+        assertEquals(-1, classUnderTest.dataSet.indexOf("row 999"));
+        scheduler.runAll();
+
+        assertEquals(queries, accessor.queries.size());
+        assertEquals(PAGE_SIZE * 2, classUnderTest.getItemCount());
+    }
+
+    @Test
+    public void item_is_null_until_its_page_arrives() throws Exception {
+        classUnderTest.setPrefetchDistance(0);
+        classUnderTest.setMaxPages(1);
+        attach();
+        bind(PAGE_SIZE - 1);
+        scheduler.runAll();
+        bind(PAGE_SIZE);
+        scheduler.runAll();
+
+        assertEquals(1, classUnderTest.getLoadedPageCount());
+        bind(0);
+        assertNull(classUnderTest.getItem(0));
+
+        scheduler.runAll();
+
+        assertEquals("row 0", classUnderTest.getItem(0));
+    }
+
+    @Test
+    public void page_load_stops_at_end_of_table() throws Exception {
+        accessor = new TableAccessor(120);
+        classUnderTest = new StringAdapter(accessor, PAGE_SIZE);
+        classUnderTest.setScheduler(scheduler);
+        attach();
+
+        for (int i = 0; i < 10; i++) {
+            bind(classUnderTest.getItemCount() - 1);
+            scheduler.runAll();
+        }
+
+        assertEquals(120, classUnderTest.getItemCount());
+        assertEquals(3, accessor.queries.size());
+    }
+
+    @Test
+    public void memory_is_bounded_while_scrolling_through_large_table() throws Exception {
+        accessor = new TableAccessor(100000);
+        classUnderTest = new StringAdapter(accessor, PAGE_SIZE);
+        classUnderTest.setScheduler(scheduler);
+        classUnderTest.setMaxPages(4);
+        attach();
+
+        int maxLoaded = 0;
+        int placeholders = 0;
+        for (int position = 0; position < 100000; position++) {
+            assertTrue(position < classUnderTest.getItemCount());
+            bind(position);
+            if (classUnderTest.getItem(position) == null) {
+                placeholders++;
+            }
+            scheduler.runAll();
+            maxLoaded = Math.max(maxLoaded, classUnderTest.getLoadedPageCount());
+        }
+
+        assertEquals(100000, classUnderTest.getItemCount());
+        assertEquals(100000 / PAGE_SIZE + 1, accessor.queries.size());
+        assertTrue(maxLoaded <= 4);
+        assertEquals(0, placeholders);
+    }
+
+    @Test
+    public void reloaded_page_notifies_changed_items() throws Exception {
+        attach();
+        classUnderTest.setMaxPages(1);
+        classUnderTest.setPrefetchDistance(0);
+        bind(PAGE_SIZE - 1);
+        scheduler.runAll();
+        bind(PAGE_SIZE);
+        scheduler.runAll();
+
+        RecordingObserver observer = new RecordingObserver();
+        classUnderTest.registerAdapterDataObserver(observer);
+        bind(0);
+        assertNull(classUnderTest.getItem(0));
+        scheduler.runAll();
+
+        assertEquals(PAGE_SIZE, observer.changed);
+        assertEquals(0, observer.inserted);
+    }
+
+    @Test
+    public void refresh_discards_pages_that_are_loading() throws Exception {
+        attach();
+        bind(PAGE_SIZE - 1);
+        scheduler.runBackground();
+
+        classUnderTest.refresh();
+        scheduler.runAll();
+
+        assertEquals(PAGE_SIZE * 2, classUnderTest.getItemCount());
+        assertEquals("row 99", classUnderTest.getItem(99));
+    }
+
+    @Test
+    public void failed_first_page_is_loaded_again_on_refresh() throws Exception {
+        accessor.failures = 1;
+        attach();
+
+        assertEquals(0, classUnderTest.getItemCount());
+        assertEquals(1, classUnderTest.failures);
+
+        classUnderTest.refresh();
+        scheduler.runAll();
+
+        assertEquals(PAGE_SIZE * 2, classUnderTest.getItemCount());
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void replaceAll_throws_exception() throws Exception {
+        classUnderTest.replaceAll(new ArrayList<String>());
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void setIdExtractor_throws_exception() throws Exception {
+        classUnderTest.setIdExtractor(new BaseRecyclerViewAdapter.IdExtractor<String>() {
+            @Override
+            public long getId(String item) {
+                return item.hashCode();
+            }
+        });
+    }
+
+    private void attach() {
+        new RecyclerView(RuntimeEnvironment.application).setAdapter(classUnderTest);
+        scheduler.runAll();
+    }
+
+    private void bind(int position) {
+        RecyclerView.ViewHolder holder = new RecyclerView.ViewHolder(new View(RuntimeEnvironment.application)) {
+        };
+        classUnderTest.onBindViewHolder(holder, position, Collections.emptyList());
+    }
+
+    private static class StringAdapter extends PagedRecyclerViewAdapter<String, RecyclerView.ViewHolder> {
+
+        int failures = 0;
+
+        StringAdapter(DataAccessor<String> dataAccessor, int pageSize) {
+            super(dataAccessor, new SearchQuery("rows").setOrderBy("_id"), pageSize);
+        }
+
+        @Override
+        protected RecyclerView.ViewHolder onCreateItemViewHolder(ViewGroup parent, int viewType) {
+            return new RecyclerView.ViewHolder(new View(parent.getContext())) {
+            };
+        }
+
+        @Override
+        public void onBindViewHolder(RecyclerView.ViewHolder holder, int position) {
+            getItem(position);
+        }
+
+        @Override
+        protected void onPageLoadFailed(int page, RuntimeException error) {
+            failures++;
+        }
+    }
+
+    /**
+     * A table of {@code size} rows, each read as "row " followed by its position.
+     */
+    private static class TableAccessor implements DataAccessor<String> {
+
+        private static final Pattern PAGE = Pattern.compile("LIMIT (\\d+) OFFSET (\\d+)");
+
+        final List<String> queries = new ArrayList<>();
+
+        final int size;
+
+        int failures = 0;
+
+        TableAccessor(int size) {
+            this.size = size;
+        }
+
+        @Override
+        public List<String> get(SearchQuery query, boolean forceUpdate) {
+            queries.add(query.getQuery());
+            if (failures > 0) {
+                failures--;
+                throw new RuntimeException("Could not read the database");
+            }
+
+            Matcher matcher = PAGE.matcher(query.getQuery());
+            assertTrue(matcher.find());
+            int limit = Integer.parseInt(matcher.group(1));
+            int offset = Integer.parseInt(matcher.group(2));
+
+            List<String> rows = new ArrayList<>();
+            for (int i = offset; i < Math.min(size, offset + limit); i++) {
+                rows.add("row " + i);
+            }
+            return rows;
+        }
+
+        @Override
+        public List<String> get(SearchQuery query, boolean forceUpdate, DataReader<String> reader) {
+            return get(query, forceUpdate);
+        }
+
+        @Override
+        public void put(String obj, String table) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void put(String obj, String table, DataWriter<String> writer) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void remove(DeleteQuery query) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void setDefaultWriter(DataWriter<String> writer) {
+        }
+
+        @Override
+        public void setDefaultReader(DataReader<String> reader) {
+        }
+    }
+
+    /**
+     * Holds executed runnables as the background work and posted runnables as the main thread work, and only runs them
+     * when the test asks it to.
+     */
+    private static class QueueingScheduler extends DirectUseCaseScheduler {
+
+        final List<Runnable> background = new ArrayList<>();
+
+        final List<Runnable> main = new ArrayList<>();
+
+        @Override
+        public void execute(Runnable runnable) {
+            background.add(runnable);
+        }
+
+        @Override
+        public void post(Runnable runnable) {
+            main.add(runnable);
+        }
+
+        void runBackground() {
+            run(background);
+        }
+
+        /**
+         * Runs the background work and then the main thread work until there is none left.
+         */
+        void runAll() {
+            while (!background.isEmpty() || !main.isEmpty()) {
+                run(background);
+                run(main);
+            }
+        }
+
+        private static void run(List<Runnable> runnables) {
+            List<Runnable> queued = new ArrayList<>(runnables);
+            runnables.clear();
+            for (Runnable runnable : queued) {
+                runnable.run();
+            }
+        }
+    }
+
+    private static class RecordingObserver extends RecyclerView.AdapterDataObserver {
+
+        int changed = 0;
+        int inserted = 0;
+
+        @Override
+        public void onItemRangeChanged(int positionStart, int itemCount) {
+            changed += itemCount;
+        }
+
+        @Override
+        public void onItemRangeInserted(int positionStart, int itemCount) {
+            inserted += itemCount;
+        }
+    }
+}
@@ -0,0 +1,236 @@
+package com.scholefield.lee.androidtemplate.ui.recyclerview;
+
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.graphics.ColorFilter;
+import android.graphics.Paint;
+import android.graphics.PixelFormat;
+import android.graphics.drawable.Drawable;
+import android.view.View;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+
+import static org.junit.Assert.*;
+import static org.junit.Assume.assumeTrue;
+
+/**
+ *
+ */
+@Config(manifest = Config.NONE)
+@RunWith(RobolectricTestRunner.class)
+public class SwipeDecorationTest {
+
+    private View itemView;
+
+    private RecordingCanvas canvas;
+
+    private RecordingDrawable icon;
+
+    private SwipeDecoration classUnderTest;
+
+    @Before
+    public void setUp() throws Exception {
+        itemView = new View(RuntimeEnvironment.application);
+        itemView.layout(0, 100, 1000, 200);
+        canvas = new RecordingCanvas();
+        icon = new RecordingDrawable(40);
+
+        classUnderTest = new SwipeDecoration.Builder()
+                .setLeftBackgroundColor(Color.RED)
+                .setLeftIcon(icon)
+                .setLeftLabel("Delete", Color.WHITE, 20)
+                .setMargin(10)
+                .build();
+    }
+
+    @Test
+    public void left_swipe_fills_revealed_area() throws Exception {
+        classUnderTest.drawLeftSwipe(canvas, itemView, -300);
+
+        assertEquals(1, canvas.rects);
+        assertEquals(700, canvas.left, 0);
+        assertEquals(100, canvas.top, 0);
+        assertEquals(1000, canvas.right, 0);
+        assertEquals(200, canvas.bottom, 0);
+        assertEquals(Color.RED, canvas.paint.getColor());
+    }
+
+    @Test
+    public void left_swipe_draws_icon_and_label_from_right_edge() throws Exception {
+        classUnderTest.drawLeftSwipe(canvas, itemView, -300);
+
+        assertEquals(1, icon.draws);
+        assertEquals(950, icon.getBounds().left);
+        assertEquals(130, icon.getBounds().top);
+        assertEquals(990, icon.getBounds().right);
+        assertEquals(170, icon.getBounds().bottom);
+
+        assertEquals(1, canvas.texts);
+        assertEquals("Delete", canvas.text);
+        assertTrue(canvas.textX < 940);
+    }
+
+    @Test
+    public void right_swipe_uses_right_side() throws Exception {
+        classUnderTest = new SwipeDecoration.Builder()
+                .setRightBackgroundColor(Color.BLUE)
+                .build();
+
+        classUnderTest.drawRightSwipe(canvas, itemView, 250);
+
+        assertEquals(1, canvas.rects);
+        assertEquals(0, canvas.left, 0);
+        assertEquals(250, canvas.right, 0);
+        assertEquals(Color.BLUE, canvas.paint.getColor());
+        assertEquals(0, canvas.texts);
+    }
+
+    @Test
+    public void nothing_is_drawn_when_not_swiped() throws Exception {
+        classUnderTest.drawLeftSwipe(canvas, itemView, 0);
+
+        assertEquals(0, canvas.saves);
+        assertEquals(0, canvas.rects);
+        assertEquals(0, icon.draws);
+    }
+
+    @Test
+    public void canvas_is_restored_after_drawing() throws Exception {
+        classUnderTest.drawLeftSwipe(canvas, itemView, -300);
+
+        assertEquals(1, canvas.saves);
+        assertEquals(0, canvas.saveCount);
+    }
+
+    @Test
+    public void icon_without_intrinsic_size_uses_default_size() throws Exception {
+        RecordingDrawable unsized = new RecordingDrawable(-1);
+        classUnderTest = new SwipeDecoration.Builder()
+                .setRightIcon(unsized)
+                .setDefaultIconSize(24)
+                .build();
+
+        classUnderTest.drawRightSwipe(canvas, itemView, 300);
+
+        assertEquals(24, unsized.getBounds().width());
+        assertEquals(24, unsized.getBounds().height());
+    }
+
+    @Test
+    public void drawing_swipe_frames_does_not_allocate() throws Exception {
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        assumeTrue(threads instanceof com.sun.management.ThreadMXBean);
+        com.sun.management.ThreadMXBean allocations = (com.sun.management.ThreadMXBean) threads;
+        long thread = Thread.currentThread().getId();
+
+        for (int i = 1; i <= 1000; i++) {
+            classUnderTest.drawLeftSwipe(canvas, itemView, -i);
+        }
+
+        long before = allocations.getThreadAllocatedBytes(thread);
+        for (int i = 1; i <= 1000; i++) {
+            classUnderTest.drawLeftSwipe(canvas, itemView, -i);
+        }
+        long allocated = allocations.getThreadAllocatedBytes(thread) - before;
+
+        // a new Paint for every frame would be well over 50KB
+        assertTrue(allocated < 1000 * 8);
+    }
+
+    /**
+     * Records what is drawn on it instead of drawing it.
+     */
+    private static class RecordingCanvas extends Canvas {
+
+        int saves = 0;
+        int saveCount = 0;
+        int rects = 0;
+        int texts = 0;
+        float left, top, right, bottom;
+        Paint paint;
+        String text;
+        float textX;
+
+        @Override
+        public int save() {
+            saves++;
+            return saveCount++;
+        }
+
+        @Override
+        public void restoreToCount(int saveCount) {
+            this.saveCount = saveCount;
+        }
+
+        @Override
+        public boolean clipRect(float left, float top, float right, float bottom) {
+            return true;
+        }
+
+        @Override
+        public void drawRect(float left, float top, float right, float bottom, Paint paint) {
+            rects++;
+            this.left = left;
+            this.top = top;
+            this.right = right;
+            this.bottom = bottom;
+            this.paint = paint;
+        }
+
+        @Override
+        public void drawText(String text, float x, float y, Paint paint) {
+            texts++;
+            this.text = text;
+            this.textX = x;
+        }
+    }
+
+    /**
+     * Square drawable that counts how many times it is drawn.
+     */
+    private static class RecordingDrawable extends Drawable {
+
+        private final int size;
+
+        int draws = 0;
+
+        RecordingDrawable(int size) {
+            this.size = size;
+        }
+
+        @Override
+        public void draw(Canvas canvas) {
+            draws++;
+        }
+
+        @Override
+        public int getIntrinsicWidth() {
+            return size;
+        }
+
+        @Override
+        public int getIntrinsicHeight() {
+            return size;
+        }
+
+        @Override
+        public void setAlpha(int alpha) {
+        }
+
+        @Override
+        public void setColorFilter(ColorFilter colorFilter) {
+        }
+
+        @Override
+        public int getOpacity() {
+            return PixelFormat.TRANSLUCENT;
+        }
+    }
+}
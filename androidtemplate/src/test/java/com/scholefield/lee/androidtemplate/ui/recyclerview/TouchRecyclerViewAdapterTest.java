@@ -9,6 +9,7 @@ import org.robolectric.RobolectricTestRunner;
 import org.robolectric.annotation.Config;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
 import static org.junit.Assert.*;
@@ -22,13 +23,16 @@ public class TouchRecyclerViewAdapterTest {
 
     private TouchRecyclerViewAdapterImp classUnderTest;
 
+    private List<int[]> finishedDrags;
+
     @Before
     public void setUp() throws Exception {
         List<String> defaultItems = new ArrayList<>();
         defaultItems.add("first");
         defaultItems.add("second");
 
-        classUnderTest = new TouchRecyclerViewAdapterImp(defaultItems);
+        finishedDrags = new ArrayList<>();
+        classUnderTest = new RecordingAdapter(defaultItems);
     }
 
     @Test
@@ -38,6 +42,81 @@ public class TouchRecyclerViewAdapterTest {
         assertEquals("first", classUnderTest.getDataSet().get(1));
     }
 
+    @Test
+    public void moveItem_over_several_positions_shifts_items_in_between() throws Exception {
+        classUnderTest = new RecordingAdapter(new ArrayList<>(Arrays.asList("a", "b", "c", "d", "e")));
+
+        classUnderTest.onItemMove(0, 3);
+
+        assertEquals(Arrays.asList("b", "c", "d", "a", "e"), classUnderTest.getDataSet());
+
+        classUnderTest.onItemMove(4, 1);
+
+        assertEquals(Arrays.asList("b", "e", "c", "d", "a"), classUnderTest.getDataSet());
+    }
+
+    @Test
+    public void long_drag_is_reported_once_when_dropped() throws Exception {
+        List<String> items = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            items.add("item " + i);
+        }
+        classUnderTest = new RecordingAdapter(items);
+
+        for (int i = 0; i < 99; i++) {
+            classUnderTest.onItemMove(i, i + 1);
+        }
+        assertTrue(finishedDrags.isEmpty());
+
+        classUnderTest.onItemDropped();
+
+        assertEquals(1, finishedDrags.size());
+        assertArrayEquals(new int[]{0, 99}, finishedDrags.get(0));
+        assertEquals("item 0", classUnderTest.getDataSet().get(99));
+        assertEquals("item 1", classUnderTest.getDataSet().get(0));
+    }
+
+    @Test
+    public void drag_back_to_start_is_not_reported() throws Exception {
+        classUnderTest.onItemMove(0, 1);
+        classUnderTest.onItemMove(1, 0);
+        classUnderTest.onItemDropped();
+
+        assertTrue(finishedDrags.isEmpty());
+    }
+
+    @Test
+    public void drop_without_drag_is_not_reported() throws Exception {
+        new SimpleItemTouchHelperCallback(classUnderTest).clearView(null, null);
+
+        assertTrue(finishedDrags.isEmpty());
+    }
 
+    @Test
+    public void each_drag_is_reported_separately() throws Exception {
+        SimpleItemTouchHelperCallback callback = new SimpleItemTouchHelperCallback(classUnderTest);
 
+        classUnderTest.onItemMove(0, 1);
+        callback.clearView(null, null);
+        classUnderTest.onItemMove(1, 0);
+        callback.clearView(null, null);
+
+        assertEquals(2, finishedDrags.size());
+        assertArrayEquals(new int[]{1, 0}, finishedDrags.get(1));
+    }
+
+    /**
+     * Records the drags passed to {@link #onDragFinished}.
+     */
+    private class RecordingAdapter extends TouchRecyclerViewAdapterImp {
+
+        RecordingAdapter(List<String> items) {
+            super(items);
+        }
+
+        @Override
+        protected void onDragFinished(int fromPosition, int toPosition) {
+            finishedDrags.add(new int[]{fromPosition, toPosition});
+        }
+    }
 }
\ No newline at end of file
@@ -0,0 +1,110 @@
+package com.scholefield.lee.androidtemplate.usecase;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+/**
+ *
+ */
+public class CircuitBreakerTest {
+
+    private long now = 0;
+
+    private CircuitBreaker classUnderTest;
+
+    @Before
+    public void setUp() throws Exception {
+        classUnderTest = new CircuitBreaker(3, 10, TimeUnit.SECONDS);
+    }
+
+    @Test
+    public void opens_after_threshold_consecutive_failures() throws Exception {
+        fail(2);
+        assertEquals(CircuitBreaker.State.CLOSED, classUnderTest.getState());
+        assertTrue(classUnderTest.allowExecution(now));
+
+        fail(1);
+
+        assertEquals(CircuitBreaker.State.OPEN, classUnderTest.getState());
+        assertFalse(classUnderTest.allowExecution(now));
+    }
+
+    @Test
+    public void success_resets_failure_count() throws Exception {
+        fail(2);
+        classUnderTest.onSuccess();
+        fail(2);
+
+        assertEquals(CircuitBreaker.State.CLOSED, classUnderTest.getState());
+    }
+
+    @Test
+    public void allows_single_trial_once_open_duration_has_elapsed() throws Exception {
+        fail(3);
+        now += TimeUnit.SECONDS.toNanos(10);
+
+        assertTrue(classUnderTest.allowExecution(now));
+        assertEquals(CircuitBreaker.State.HALF_OPEN, classUnderTest.getState());
+        assertFalse(classUnderTest.allowExecution(now));
+    }
+
+    @Test
+    public void successful_trial_closes_breaker() throws Exception {
+        fail(3);
+        now += TimeUnit.SECONDS.toNanos(10);
+        classUnderTest.allowExecution(now);
+
+        classUnderTest.onSuccess();
+
+        assertEquals(CircuitBreaker.State.CLOSED, classUnderTest.getState());
+    }
+
+    @Test
+    public void failed_trial_reopens_breaker() throws Exception {
+        fail(3);
+        now += TimeUnit.SECONDS.toNanos(10);
+        classUnderTest.allowExecution(now);
+
+        classUnderTest.onFailure(now);
+
+        assertEquals(CircuitBreaker.State.OPEN, classUnderTest.getState());
+        now += TimeUnit.SECONDS.toNanos(9);
+        assertFalse(classUnderTest.allowExecution(now));
+    }
+
+    @Test
+    public void released_trial_reopens_breaker_and_allows_another_trial() throws Exception {
+        fail(3);
+        now += TimeUnit.SECONDS.toNanos(10);
+        classUnderTest.allowExecution(now);
+
+        classUnderTest.release();
+
+        assertEquals(CircuitBreaker.State.OPEN, classUnderTest.getState());
+        assertTrue(classUnderTest.allowExecution(now));
+        assertEquals(CircuitBreaker.State.HALF_OPEN, classUnderTest.getState());
+    }
+
+    @Test
+    public void release_does_not_change_closed_breaker() throws Exception {
+        fail(2);
+
+        assertTrue(classUnderTest.allowExecution(now));
+        classUnderTest.release();
+
+        assertEquals(CircuitBreaker.State.CLOSED, classUnderTest.getState());
+        fail(1);
+        assertEquals(CircuitBreaker.State.OPEN, classUnderTest.getState());
+    }
+
+    private void fail(int times) {
+        for (int i = 0; i < times; i++) {
+            assertTrue(classUnderTest.allowExecution(now));
+            classUnderTest.onFailure(now);
+        }
+    }
+}
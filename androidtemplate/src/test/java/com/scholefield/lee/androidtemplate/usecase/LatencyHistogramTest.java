@@ -0,0 +1,91 @@
+package com.scholefield.lee.androidtemplate.usecase;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ *
+ */
+public class LatencyHistogramTest {
+
+    private LatencyHistogram classUnderTest;
+
+    @Before
+    public void setUp() throws Exception {
+        classUnderTest = new LatencyHistogram();
+    }
+
+    @Test
+    public void small_values_are_recorded_exactly() throws Exception {
+        for (long value = 0; value < 16; value++) {
+            assertEquals(value, LatencyHistogram.bucketUpperBound(LatencyHistogram.bucketIndex(value)));
+        }
+    }
+
+    @Test
+    public void bucket_upper_bound_is_within_one_eighth_of_value() throws Exception {
+        for (long value = 16; value < (1L << 40); value = value * 3 / 2 + 1) {
+            long upper = LatencyHistogram.bucketUpperBound(LatencyHistogram.bucketIndex(value));
+
+            assertTrue(upper >= value);
+            assertTrue((upper - value) <= value / 8);
+        }
+    }
+
+    @Test
+    public void bucket_indexes_are_ordered() throws Exception {
+        int previous = -1;
+        for (long value = 0; value < 100000; value++) {
+            int index = LatencyHistogram.bucketIndex(value);
+            assertTrue(index >= previous);
+            previous = index;
+        }
+    }
+
+    @Test
+    public void very_large_values_are_recorded_in_last_bucket() throws Exception {
+        classUnderTest.record(Long.MAX_VALUE);
+
+        assertEquals(1, classUnderTest.snapshot().getCount());
+        assertEquals(Long.MAX_VALUE, classUnderTest.snapshot().getMax());
+    }
+
+    @Test
+    public void snapshot_returns_percentiles() throws Exception {
+        for (int i = 1; i <= 1000; i++) {
+            classUnderTest.record(i * 1000L);
+        }
+
+        LatencyHistogram.Snapshot snapshot = classUnderTest.snapshot();
+
+        assertEquals(1000, snapshot.getCount());
+        assertEquals(500500, snapshot.getMean());
+        assertEquals(1000000, snapshot.getMax());
+        assertWithinOneEighth(500000, snapshot.getPercentile(50));
+        assertWithinOneEighth(990000, snapshot.getPercentile(99));
+        assertEquals(1000000, snapshot.getPercentile(100));
+    }
+
+    @Test
+    public void negative_values_are_recorded_as_zero() throws Exception {
+        classUnderTest.record(-5);
+
+        assertEquals(0, classUnderTest.snapshot().getPercentile(100));
+    }
+
+    @Test
+    public void reset_removes_all_values() throws Exception {
+        classUnderTest.record(100);
+        classUnderTest.reset();
+
+        LatencyHistogram.Snapshot snapshot = classUnderTest.snapshot();
+        assertEquals(0, snapshot.getCount());
+        assertEquals(0, snapshot.getPercentile(50));
+    }
+
+    private static void assertWithinOneEighth(long expected, long actual) {
+        assertTrue("expected ~" + expected + " got " + actual, Math.abs(actual - expected) <= expected / 8);
+    }
+}
@@ -0,0 +1,283 @@
+package com.scholefield.lee.androidtemplate.usecase;
+
+import android.database.sqlite.SQLiteDatabaseLockedException;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+/**
+ *
+ */
+@Config(manifest = Config.NONE)
+@RunWith(RobolectricTestRunner.class)
+public class RetryPolicyTest {
+
+    private UseCaseMetrics metrics;
+
+    @Before
+    public void setUp() throws Exception {
+        metrics = new UseCaseMetrics();
+    }
+
+    @Test
+    public void delay_grows_by_multiplier_up_to_max_delay() throws Exception {
+        RetryPolicy policy = new RetryPolicy.Builder()
+                .setInitialDelay(100, TimeUnit.MILLISECONDS)
+                .setMaxDelay(350, TimeUnit.MILLISECONDS)
+                .setMultiplier(2)
+                .setJitter(0)
+                .build();
+
+        assertEquals(TimeUnit.MILLISECONDS.toNanos(100), policy.getDelayNanos(1));
+        assertEquals(TimeUnit.MILLISECONDS.toNanos(200), policy.getDelayNanos(2));
+        assertEquals(TimeUnit.MILLISECONDS.toNanos(350), policy.getDelayNanos(3));
+    }
+
+    @Test
+    public void jitter_only_reduces_delay() throws Exception {
+        RetryPolicy policy = new RetryPolicy.Builder()
+                .setInitialDelay(100, TimeUnit.MILLISECONDS)
+                .setJitter(0.5)
+                .build();
+
+        for (int i = 0; i < 100; i++) {
+            long delay = policy.getDelayNanos(1);
+            assertTrue(delay <= TimeUnit.MILLISECONDS.toNanos(100));
+            assertTrue(delay >= TimeUnit.MILLISECONDS.toNanos(50));
+        }
+    }
+
+    @Test
+    public void database_locked_condition_checks_cause_chain() throws Exception {
+        RetryPolicy policy = new RetryPolicy.Builder().setRetryCondition(RetryPolicy.DATABASE_LOCKED).build();
+
+        assertTrue(policy.shouldRetry(1, new RuntimeException(new SQLiteDatabaseLockedException())));
+        assertFalse(policy.shouldRetry(1, new IllegalStateException()));
+        assertFalse(policy.shouldRetry(1, null));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void builder_throws_exception_when_max_attempts_is_zero() throws Exception {
+        new RetryPolicy.Builder().setMaxAttempts(0);
+    }
+
+    @Test
+    public void use_case_is_retried_until_it_succeeds() throws Exception {
+        FlakyUseCase useCase = new FlakyUseCase(2, false);
+        RecordingCallback callback = new RecordingCallback();
+
+        handlerWith(retryPolicy(3), null).execute(useCase, new TestUseCase.TestRequestValues(false), callback);
+
+        assertEquals(3, useCase.runs);
+        assertEquals(1, callback.successes);
+        assertEquals(0, callback.errors);
+        assertEquals(2, metrics.snapshot(FlakyUseCase.class).getErrors());
+    }
+
+    @Test
+    public void onError_is_delivered_once_attempts_are_exhausted() throws Exception {
+        FlakyUseCase useCase = new FlakyUseCase(5, false);
+        RecordingCallback callback = new RecordingCallback();
+
+        handlerWith(retryPolicy(3), null).execute(useCase, new TestUseCase.TestRequestValues(false), callback);
+
+        assertEquals(3, useCase.runs);
+        assertEquals(0, callback.successes);
+        assertEquals(1, callback.errors);
+    }
+
+    @Test
+    public void thrown_exception_is_retried_and_then_delivered_as_onError() throws Exception {
+        FlakyUseCase useCase = new FlakyUseCase(5, true);
+        RecordingCallback callback = new RecordingCallback();
+
+        handlerWith(retryPolicy(2), null).execute(useCase, new TestUseCase.TestRequestValues(false), callback);
+
+        assertEquals(2, useCase.runs);
+        assertEquals(1, callback.errors);
+        assertEquals("failure 2", callback.error.getMessage());
+    }
+
+    @Test
+    public void only_matching_errors_are_retried() throws Exception {
+        FlakyUseCase useCase = new FlakyUseCase(5, true);
+        RecordingCallback callback = new RecordingCallback();
+        RetryPolicy policy = new RetryPolicy.Builder()
+                .setInitialDelay(1, TimeUnit.MILLISECONDS)
+                .setMaxDelay(1, TimeUnit.MILLISECONDS)
+                .setRetryCondition(RetryPolicy.DATABASE_LOCKED)
+                .build();
+
+        handlerWith(policy, null).execute(useCase, new TestUseCase.TestRequestValues(false), callback);
+
+        assertEquals(1, useCase.runs);
+        assertTrue(callback.error instanceof IllegalStateException);
+    }
+
+    @Test
+    public void open_circuit_breaker_fails_without_running_use_case() throws Exception {
+        CircuitBreaker breaker = new CircuitBreaker(2, 1, TimeUnit.HOURS);
+        UseCaseHandlerImp handler = handlerWith(null, breaker);
+        FlakyUseCase useCase = new FlakyUseCase(Integer.MAX_VALUE, false);
+        RecordingCallback callback = new RecordingCallback();
+
+        for (int i = 0; i < 5; i++) {
+            handler.execute(useCase, new TestUseCase.TestRequestValues(false), callback);
+        }
+
+        assertEquals(2, useCase.runs);
+        assertEquals(5, callback.errors);
+        assertTrue(callback.error instanceof CircuitOpenException);
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+    }
+
+    @Test
+    public void rejected_half_open_trial_does_not_block_use_case() throws Exception {
+        CircuitBreaker breaker = new CircuitBreaker(1, 0, TimeUnit.SECONDS);
+        RejectingScheduler scheduler = new RejectingScheduler();
+        UseCaseHandlerImp handler = new UseCaseHandlerImp.Builder()
+                .setScheduler(scheduler)
+                .setMetrics(metrics)
+                .setCircuitBreaker(FlakyUseCase.class, breaker)
+                .build();
+        FlakyUseCase useCase = new FlakyUseCase(1, false);
+        RecordingCallback callback = new RecordingCallback();
+        handler.execute(useCase, new TestUseCase.TestRequestValues(false), callback);
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+
+        scheduler.rejecting = true;
+        try {
+            handler.execute(useCase, new TestUseCase.TestRequestValues(false), callback);
+            fail();
+        } catch (RejectedExecutionException expected) {
+            // the trial was never run
+        }
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+
+        scheduler.rejecting = false;
+        handler.execute(useCase, new TestUseCase.TestRequestValues(false), callback);
+
+        assertEquals(2, useCase.runs);
+        assertEquals(1, callback.successes);
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+    }
+
+    @Test
+    public void circuit_breaker_recovers_on_scheduler_clock() throws Exception {
+        CircuitBreaker breaker = new CircuitBreaker(1, 1, TimeUnit.HOURS);
+        VirtualTimeUseCaseScheduler scheduler = new VirtualTimeUseCaseScheduler.Builder().build();
+        UseCaseHandlerImp handler = new UseCaseHandlerImp.Builder()
+                .setScheduler(scheduler)
+                .setCircuitBreaker(FlakyUseCase.class, breaker)
+                .build();
+        FlakyUseCase useCase = new FlakyUseCase(1, false);
+        RecordingCallback callback = new RecordingCallback();
+
+        handler.execute(useCase, new TestUseCase.TestRequestValues(false), callback);
+        scheduler.runUntilIdle();
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+
+        scheduler.advanceBy(1, TimeUnit.HOURS);
+        handler.execute(useCase, new TestUseCase.TestRequestValues(false), callback);
+        scheduler.runUntilIdle();
+
+        assertEquals(2, useCase.runs);
+        assertEquals(1, callback.successes);
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+    }
+
+    private RetryPolicy retryPolicy(int maxAttempts) {
+        return new RetryPolicy.Builder()
+                .setMaxAttempts(maxAttempts)
+                .setInitialDelay(1, TimeUnit.MILLISECONDS)
+                .setMaxDelay(1, TimeUnit.MILLISECONDS)
+                .build();
+    }
+
+    private UseCaseHandlerImp handlerWith(RetryPolicy policy, CircuitBreaker breaker) {
+        UseCaseHandlerImp.Builder builder = new UseCaseHandlerImp.Builder()
+                .setScheduler(new DirectUseCaseScheduler())
+                .setMetrics(metrics);
+        if (policy != null) {
+            builder.setRetryPolicy(FlakyUseCase.class, policy);
+        }
+        if (breaker != null) {
+            builder.setCircuitBreaker(FlakyUseCase.class, breaker);
+        }
+        return builder.build();
+    }
+
+    /**
+     * Fails the first {@code failures} times it is run, either by calling onError or by throwing an exception.
+     */
+    private static class FlakyUseCase extends UseCase<TestUseCase.TestRequestValues, TestUseCase.TestResponseValue> {
+
+        private final int failures;
+
+        private final boolean throwException;
+
+        int runs = 0;
+
+        FlakyUseCase(int failures, boolean throwException) {
+            this.failures = failures;
+            this.throwException = throwException;
+        }
+
+        @Override
+        protected void executeUseCase(TestUseCase.TestRequestValues requestValues,
+                                      UseCaseCallback<TestUseCase.TestResponseValue> callback) {
+            if (runs++ < failures) {
+                if (throwException) {
+                    throw new IllegalStateException("failure " + runs);
+                }
+                callback.onError(new IllegalStateException("failure " + runs));
+            } else {
+                callback.onSuccess(new TestUseCase.TestResponseValue("value"));
+            }
+        }
+    }
+
+    /**
+     * Rejects every UseCase while {@link #rejecting} is set.
+     */
+    private static class RejectingScheduler extends DirectUseCaseScheduler {
+
+        boolean rejecting = false;
+
+        @Override
+        public void execute(Runnable runnable) {
+            if (rejecting) {
+                throw new RejectedExecutionException("saturated");
+            }
+            super.execute(runnable);
+        }
+    }
+
+    private static class RecordingCallback implements UseCase.UseCaseCallback<TestUseCase.TestResponseValue> {
+
+        int successes = 0;
+
+        int errors = 0;
+
+        Throwable error;
+
+        @Override
+        public void onSuccess(TestUseCase.TestResponseValue response) {
+            successes++;
+        }
+
+        @Override
+        public void onError(Throwable error) {
+            errors++;
+            this.error = error;
+        }
+    }
+}
@@ -0,0 +1,241 @@
+package com.scholefield.lee.androidtemplate.usecase;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+/**
+ *
+ */
+public class StreamingUseCaseTest {
+
+    private static final int CHUNK_SIZE = 1000;
+
+    private UseCaseHandlerImp classUnderTest;
+
+    private ExecutorService workerThread;
+
+    /**
+     * Stands in for the UI thread.
+     */
+    private ExecutorService uiThread;
+
+    private RecordingStreamCallback callback;
+
+    @Before
+    public void setUp() throws Exception {
+        workerThread = Executors.newSingleThreadExecutor();
+        uiThread = Executors.newSingleThreadExecutor();
+        classUnderTest = new UseCaseHandlerImp(new UiThreadScheduler());
+        callback = new RecordingStreamCallback();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        workerThread.shutdownNow();
+        uiThread.shutdownNow();
+    }
+
+    @Test
+    public void chunks_are_delivered_in_order_followed_by_onComplete() throws Exception {
+        classUnderTest.executeStreaming(new ChunkedQueryUseCase(), new ChunkedQueryUseCase.Request(5, null), callback);
+
+        assertTrue(callback.finished.await(10, TimeUnit.SECONDS));
+        assertEquals(5 * CHUNK_SIZE, callback.items.size());
+        for (int i = 0; i < callback.items.size(); i++) {
+            assertEquals(i, (int) callback.items.get(i));
+        }
+        assertEquals(1, callback.completions);
+        assertEquals(0, callback.errors);
+    }
+
+    @Test
+    public void first_chunk_is_delivered_before_use_case_completes() throws Exception {
+        // the use case will not produce the rest of the rows until the first chunk has reached the UI thread
+        long start = System.nanoTime();
+        classUnderTest.executeStreaming(new ChunkedQueryUseCase(),
+                new ChunkedQueryUseCase.Request(100, callback.firstChunk), callback);
+
+        assertTrue(callback.finished.await(10, TimeUnit.SECONDS));
+        long timeToFirstChunk = callback.firstChunkNanos - start;
+        long timeToComplete = callback.completeNanos - start;
+
+        assertTrue(timeToFirstChunk < timeToComplete);
+        assertEquals(100 * CHUNK_SIZE, callback.items.size());
+    }
+
+    @Test
+    public void chunks_are_coalesced_while_ui_thread_is_busy() throws Exception {
+        final CountDownLatch uiBlocked = new CountDownLatch(1);
+        uiThread.execute(new Runnable() {
+            @Override
+            public void run() {
+                await(uiBlocked);
+            }
+        });
+
+        classUnderTest.executeStreaming(new ChunkedQueryUseCase(), new ChunkedQueryUseCase.Request(10, null), callback);
+        workerThread.shutdown();
+        assertTrue(workerThread.awaitTermination(10, TimeUnit.SECONDS));
+        uiBlocked.countDown();
+
+        assertTrue(callback.finished.await(10, TimeUnit.SECONDS));
+        assertEquals(1, callback.batches);
+        assertEquals(10 * CHUNK_SIZE, callback.items.size());
+    }
+
+    @Test
+    public void onError_is_delivered_after_pending_chunks_and_later_chunks_are_ignored() throws Exception {
+        StreamingUseCase<ChunkedQueryUseCase.Request, Integer> failing =
+                new StreamingUseCase<ChunkedQueryUseCase.Request, Integer>() {
+                    @Override
+                    protected void executeUseCase(ChunkedQueryUseCase.Request requestValues,
+                                                  StreamCallback<Integer> callback) {
+                        callback.onNext(Collections.singletonList(1));
+                        callback.onError(new IllegalStateException("test error"));
+                        callback.onNext(Collections.singletonList(2));
+                        callback.onComplete();
+                    }
+                };
+
+        classUnderTest.executeStreaming(failing, new ChunkedQueryUseCase.Request(0, null), callback);
+
+        assertTrue(callback.finished.await(10, TimeUnit.SECONDS));
+        workerThread.shutdown();
+        assertTrue(workerThread.awaitTermination(10, TimeUnit.SECONDS));
+        uiThread.shutdown();
+        assertTrue(uiThread.awaitTermination(10, TimeUnit.SECONDS));
+
+        assertEquals(Collections.singletonList(1), callback.items);
+        assertEquals(1, callback.errors);
+        assertEquals(0, callback.completions);
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            if (!latch.await(10, TimeUnit.SECONDS)) {
+                throw new IllegalStateException("timed out");
+            }
+        } catch (InterruptedException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Emits {@code chunks} chunks of {@link #CHUNK_SIZE} sequential integers.
+     */
+    private static class ChunkedQueryUseCase extends StreamingUseCase<ChunkedQueryUseCase.Request, Integer> {
+
+        @Override
+        protected void executeUseCase(Request requestValues, StreamCallback<Integer> callback) {
+            int next = 0;
+            for (int c = 0; c < requestValues.chunks; c++) {
+                List<Integer> chunk = new ArrayList<>(CHUNK_SIZE);
+                for (int i = 0; i < CHUNK_SIZE; i++) {
+                    chunk.add(next++);
+                }
+                callback.onNext(chunk);
+
+                if (c == 0 && requestValues.waitFor != null) {
+                    await(requestValues.waitFor);
+                }
+            }
+            callback.onComplete();
+        }
+
+        static class Request implements UseCase.RequestValues {
+            final int chunks;
+            final CountDownLatch waitFor;
+
+            Request(int chunks, CountDownLatch waitFor) {
+                this.chunks = chunks;
+                this.waitFor = waitFor;
+            }
+        }
+    }
+
+    private static class RecordingStreamCallback implements StreamingUseCase.StreamCallback<Integer> {
+
+        final List<Integer> items = new ArrayList<>();
+        final CountDownLatch firstChunk = new CountDownLatch(1);
+        final CountDownLatch finished = new CountDownLatch(1);
+        volatile int batches = 0;
+        volatile int completions = 0;
+        volatile int errors = 0;
+        volatile long firstChunkNanos;
+        volatile long completeNanos;
+
+        @Override
+        public void onNext(List<Integer> chunk) {
+            if (batches++ == 0) {
+                firstChunkNanos = System.nanoTime();
+                firstChunk.countDown();
+            }
+            items.addAll(chunk);
+        }
+
+        @Override
+        public void onComplete() {
+            completions++;
+            completeNanos = System.nanoTime();
+            finished.countDown();
+        }
+
+        @Override
+        public void onError(Throwable error) {
+            errors++;
+            finished.countDown();
+        }
+    }
+
+    /**
+     * Runs UseCases on {@link #workerThread} and delivers callbacks on {@link #uiThread}.
+     */
+    private class UiThreadScheduler extends DirectUseCaseScheduler {
+
+        @Override
+        public void execute(Runnable runnable) {
+            workerThread.execute(runnable);
+        }
+
+        @Override
+        public void schedule(Runnable runnable, long delay, TimeUnit unit) {
+            workerThread.execute(runnable);
+        }
+
+        @Override
+        public void post(Runnable runnable) {
+            uiThread.execute(runnable);
+        }
+
+        @Override
+        public <V extends UseCase.ResponseValue> void notifyResponse(final V response, final UseCase.UseCaseCallback<V> callback) {
+            uiThread.execute(new Runnable() {
+                @Override
+                public void run() {
+                    callback.onSuccess(response);
+                }
+            });
+        }
+
+        @Override
+        public <V extends UseCase.ResponseValue> void onError(final Throwable error, final UseCase.UseCaseCallback<V> callback) {
+            uiThread.execute(new Runnable() {
+                @Override
+                public void run() {
+                    callback.onError(error);
+                }
+            });
+        }
+    }
+}
@@ -6,12 +6,12 @@ package com.scholefield.lee.androidtemplate.usecase;
 public class TestUseCase extends UseCase<TestUseCase.TestRequestValues, TestUseCase.TestResponseValue> {
 
     @Override
-    protected void executeUseCase(TestRequestValues requestValues) {
+    protected void executeUseCase(TestRequestValues requestValues, UseCaseCallback<TestResponseValue> callback) {
         boolean throwException = requestValues.shouldThrowException;
         if (throwException) {
-            getUseCaseCallback().onError();
+            callback.onError(new IllegalStateException("test error"));
         } else {
-            getUseCaseCallback().onSuccess(new TestResponseValue("new value"));
+            callback.onSuccess(new TestResponseValue("new value"));
         }
     }
 
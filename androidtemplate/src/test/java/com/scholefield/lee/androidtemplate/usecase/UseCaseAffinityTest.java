@@ -0,0 +1,173 @@
+package com.scholefield.lee.androidtemplate.usecase;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+/**
+ * Runs a mixed workload of blocking and CPU-bound UseCases through a {@link UseCaseThreadPoolScheduler}.
+ */
+@Config(manifest = Config.NONE)
+@RunWith(RobolectricTestRunner.class)
+public class UseCaseAffinityTest {
+
+    private static final int COMPUTE_THREADS = 2;
+
+    @Test
+    public void use_case_affinity_defaults_to_cpu() throws Exception {
+        assertEquals(UseCase.Affinity.CPU, new TestUseCase().getAffinity());
+    }
+
+    @Test
+    public void blocking_use_cases_with_io_affinity_do_not_delay_cpu_use_cases() throws Exception {
+        Workload workload = new Workload(UseCase.Affinity.IO);
+
+        try {
+            SignallingUseCase cpu = workload.runCpuUseCase();
+
+            // the cpu UseCase finished while every blocking UseCase was still blocked
+            assertTrue(cpu.finished.await(10, TimeUnit.SECONDS));
+            assertEquals(COMPUTE_THREADS, workload.blockingDone.getCount());
+            assertFalse(workload.blockingThreads.contains(cpu.thread));
+        } finally {
+            workload.release();
+        }
+    }
+
+    @Test
+    public void blocking_use_cases_with_cpu_affinity_delay_cpu_use_cases() throws Exception {
+        Workload workload = new Workload(UseCase.Affinity.CPU);
+
+        SignallingUseCase cpu = workload.runCpuUseCase();
+        workload.release();
+
+        // the cpu UseCase had to wait for a blocking UseCase to give up its thread
+        assertTrue(cpu.finished.await(10, TimeUnit.SECONDS));
+        assertTrue(cpu.blockingDoneWhenStarted < COMPUTE_THREADS);
+        assertTrue(workload.blockingThreads.contains(cpu.thread));
+    }
+
+    /**
+     * One blocking UseCase per compute thread, all started with the same affinity and blocked until {@link #release} is
+     * called.
+     */
+    private static class Workload {
+
+        final UseCaseHandlerImp handler = new UseCaseHandlerImp.Builder()
+                .setScheduler(new UseCaseThreadPoolScheduler(COMPUTE_THREADS, COMPUTE_THREADS, 4))
+                .build();
+
+        final CountDownLatch releaseLatch = new CountDownLatch(1);
+
+        final CountDownLatch blockingDone = new CountDownLatch(COMPUTE_THREADS);
+
+        final Set<Thread> blockingThreads = Collections.synchronizedSet(new HashSet<Thread>());
+
+        Workload(UseCase.Affinity affinity) throws Exception {
+            CountDownLatch started = new CountDownLatch(COMPUTE_THREADS);
+            for (int i = 0; i < COMPUTE_THREADS; i++) {
+                SignallingUseCase blocking = new SignallingUseCase(affinity, started, releaseLatch, blockingDone) {
+                    @Override
+                    protected void executeUseCase(Request requestValues, UseCaseCallback<ResponseValue> callback) {
+                        blockingThreads.add(Thread.currentThread());
+                        super.executeUseCase(requestValues, callback);
+                    }
+                };
+                handler.execute(blocking, new SignallingUseCase.Request(), SignallingUseCase.IGNORED);
+            }
+            assertTrue(started.await(10, TimeUnit.SECONDS));
+        }
+
+        /**
+         * Executes a UseCase with a CPU affinity that does not block.
+         */
+        SignallingUseCase runCpuUseCase() {
+            SignallingUseCase cpu = new SignallingUseCase(UseCase.Affinity.CPU, new CountDownLatch(1),
+                    new CountDownLatch(0), new CountDownLatch(1)) {
+                @Override
+                protected void executeUseCase(Request requestValues, UseCaseCallback<ResponseValue> callback) {
+                    thread = Thread.currentThread();
+                    blockingDoneWhenStarted = blockingDone.getCount();
+                    super.executeUseCase(requestValues, callback);
+                }
+            };
+            handler.execute(cpu, new SignallingUseCase.Request(), SignallingUseCase.IGNORED);
+            return cpu;
+        }
+
+        void release() throws Exception {
+            releaseLatch.countDown();
+            assertTrue(blockingDone.await(10, TimeUnit.SECONDS));
+        }
+    }
+
+    /**
+     * Signals {@code started}, waits for {@code release} and then signals {@code finished}.
+     */
+    private static class SignallingUseCase extends UseCase<SignallingUseCase.Request, UseCase.ResponseValue> {
+
+        static final UseCaseCallback<UseCase.ResponseValue> IGNORED = new UseCaseCallback<UseCase.ResponseValue>() {
+            @Override
+            public void onSuccess(UseCase.ResponseValue response) {
+            }
+
+            @Override
+            public void onError(Throwable error) {
+            }
+        };
+
+        private final Affinity affinity;
+
+        private final CountDownLatch started;
+
+        private final CountDownLatch release;
+
+        final CountDownLatch finished;
+
+        /**
+         * Thread the UseCase ran on, if recorded by a subclass.
+         */
+        volatile Thread thread;
+
+        /**
+         * Number of blocking UseCases still blocked when this started, if recorded by a subclass.
+         */
+        volatile long blockingDoneWhenStarted;
+
+        SignallingUseCase(Affinity affinity, CountDownLatch started, CountDownLatch release, CountDownLatch finished) {
+            this.affinity = affinity;
+            this.started = started;
+            this.release = release;
+            this.finished = finished;
+        }
+
+        @Override
+        public Affinity getAffinity() {
+            return affinity;
+        }
+
+        @Override
+        protected void executeUseCase(Request requestValues, UseCaseCallback<UseCase.ResponseValue> callback) {
+            started.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            finished.countDown();
+            callback.onSuccess(new Request());
+        }
+
+        static class Request implements UseCase.RequestValues, UseCase.ResponseValue {
+        }
+    }
+}
@@ -0,0 +1,98 @@
+package com.scholefield.lee.androidtemplate.usecase;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.lang.management.ManagementFactory;
+
+import static org.junit.Assert.*;
+import static org.junit.Assume.assumeTrue;
+
+/**
+ * Counts the bytes allocated by {@link UseCaseHandlerImp#execute}. The UseCase, its response and the callback are all
+ * created up front, so anything allocated while the loop runs comes from the dispatch machinery itself.
+ *
+ * This only measures the handler, through a {@link DirectUseCaseScheduler}. Allocations made by other schedulers, such as
+ * the queues and main thread {@code Handler} of {@link UseCaseThreadPoolScheduler}, are not counted.
+ */
+public class UseCaseHandlerAllocationTest {
+
+    private static final int WARM_UP_EXECUTIONS = 20000;
+
+    private static final int EXECUTIONS = 100000;
+
+    private UseCaseHandlerImp classUnderTest;
+
+    private com.sun.management.ThreadMXBean threadMXBean;
+
+    @Before
+    public void setUp() throws Exception {
+        classUnderTest = new UseCaseHandlerImp.Builder().setScheduler(new DirectUseCaseScheduler()).build();
+
+        java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        assumeTrue(bean instanceof com.sun.management.ThreadMXBean);
+        threadMXBean = (com.sun.management.ThreadMXBean) bean;
+        assumeTrue(threadMXBean.isThreadAllocatedMemorySupported());
+        threadMXBean.setThreadAllocatedMemoryEnabled(true);
+    }
+
+    @Test
+    public void execute_does_not_allocate_in_steady_state() throws Exception {
+        ConstantUseCase useCase = new ConstantUseCase();
+        TestUseCase.TestRequestValues values = new TestUseCase.TestRequestValues(false);
+        CountingCallback callback = new CountingCallback();
+
+        for (int i = 0; i < WARM_UP_EXECUTIONS; i++) {
+            classUnderTest.execute(useCase, values, callback);
+        }
+
+        long threadId = Thread.currentThread().getId();
+        long before = threadMXBean.getThreadAllocatedBytes(threadId);
+        for (int i = 0; i < EXECUTIONS; i++) {
+            classUnderTest.execute(useCase, values, callback);
+        }
+        long allocated = threadMXBean.getThreadAllocatedBytes(threadId) - before;
+
+        assertEquals(WARM_UP_EXECUTIONS + EXECUTIONS, callback.successes);
+        // the only allocation should be the callback passed to the UseCase, which is at most 32 bytes
+        assertTrue(allocated <= EXECUTIONS * 32L);
+    }
+
+    @Test
+    public void finished_tasks_are_returned_to_pool() throws Exception {
+        CountingCallback callback = new CountingCallback();
+
+        classUnderTest.execute(new ConstantUseCase(), new TestUseCase.TestRequestValues(false), callback);
+        classUnderTest.execute(new ConstantUseCase(), new TestUseCase.TestRequestValues(false), callback);
+
+        assertEquals(1, classUnderTest.getPooledTaskCount());
+    }
+
+    /**
+     * Always returns the same response so the UseCase itself does not allocate.
+     */
+    private static class ConstantUseCase extends UseCase<TestUseCase.TestRequestValues, TestUseCase.TestResponseValue> {
+
+        private final TestUseCase.TestResponseValue response = new TestUseCase.TestResponseValue("value");
+
+        @Override
+        protected void executeUseCase(TestUseCase.TestRequestValues requestValues,
+                                      UseCaseCallback<TestUseCase.TestResponseValue> callback) {
+            callback.onSuccess(response);
+        }
+    }
+
+    private static class CountingCallback implements UseCase.UseCaseCallback<TestUseCase.TestResponseValue> {
+
+        int successes = 0;
+
+        @Override
+        public void onSuccess(TestUseCase.TestResponseValue response) {
+            successes++;
+        }
+
+        @Override
+        public void onError(Throwable error) {
+        }
+    }
+}
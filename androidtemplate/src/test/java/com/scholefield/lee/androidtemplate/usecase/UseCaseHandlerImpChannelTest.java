@@ -0,0 +1,305 @@
+package com.scholefield.lee.androidtemplate.usecase;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+/**
+ *
+ */
+public class UseCaseHandlerImpChannelTest {
+
+    private static final String CHANNEL = "search";
+
+    private long now = 0;
+
+    private ManualScheduler scheduler;
+
+    private UseCaseHandlerImp classUnderTest;
+
+    private QueryUseCase useCase;
+
+    private RecordingCallback callback;
+
+    @Before
+    public void setUp() throws Exception {
+        scheduler = new ManualScheduler();
+        classUnderTest = new UseCaseHandlerImp(scheduler) {
+            @Override
+            long now() {
+                return now;
+            }
+        };
+        useCase = new QueryUseCase();
+        callback = new RecordingCallback();
+    }
+
+    @Test
+    public void debounce_runs_only_the_last_submission_once_submissions_pause() throws Exception {
+        Submission debounce = Submission.debounce(100, TimeUnit.NANOSECONDS);
+
+        submit(debounce, "a");
+        now = 50;
+        submit(debounce, "ab");
+        now = 100;
+        scheduler.runTimers();
+        assertTrue(useCase.queries.isEmpty());
+
+        now = 150;
+        scheduler.runTimers();
+
+        assertEquals(Collections.singletonList("ab"), useCase.queries);
+        assertEquals(Collections.singletonList("ab"), callback.responses);
+    }
+
+    @Test
+    public void debounce_schedules_one_timer_for_many_submissions() throws Exception {
+        Submission debounce = Submission.debounce(100, TimeUnit.NANOSECONDS);
+
+        for (int i = 0; i < 10; i++) {
+            now = i;
+            submit(debounce, "query " + i);
+        }
+
+        assertEquals(1, scheduler.timers.size());
+
+        now = 200;
+        scheduler.runTimers();
+
+        assertEquals(Collections.singletonList("query 9"), useCase.queries);
+    }
+
+    @Test
+    public void throttle_runs_first_submission_and_latest_submission_after_interval() throws Exception {
+        Submission throttle = Submission.throttle(100, TimeUnit.NANOSECONDS);
+
+        submit(throttle, "1");
+        now = 10;
+        submit(throttle, "2");
+        now = 20;
+        submit(throttle, "3");
+        now = 100;
+        scheduler.runTimers();
+
+        assertEquals(Arrays.asList("1", "3"), useCase.queries);
+        assertEquals(Arrays.asList("1", "3"), callback.responses);
+    }
+
+    @Test
+    public void throttle_runs_submission_straight_away_once_interval_has_elapsed() throws Exception {
+        Submission throttle = Submission.throttle(100, TimeUnit.NANOSECONDS);
+
+        submit(throttle, "1");
+        now = 100;
+        submit(throttle, "2");
+
+        assertEquals(Arrays.asList("1", "2"), useCase.queries);
+        assertTrue(scheduler.timers.isEmpty());
+    }
+
+    @Test
+    public void latest_only_skips_superseded_submissions_that_have_not_started() throws Exception {
+        scheduler.queueExecutions = true;
+
+        submit(Submission.latestOnly(), "1");
+        submit(Submission.latestOnly(), "2");
+        submit(Submission.latestOnly(), "3");
+        scheduler.runExecutions();
+
+        assertEquals(Collections.singletonList("3"), useCase.queries);
+        assertEquals(Collections.singletonList("3"), callback.responses);
+    }
+
+    @Test
+    public void result_of_superseded_submission_is_not_delivered() throws Exception {
+        useCase.deferred = true;
+
+        submit(Submission.latestOnly(), "1");
+        submit(Submission.latestOnly(), "2");
+        useCase.complete(1);
+        useCase.complete(0);
+
+        assertEquals(Collections.singletonList("2"), callback.responses);
+        assertEquals(2, classUnderTest.getPooledTaskCount());
+    }
+
+    @Test
+    public void timer_of_superseded_debounce_is_not_rescheduled() throws Exception {
+        Submission debounce = Submission.debounce(100, TimeUnit.NANOSECONDS);
+
+        submit(debounce, "a");
+        submit(Submission.latestOnly(), "b");
+        now = 150;
+        scheduler.runTimers();
+
+        assertTrue(scheduler.timers.isEmpty());
+        assertEquals(Collections.singletonList("b"), useCase.queries);
+
+        submit(debounce, "c");
+        assertEquals(1, scheduler.timers.size());
+        now = 250;
+        scheduler.runTimers();
+
+        assertEquals(Arrays.asList("b", "c"), useCase.queries);
+    }
+
+    @Test
+    public void superseded_circuit_breaker_trial_is_released() throws Exception {
+        CircuitBreaker breaker = new CircuitBreaker(1, 0, TimeUnit.SECONDS);
+        breaker.allowExecution(now);
+        breaker.onFailure(now);
+        classUnderTest = new UseCaseHandlerImp.Builder()
+                .setScheduler(scheduler)
+                .setCircuitBreaker(QueryUseCase.class, breaker)
+                .build();
+        scheduler.queueExecutions = true;
+
+        submit(Submission.latestOnly(), "trial");
+        submit(Submission.debounce(1, TimeUnit.NANOSECONDS), "latest");
+        scheduler.runExecutions();
+
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+
+        scheduler.queueExecutions = false;
+        while (!scheduler.timers.isEmpty()) {
+            scheduler.runTimers();
+        }
+
+        assertEquals(Collections.singletonList("latest"), useCase.queries);
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+    }
+
+    @Test
+    public void channels_are_independent() throws Exception {
+        scheduler.queueExecutions = true;
+
+        submit(Submission.latestOnly(), "1");
+        classUnderTest.execute("other", Submission.latestOnly(), useCase, new QueryUseCase.Request("2"), callback);
+        scheduler.runExecutions();
+
+        assertEquals(Arrays.asList("1", "2"), useCase.queries);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void throws_exception_when_channel_is_null() throws Exception {
+        classUnderTest.execute(null, Submission.latestOnly(), useCase, new QueryUseCase.Request("1"), callback);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void throws_exception_when_debounce_delay_is_not_positive() throws Exception {
+        Submission.debounce(0, TimeUnit.MILLISECONDS);
+    }
+
+    private void submit(Submission submission, String query) {
+        classUnderTest.execute(CHANNEL, submission, useCase, new QueryUseCase.Request(query), callback);
+    }
+
+    /**
+     * Records each query it is run with and responds with the query.
+     */
+    private static class QueryUseCase extends UseCase<QueryUseCase.Request, QueryUseCase.Response> {
+
+        final List<String> queries = new ArrayList<>();
+
+        /**
+         * If {@code true} the response is only passed to the callback when {@link #complete} is called.
+         */
+        boolean deferred = false;
+
+        private final List<UseCaseCallback<Response>> callbacks = new ArrayList<>();
+
+        @Override
+        protected void executeUseCase(Request requestValues, UseCaseCallback<Response> callback) {
+            queries.add(requestValues.query);
+            if (deferred) {
+                callbacks.add(callback);
+            } else {
+                callback.onSuccess(new Response(requestValues.query));
+            }
+        }
+
+        void complete(int index) {
+            callbacks.get(index).onSuccess(new Response(queries.get(index)));
+        }
+
+        static class Request implements UseCase.RequestValues {
+            final String query;
+
+            Request(String query) {
+                this.query = query;
+            }
+        }
+
+        static class Response implements UseCase.ResponseValue {
+            final String query;
+
+            Response(String query) {
+                this.query = query;
+            }
+        }
+    }
+
+    private static class RecordingCallback implements UseCase.UseCaseCallback<QueryUseCase.Response> {
+
+        final List<String> responses = new ArrayList<>();
+
+        @Override
+        public void onSuccess(QueryUseCase.Response response) {
+            responses.add(response.query);
+        }
+
+        @Override
+        public void onError(Throwable error) {
+            throw new AssertionError(error);
+        }
+    }
+
+    /**
+     * Runs callbacks on the calling thread, and only runs timers (and optionally executions) when the test asks it to.
+     */
+    private static class ManualScheduler extends DirectUseCaseScheduler {
+
+        final List<Runnable> timers = new ArrayList<>();
+
+        final List<Runnable> executions = new ArrayList<>();
+
+        boolean queueExecutions = false;
+
+        @Override
+        public void execute(Runnable runnable) {
+            if (queueExecutions) {
+                executions.add(runnable);
+            } else {
+                runnable.run();
+            }
+        }
+
+        @Override
+        public void schedule(Runnable runnable, long delay, TimeUnit unit) {
+            timers.add(runnable);
+        }
+
+        void runTimers() {
+            List<Runnable> due = new ArrayList<>(timers);
+            timers.clear();
+            for (Runnable timer : due) {
+                timer.run();
+            }
+        }
+
+        void runExecutions() {
+            List<Runnable> queued = new ArrayList<>(executions);
+            executions.clear();
+            for (Runnable execution : queued) {
+                execution.run();
+            }
+        }
+    }
+}
@@ -0,0 +1,64 @@
+package com.scholefield.lee.androidtemplate.usecase;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+/**
+ *
+ */
+@Config(manifest = Config.NONE)
+@RunWith(RobolectricTestRunner.class)
+public class UseCaseHandlerImpSingletonTest {
+
+    private static final int THREADS = 32;
+
+    private static final int CALLS_PER_THREAD = 1000;
+
+    @Test
+    public void concurrent_getInstance_creates_one_scheduler_and_pool() throws Exception {
+        int schedulersBefore = UseCaseThreadPoolScheduler.getSchedulersCreated();
+
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        final CyclicBarrier start = new CyclicBarrier(THREADS);
+        List<Future<List<UseCaseHandlerImp>>> results = new ArrayList<>();
+
+        for (int i = 0; i < THREADS; i++) {
+            results.add(executor.submit(new Callable<List<UseCaseHandlerImp>>() {
+                @Override
+                public List<UseCaseHandlerImp> call() throws Exception {
+                    start.await();
+                    List<UseCaseHandlerImp> instances = new ArrayList<>(CALLS_PER_THREAD);
+                    for (int j = 0; j < CALLS_PER_THREAD; j++) {
+                        instances.add(UseCaseHandlerImp.getInstance());
+                    }
+                    return instances;
+                }
+            }));
+        }
+
+        UseCaseHandlerImp expected = UseCaseHandlerImp.getInstance();
+        for (Future<List<UseCaseHandlerImp>> result : results) {
+            for (UseCaseHandlerImp instance : result.get(30, TimeUnit.SECONDS)) {
+                assertSame(expected, instance);
+                assertSame(expected.getScheduler(), instance.getScheduler());
+            }
+        }
+        executor.shutdown();
+
+        // another test may already have created the singleton, in which case no scheduler is created here
+        assertTrue(UseCaseThreadPoolScheduler.getSchedulersCreated() - schedulersBefore <= 1);
+    }
+}
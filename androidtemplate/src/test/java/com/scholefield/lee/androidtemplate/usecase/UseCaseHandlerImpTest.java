@@ -3,10 +3,15 @@ package com.scholefield.lee.androidtemplate.usecase;
 import org.junit.Before;
 import org.junit.Test;
 
+import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.verify;
@@ -32,7 +37,35 @@ public class UseCaseHandlerImpTest {
         classUnderTest.execute(new TestUseCase(),
                 new TestUseCase.TestRequestValues(true), mockedCallback);
 
-        verify(mockedCallback).onError();
+        verify(mockedCallback).onError(any(IllegalStateException.class));
+    }
+
+    @Test
+    public void exception_thrown_by_use_case_is_passed_to_onError() throws Exception {
+        final IllegalArgumentException thrown = new IllegalArgumentException();
+        final Throwable[] received = new Throwable[1];
+        UseCase<TestUseCase.TestRequestValues, TestUseCase.TestResponseValue> throwing =
+                new UseCase<TestUseCase.TestRequestValues, TestUseCase.TestResponseValue>() {
+                    @Override
+                    protected void executeUseCase(TestUseCase.TestRequestValues requestValues,
+                                                  UseCaseCallback<TestUseCase.TestResponseValue> callback) {
+                        throw thrown;
+                    }
+                };
+
+        classUnderTest.execute(throwing, new TestUseCase.TestRequestValues(false),
+                new UseCase.UseCaseCallback<TestUseCase.TestResponseValue>() {
+                    @Override
+                    public void onSuccess(TestUseCase.TestResponseValue response) {
+                    }
+
+                    @Override
+                    public void onError(Throwable error) {
+                        received[0] = error;
+                    }
+                });
+
+        assertSame(thrown, received[0]);
     }
 
     @Test
@@ -44,7 +77,155 @@ public class UseCaseHandlerImpTest {
         verify(mockedCallback).onSuccess(any(UseCase.ResponseValue.class));
     }
 
-    private class TestUseCaseScheduler implements UseCaseScheduler {
+    @Test
+    public void same_use_case_instance_can_be_executed_concurrently() throws Exception {
+        final int executions = 2000;
+        ExecutorService workers = Executors.newFixedThreadPool(8);
+        UseCaseHandlerImp handler = new UseCaseHandlerImp(new WorkerThreadScheduler(workers));
+        EchoUseCase shared = new EchoUseCase();
+        final CountDownLatch completed = new CountDownLatch(executions);
+        final AtomicInteger mismatches = new AtomicInteger();
+
+        for (int i = 0; i < executions; i++) {
+            final String expected = "value " + i;
+            handler.execute(shared, new EchoUseCase.Request(expected),
+                    new UseCase.UseCaseCallback<TestUseCase.TestResponseValue>() {
+                        @Override
+                        public void onSuccess(TestUseCase.TestResponseValue response) {
+                            if (!expected.equals(response.getResponseValue())) {
+                                mismatches.incrementAndGet();
+                            }
+                            completed.countDown();
+                        }
+
+                        @Override
+                        public void onError(Throwable error) {
+                            mismatches.incrementAndGet();
+                            completed.countDown();
+                        }
+                    });
+        }
+
+        assertTrue(completed.await(30, TimeUnit.SECONDS));
+        workers.shutdown();
+        assertEquals(0, mismatches.get());
+    }
+
+    @Test
+    public void calls_after_the_first_callback_are_ignored() throws Exception {
+        UseCaseHandlerImp handler = new UseCaseHandlerImp(new DirectUseCaseScheduler());
+        CallbackKeepingUseCase useCase = new CallbackKeepingUseCase(true);
+        CountingCallback callback = new CountingCallback();
+
+        handler.execute(useCase, new TestUseCase.TestRequestValues(false), callback);
+        useCase.callback.onSuccess(new TestUseCase.TestResponseValue("again"));
+        useCase.callback.onError(new IllegalStateException());
+
+        assertEquals(1, callback.successes);
+        assertEquals(0, callback.errors);
+        assertEquals(1, handler.getPooledTaskCount());
+    }
+
+    @Test
+    public void late_callback_does_not_reach_the_next_execution() throws Exception {
+        UseCaseHandlerImp handler = new UseCaseHandlerImp(new DirectUseCaseScheduler());
+        CallbackKeepingUseCase finished = new CallbackKeepingUseCase(true);
+        CallbackKeepingUseCase running = new CallbackKeepingUseCase(false);
+        CountingCallback first = new CountingCallback();
+        CountingCallback second = new CountingCallback();
+
+        handler.execute(finished, new TestUseCase.TestRequestValues(false), first);
+        // reuses the task of the first execution
+        handler.execute(running, new TestUseCase.TestRequestValues(false), second);
+        finished.callback.onSuccess(new TestUseCase.TestResponseValue("late"));
+
+        assertEquals(0, second.successes);
+
+        running.callback.onSuccess(new TestUseCase.TestResponseValue("value"));
+
+        assertEquals(1, first.successes);
+        assertEquals(1, second.successes);
+    }
+
+    /**
+     * Keeps the callback it was given so the test can call it again, and only calls it straight away if
+     * {@code callBack} is {@code true}.
+     */
+    private static class CallbackKeepingUseCase
+            extends UseCase<TestUseCase.TestRequestValues, TestUseCase.TestResponseValue> {
+
+        private final boolean callBack;
+
+        UseCaseCallback<TestUseCase.TestResponseValue> callback;
+
+        CallbackKeepingUseCase(boolean callBack) {
+            this.callBack = callBack;
+        }
+
+        @Override
+        protected void executeUseCase(TestUseCase.TestRequestValues requestValues,
+                                      UseCaseCallback<TestUseCase.TestResponseValue> callback) {
+            this.callback = callback;
+            if (callBack) {
+                callback.onSuccess(new TestUseCase.TestResponseValue("value"));
+            }
+        }
+    }
+
+    private static class CountingCallback implements UseCase.UseCaseCallback<TestUseCase.TestResponseValue> {
+
+        int successes = 0;
+        int errors = 0;
+
+        @Override
+        public void onSuccess(TestUseCase.TestResponseValue response) {
+            successes++;
+        }
+
+        @Override
+        public void onError(Throwable error) {
+            errors++;
+        }
+    }
+
+    /**
+     * Returns the value it was given. Yields part way through so concurrent executions interleave.
+     */
+    private static class EchoUseCase extends UseCase<EchoUseCase.Request, TestUseCase.TestResponseValue> {
+
+        @Override
+        protected void executeUseCase(Request requestValues, UseCaseCallback<TestUseCase.TestResponseValue> callback) {
+            Thread.yield();
+            callback.onSuccess(new TestUseCase.TestResponseValue(requestValues.value));
+        }
+
+        static class Request implements UseCase.RequestValues {
+            final String value;
+
+            Request(String value) {
+                this.value = value;
+            }
+        }
+    }
+
+    /**
+     * Runs UseCases on the given executor and delivers callbacks on the worker thread.
+     */
+    private static class WorkerThreadScheduler extends DirectUseCaseScheduler {
+
+        private final ExecutorService workers;
+
+        WorkerThreadScheduler(ExecutorService workers) {
+            this.workers = workers;
+        }
+
+        @Override
+        public void execute(Runnable runnable) {
+            workers.execute(runnable);
+        }
+    }
+
+    private class TestUseCaseScheduler extends DirectUseCaseScheduler {
 
         @Override
         public void execute(Runnable runnable) {
@@ -57,16 +238,6 @@ public class UseCaseHandlerImpTest {
                 throw new RuntimeException("executor interrupted", e);
             }
         }
-
-        @Override
-        public <V extends UseCase.ResponseValue> void notifyResponse(V response, UseCase.UseCaseCallback<V> callback) {
-                callback.onSuccess(response);
-        }
-
-        @Override
-        public <V extends UseCase.ResponseValue> void onError(UseCase.UseCaseCallback<V> callback) {
-                callback.onError();
-        }
     }
 
 }
\ No newline at end of file
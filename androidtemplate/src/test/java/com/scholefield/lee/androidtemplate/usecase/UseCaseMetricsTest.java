@@ -0,0 +1,107 @@
+package com.scholefield.lee.androidtemplate.usecase;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.List;
+import java.util.concurrent.RejectedExecutionException;
+
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.mock;
+
+/**
+ *
+ */
+@SuppressWarnings("unchecked") // mocked UseCaseCallback
+public class UseCaseMetricsTest {
+
+    private UseCaseMetrics classUnderTest;
+
+    private UseCaseHandlerImp handler;
+
+    @Before
+    public void setUp() throws Exception {
+        classUnderTest = new UseCaseMetrics();
+        handler = new UseCaseHandlerImp.Builder()
+                .setScheduler(new DirectUseCaseScheduler())
+                .setMetrics(classUnderTest)
+                .build();
+    }
+
+    @Test
+    public void records_execution_and_delivery_for_each_use_case() throws Exception {
+        handler.execute(new TestUseCase(), new TestUseCase.TestRequestValues(false), mock(UseCase.UseCaseCallback.class));
+        handler.execute(new TestUseCase(), new TestUseCase.TestRequestValues(false), mock(UseCase.UseCaseCallback.class));
+
+        UseCaseMetrics.Snapshot snapshot = classUnderTest.snapshot(TestUseCase.class);
+
+        assertEquals(2, snapshot.getQueueWait().getCount());
+        assertEquals(2, snapshot.getExecution().getCount());
+        assertEquals(2, snapshot.getDelivery().getCount());
+        assertEquals(0, snapshot.getErrors());
+    }
+
+    @Test
+    public void records_errors() throws Exception {
+        handler.execute(new TestUseCase(), new TestUseCase.TestRequestValues(true), mock(UseCase.UseCaseCallback.class));
+
+        assertEquals(1, classUnderTest.snapshot(TestUseCase.class).getErrors());
+    }
+
+    @Test
+    public void records_rejections() throws Exception {
+        UseCaseHandlerImp rejecting = new UseCaseHandlerImp.Builder()
+                .setScheduler(new RejectingScheduler())
+                .setMetrics(classUnderTest)
+                .build();
+
+        try {
+            rejecting.execute(new TestUseCase(), new TestUseCase.TestRequestValues(false),
+                    mock(UseCase.UseCaseCallback.class));
+            fail("expected RejectedExecutionException");
+        } catch (RejectedExecutionException e) {
+            // expected
+        }
+
+        UseCaseMetrics.Snapshot snapshot = classUnderTest.snapshot(TestUseCase.class);
+        assertEquals(1, snapshot.getRejections());
+        assertEquals(0, snapshot.getExecution().getCount());
+    }
+
+    @Test
+    public void snapshot_returns_null_for_unknown_use_case() throws Exception {
+        assertNull(classUnderTest.snapshot(TestUseCase.class));
+    }
+
+    @Test
+    public void snapshot_contains_every_use_case_class() throws Exception {
+        handler.execute(new TestUseCase(), new TestUseCase.TestRequestValues(false), mock(UseCase.UseCaseCallback.class));
+        handler.execute(UseCasePipeline.of(new TestUseCase()), new TestUseCase.TestRequestValues(false),
+                mock(UseCase.UseCaseCallback.class));
+
+        List<UseCaseMetrics.Snapshot> snapshots = classUnderTest.snapshot();
+
+        assertEquals(2, snapshots.size());
+        assertEquals(TestUseCase.class.getName(), snapshots.get(0).getUseCaseName());
+        assertEquals(UseCasePipeline.class.getName(), snapshots.get(1).getUseCaseName());
+        assertTrue(snapshots.get(0).toString().startsWith(TestUseCase.class.getName() + " executed=1 errors=0"));
+    }
+
+    @Test
+    public void reset_removes_recorded_values() throws Exception {
+        handler.execute(new TestUseCase(), new TestUseCase.TestRequestValues(true), mock(UseCase.UseCaseCallback.class));
+
+        classUnderTest.reset();
+
+        UseCaseMetrics.Snapshot snapshot = classUnderTest.snapshot(TestUseCase.class);
+        assertEquals(0, snapshot.getErrors());
+        assertEquals(0, snapshot.getExecution().getCount());
+    }
+
+    private static class RejectingScheduler extends DirectUseCaseScheduler {
+        @Override
+        public void execute(Runnable runnable) {
+            throw new RejectedExecutionException();
+        }
+    }
+}
@@ -0,0 +1,302 @@
+package com.scholefield.lee.androidtemplate.usecase;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+/**
+ *
+ */
+public class UseCasePipelineTest {
+
+    private Executor directExecutor;
+
+    private RecordingCallback<TestUseCase.TestResponseValue> callback;
+
+    @Before
+    public void setUp() throws Exception {
+        directExecutor = new Executor() {
+            @Override
+            public void execute(Runnable command) {
+                command.run();
+            }
+        };
+        callback = new RecordingCallback<>();
+    }
+
+    @Test
+    public void map_converts_response() throws Exception {
+        UseCasePipeline<TestUseCase.TestRequestValues, TestUseCase.TestResponseValue> pipeline =
+                UseCasePipeline.of(new TestUseCase()).map(append(" mapped"));
+
+        run(pipeline, false);
+
+        assertEquals("new value mapped", callback.response.getResponseValue());
+    }
+
+    @Test
+    public void then_passes_response_to_next_use_case() throws Exception {
+        UseCasePipeline<TestUseCase.TestRequestValues, TestUseCase.TestResponseValue> pipeline =
+                UseCasePipeline.of(new TestUseCase()).then(new EchoUseCase(), toEchoRequest());
+
+        run(pipeline, false);
+
+        assertEquals("new value echoed", callback.response.getResponseValue());
+    }
+
+    @Test
+    public void error_skips_remaining_steps() throws Exception {
+        EchoUseCase echo = new EchoUseCase();
+        UseCasePipeline<TestUseCase.TestRequestValues, TestUseCase.TestResponseValue> pipeline =
+                UseCasePipeline.of(new TestUseCase()).then(echo, toEchoRequest());
+
+        run(pipeline, true);
+
+        assertEquals(1, callback.errors);
+        assertNull(callback.response);
+        assertEquals(0, echo.executions);
+    }
+
+    @Test
+    public void exception_in_map_calls_onError() throws Exception {
+        UseCasePipeline<TestUseCase.TestRequestValues, TestUseCase.TestResponseValue> pipeline =
+                UseCasePipeline.of(new TestUseCase()).map(
+                        new UseCasePipeline.Function<TestUseCase.TestResponseValue, TestUseCase.TestResponseValue>() {
+                            @Override
+                            public TestUseCase.TestResponseValue apply(TestUseCase.TestResponseValue input) {
+                                throw new UnsupportedOperationException();
+                            }
+                        });
+
+        run(pipeline, false);
+
+        assertEquals(1, callback.errors);
+        assertTrue(callback.error instanceof UnsupportedOperationException);
+    }
+
+    @Test
+    public void zip_combines_both_results() throws Exception {
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        final CountDownLatch latch = new CountDownLatch(1);
+
+        UseCasePipeline<TestUseCase.TestRequestValues, TestUseCase.TestResponseValue> pipeline = UseCasePipeline.zip(
+                new TestUseCase(), new TestUseCase(),
+                new UseCasePipeline.Combiner<TestUseCase.TestResponseValue, TestUseCase.TestResponseValue,
+                        TestUseCase.TestResponseValue>() {
+                    @Override
+                    public TestUseCase.TestResponseValue combine(TestUseCase.TestResponseValue first,
+                                                                 TestUseCase.TestResponseValue second) {
+                        return new TestUseCase.TestResponseValue(first.getResponseValue() + "+" + second.getResponseValue());
+                    }
+                }, executor);
+
+        callback.latch = latch;
+        run(pipeline, false);
+
+        assertTrue(latch.await(10, TimeUnit.SECONDS));
+        assertEquals("new value+new value", callback.response.getResponseValue());
+        executor.shutdown();
+    }
+
+    @Test
+    public void fanOut_joins_results_in_branch_order() throws Exception {
+        List<UseCase<TestUseCase.TestRequestValues, TestUseCase.TestResponseValue>> branches = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            branches.add(UseCasePipeline.of(new TestUseCase()).map(append(" " + i)));
+        }
+
+        UseCasePipeline<TestUseCase.TestRequestValues, TestUseCase.TestResponseValue> pipeline =
+                UseCasePipeline.fanOut(branches, joinValues(), directExecutor);
+
+        run(pipeline, false);
+
+        assertEquals("new value 0,new value 1,new value 2", callback.response.getResponseValue());
+    }
+
+    @Test
+    public void fanOut_runs_branch_on_current_thread_when_executor_rejects() throws Exception {
+        Executor rejecting = new Executor() {
+            @Override
+            public void execute(Runnable command) {
+                throw new RejectedExecutionException();
+            }
+        };
+        List<UseCase<TestUseCase.TestRequestValues, TestUseCase.TestResponseValue>> branches = new ArrayList<>();
+        branches.add(new TestUseCase());
+        branches.add(new FixedResponseUseCase());
+
+        UseCasePipeline<TestUseCase.TestRequestValues, TestUseCase.TestResponseValue> pipeline =
+                UseCasePipeline.fanOut(branches, joinValues(), rejecting);
+
+        run(pipeline, false);
+
+        assertEquals("new value,adapted", callback.response.getResponseValue());
+    }
+
+    @Test
+    public void fanOut_only_calls_onError_once() throws Exception {
+        List<UseCase<TestUseCase.TestRequestValues, TestUseCase.TestResponseValue>> branches = new ArrayList<>();
+        branches.add(new TestUseCase());
+        branches.add(new TestUseCase());
+
+        UseCasePipeline<TestUseCase.TestRequestValues, TestUseCase.TestResponseValue> pipeline =
+                UseCasePipeline.fanOut(branches, joinValues(), directExecutor);
+
+        run(pipeline, true);
+
+        assertEquals(1, callback.errors);
+    }
+
+    @Test
+    public void handler_delivers_only_final_response_through_scheduler() throws Exception {
+        CountingScheduler scheduler = new CountingScheduler();
+        UseCaseHandlerImp handler = new UseCaseHandlerImp(scheduler);
+
+        UseCasePipeline<TestUseCase.TestRequestValues, TestUseCase.TestResponseValue> pipeline =
+                UseCasePipeline.of(new TestUseCase())
+                        .then(new EchoUseCase(), toEchoRequest())
+                        .map(append(" mapped"));
+
+        handler.execute(pipeline, new TestUseCase.TestRequestValues(false), callback);
+
+        assertEquals(1, scheduler.executions);
+        assertEquals(1, scheduler.responses);
+        assertEquals("new value echoed mapped", callback.response.getResponseValue());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void fanOut_throws_exception_when_branches_empty() throws Exception {
+        UseCasePipeline.fanOut(new ArrayList<UseCase<TestUseCase.TestRequestValues, TestUseCase.TestResponseValue>>(),
+                joinValues(), directExecutor);
+    }
+
+    private void run(UseCase<TestUseCase.TestRequestValues, TestUseCase.TestResponseValue> pipeline,
+                     boolean shouldThrowException) {
+        pipeline.run(new TestUseCase.TestRequestValues(shouldThrowException), callback);
+    }
+
+    private static UseCasePipeline.Function<TestUseCase.TestResponseValue, TestUseCase.TestResponseValue> append(
+            final String suffix) {
+        return new UseCasePipeline.Function<TestUseCase.TestResponseValue, TestUseCase.TestResponseValue>() {
+            @Override
+            public TestUseCase.TestResponseValue apply(TestUseCase.TestResponseValue input) {
+                return new TestUseCase.TestResponseValue(input.getResponseValue() + suffix);
+            }
+        };
+    }
+
+    private static UseCasePipeline.Function<TestUseCase.TestResponseValue, EchoUseCase.EchoRequestValues> toEchoRequest() {
+        return new UseCasePipeline.Function<TestUseCase.TestResponseValue, EchoUseCase.EchoRequestValues>() {
+            @Override
+            public EchoUseCase.EchoRequestValues apply(TestUseCase.TestResponseValue input) {
+                return new EchoUseCase.EchoRequestValues(input.getResponseValue());
+            }
+        };
+    }
+
+    private static UseCasePipeline.Function<List<TestUseCase.TestResponseValue>, TestUseCase.TestResponseValue> joinValues() {
+        return new UseCasePipeline.Function<List<TestUseCase.TestResponseValue>, TestUseCase.TestResponseValue>() {
+            @Override
+            public TestUseCase.TestResponseValue apply(List<TestUseCase.TestResponseValue> input) {
+                StringBuilder builder = new StringBuilder();
+                for (TestUseCase.TestResponseValue value : input) {
+                    if (builder.length() > 0) {
+                        builder.append(",");
+                    }
+                    builder.append(value.getResponseValue());
+                }
+                return new TestUseCase.TestResponseValue(builder.toString());
+            }
+        };
+    }
+
+    /**
+     * Appends " echoed" to the request value.
+     */
+    private static class EchoUseCase extends UseCase<EchoUseCase.EchoRequestValues, TestUseCase.TestResponseValue> {
+
+        int executions = 0;
+
+        @Override
+        protected void executeUseCase(EchoRequestValues requestValues, UseCaseCallback<TestUseCase.TestResponseValue> callback) {
+            executions++;
+            callback.onSuccess(new TestUseCase.TestResponseValue(requestValues.value + " echoed"));
+        }
+
+        static class EchoRequestValues implements UseCase.RequestValues {
+            final String value;
+
+            EchoRequestValues(String value) {
+                this.value = value;
+            }
+        }
+    }
+
+    /**
+     * Always responds with "adapted".
+     */
+    private static class FixedResponseUseCase
+            extends UseCase<TestUseCase.TestRequestValues, TestUseCase.TestResponseValue> {
+
+        @Override
+        protected void executeUseCase(TestUseCase.TestRequestValues requestValues,
+                                      UseCaseCallback<TestUseCase.TestResponseValue> callback) {
+            callback.onSuccess(new TestUseCase.TestResponseValue("adapted"));
+        }
+    }
+
+    private static class RecordingCallback<R> implements UseCase.UseCaseCallback<R> {
+
+        volatile R response;
+        volatile int errors = 0;
+        volatile Throwable error;
+        CountDownLatch latch;
+
+        @Override
+        public void onSuccess(R response) {
+            this.response = response;
+            if (latch != null) latch.countDown();
+        }
+
+        @Override
+        public void onError(Throwable error) {
+            errors++;
+            this.error = error;
+            if (latch != null) latch.countDown();
+        }
+    }
+
+    private static class CountingScheduler extends DirectUseCaseScheduler {
+
+        int executions = 0;
+        int responses = 0;
+
+        @Override
+        public void execute(Runnable runnable) {
+            executions++;
+            super.execute(runnable);
+        }
+
+        @Override
+        public void post(Runnable runnable) {
+            responses++;
+            super.post(runnable);
+        }
+
+        @Override
+        public <V extends UseCase.ResponseValue> void notifyResponse(V response, UseCase.UseCaseCallback<V> callback) {
+            responses++;
+            super.notifyResponse(response, callback);
+        }
+    }
+}
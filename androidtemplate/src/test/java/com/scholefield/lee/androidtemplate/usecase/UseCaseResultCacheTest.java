@@ -0,0 +1,187 @@
+package com.scholefield.lee.androidtemplate.usecase;
+
+import com.scholefield.lee.androidtemplate.cache.SoftCache;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+/**
+ *
+ */
+public class UseCaseResultCacheTest {
+
+    private UseCaseResultCache classUnderTest;
+
+    private UseCaseMetrics metrics;
+
+    private UseCaseHandlerImp handler;
+
+    @Before
+    public void setUp() throws Exception {
+        classUnderTest = new UseCaseResultCache.Builder()
+                .setStore(new SoftCache<UseCaseResultCache.Key, UseCaseResultCache.Entry>(10))
+                .setTimeToLive(SquareUseCase.class, 1, TimeUnit.HOURS)
+                .build();
+        metrics = new UseCaseMetrics();
+        handler = new UseCaseHandlerImp.Builder()
+                .setScheduler(new DirectUseCaseScheduler())
+                .setMetrics(metrics)
+                .setResultCache(classUnderTest)
+                .build();
+    }
+
+    @Test
+    public void cached_result_is_delivered_without_running_use_case() throws Exception {
+        SquareUseCase useCase = new SquareUseCase();
+        RecordingCallback first = new RecordingCallback();
+        RecordingCallback second = new RecordingCallback();
+
+        handler.execute(useCase, new SquareUseCase.Request(4), first);
+        handler.execute(useCase, new SquareUseCase.Request(4), second);
+
+        assertEquals(1, useCase.runs);
+        assertEquals(16, first.response.value);
+        assertSame(first.response, second.response);
+        assertEquals(1, metrics.snapshot(SquareUseCase.class).getCacheHits());
+    }
+
+    @Test
+    public void different_request_values_are_cached_separately() throws Exception {
+        SquareUseCase useCase = new SquareUseCase();
+        RecordingCallback callback = new RecordingCallback();
+
+        handler.execute(useCase, new SquareUseCase.Request(2), callback);
+        handler.execute(useCase, new SquareUseCase.Request(3), callback);
+
+        assertEquals(2, useCase.runs);
+        assertEquals(9, callback.response.value);
+    }
+
+    @Test
+    public void expired_result_is_not_used() throws Exception {
+        VirtualTimeUseCaseScheduler scheduler = new VirtualTimeUseCaseScheduler.Builder().build();
+        UseCaseResultCache shortLived = new UseCaseResultCache.Builder()
+                .setTimeToLive(SquareUseCase.class, 1, TimeUnit.MILLISECONDS)
+                .build();
+        UseCaseHandlerImp shortLivedHandler = new UseCaseHandlerImp.Builder()
+                .setScheduler(scheduler)
+                .setResultCache(shortLived)
+                .build();
+        SquareUseCase useCase = new SquareUseCase();
+
+        shortLivedHandler.execute(useCase, new SquareUseCase.Request(2), new RecordingCallback());
+        scheduler.runUntilIdle();
+        scheduler.advanceBy(999, TimeUnit.MICROSECONDS);
+        shortLivedHandler.execute(useCase, new SquareUseCase.Request(2), new RecordingCallback());
+        scheduler.runUntilIdle();
+
+        assertEquals(1, useCase.runs);
+
+        scheduler.advanceBy(1, TimeUnit.MICROSECONDS);
+        shortLivedHandler.execute(useCase, new SquareUseCase.Request(2), new RecordingCallback());
+        scheduler.runUntilIdle();
+
+        assertEquals(2, useCase.runs);
+    }
+
+    @Test
+    public void invalidate_removes_result() throws Exception {
+        SquareUseCase useCase = new SquareUseCase();
+
+        handler.execute(useCase, new SquareUseCase.Request(2), new RecordingCallback());
+        classUnderTest.invalidate(SquareUseCase.class, new SquareUseCase.Request(2));
+        handler.execute(useCase, new SquareUseCase.Request(2), new RecordingCallback());
+
+        assertEquals(2, useCase.runs);
+    }
+
+    @Test
+    public void errors_are_not_cached() throws Exception {
+        SquareUseCase useCase = new SquareUseCase();
+
+        handler.execute(useCase, new SquareUseCase.Request(-1), new RecordingCallback());
+        handler.execute(useCase, new SquareUseCase.Request(-1), new RecordingCallback());
+
+        assertEquals(2, useCase.runs);
+    }
+
+    @Test
+    public void use_cases_without_time_to_live_are_not_cached() throws Exception {
+        TestUseCase useCase = new TestUseCase();
+
+        handler.execute(useCase, new TestUseCase.TestRequestValues(false), new UseCase.UseCaseCallback<TestUseCase.TestResponseValue>() {
+            @Override
+            public void onSuccess(TestUseCase.TestResponseValue response) {
+            }
+
+            @Override
+            public void onError(Throwable error) {
+            }
+        });
+
+        assertFalse(classUnderTest.isCached(TestUseCase.class));
+        assertNull(classUnderTest.get(TestUseCase.class, new TestUseCase.TestRequestValues(false), System.nanoTime()));
+    }
+
+    /**
+     * Squares the request value, failing for negative values.
+     */
+    private static class SquareUseCase extends UseCase<SquareUseCase.Request, SquareUseCase.Response> {
+
+        int runs = 0;
+
+        @Override
+        protected void executeUseCase(Request requestValues, UseCaseCallback<Response> callback) {
+            runs++;
+            if (requestValues.value < 0) {
+                callback.onError(new IllegalArgumentException("value < 0"));
+            } else {
+                callback.onSuccess(new Response(requestValues.value * requestValues.value));
+            }
+        }
+
+        static class Request implements UseCase.RequestValues {
+            final int value;
+
+            Request(int value) {
+                this.value = value;
+            }
+
+            @Override
+            public boolean equals(Object o) {
+                return o instanceof Request && ((Request) o).value == value;
+            }
+
+            @Override
+            public int hashCode() {
+                return value;
+            }
+        }
+
+        static class Response implements UseCase.ResponseValue {
+            final int value;
+
+            Response(int value) {
+                this.value = value;
+            }
+        }
+    }
+
+    private static class RecordingCallback implements UseCase.UseCaseCallback<SquareUseCase.Response> {
+
+        SquareUseCase.Response response;
+
+        @Override
+        public void onSuccess(SquareUseCase.Response response) {
+            this.response = response;
+        }
+
+        @Override
+        public void onError(Throwable error) {
+        }
+    }
+}
@@ -0,0 +1,146 @@
+package com.scholefield.lee.androidtemplate.usecase;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+/**
+ * Runs the same workload through each {@link UseCaseScheduler} implementation.
+ */
+@Config(manifest = Config.NONE)
+@RunWith(RobolectricTestRunner.class)
+public class UseCaseSchedulerBackendsTest {
+
+    private static final int EXECUTIONS = 2000;
+
+    /**
+     * {@link UseCaseThreadPoolScheduler} rejects work once its queue is full, so the harness limits the number of UseCases
+     * in flight for every scheduler to the size of that queue.
+     */
+    private static final int MAX_IN_FLIGHT = 2;
+
+    @Test
+    public void builder_uses_given_scheduler() throws Exception {
+        DirectUseCaseScheduler scheduler = new DirectUseCaseScheduler();
+
+        UseCaseHandlerImp handler = new UseCaseHandlerImp.Builder().setScheduler(scheduler).build();
+
+        assertSame(scheduler, handler.getScheduler());
+    }
+
+    @Test
+    public void builder_creates_thread_pool_scheduler_by_default() throws Exception {
+        UseCaseHandlerImp handler = new UseCaseHandlerImp.Builder().build();
+
+        assertTrue(handler.getScheduler() instanceof UseCaseThreadPoolScheduler);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void builder_throws_exception_when_scheduler_is_null() throws Exception {
+        new UseCaseHandlerImp.Builder().setScheduler(null);
+    }
+
+    @Test
+    public void direct_scheduler_runs_use_case_and_callback_on_calling_thread() throws Exception {
+        UseCaseHandlerImp handler = new UseCaseHandlerImp.Builder().setScheduler(new DirectUseCaseScheduler()).build();
+        final Thread caller = Thread.currentThread();
+        final boolean[] called = new boolean[1];
+
+        handler.execute(new TestUseCase(), new TestUseCase.TestRequestValues(false),
+                new UseCase.UseCaseCallback<TestUseCase.TestResponseValue>() {
+                    @Override
+                    public void onSuccess(TestUseCase.TestResponseValue response) {
+                        called[0] = Thread.currentThread() == caller;
+                    }
+
+                    @Override
+                    public void onError(Throwable error) {
+                    }
+                });
+
+        assertTrue(called[0]);
+    }
+
+    @Test
+    public void every_backend_completes_the_same_workload() throws Exception {
+        Map<String, UseCaseScheduler> schedulers = new LinkedHashMap<>();
+        schedulers.put("thread pool", new UseCaseThreadPoolScheduler());
+        schedulers.put("fork join", new ForkJoinUseCaseScheduler(MAX_IN_FLIGHT));
+        schedulers.put("direct", new DirectUseCaseScheduler());
+
+        for (Map.Entry<String, UseCaseScheduler> entry : schedulers.entrySet()) {
+            runWorkload(entry.getKey(), new UseCaseHandlerImp.Builder().setScheduler(entry.getValue()).build());
+        }
+    }
+
+    /**
+     * Executes {@link #EXECUTIONS} UseCases and checks that every one of them completes.
+     */
+    private void runWorkload(String name, UseCaseHandler handler) throws Exception {
+        Semaphore inFlight = new Semaphore(MAX_IN_FLIGHT);
+        CountDownLatch completed = new CountDownLatch(EXECUTIONS);
+        UseCase.UseCaseCallback<UseCase.ResponseValue> ignored = new UseCase.UseCaseCallback<UseCase.ResponseValue>() {
+            @Override
+            public void onSuccess(UseCase.ResponseValue response) {
+            }
+
+            @Override
+            public void onError(Throwable error) {
+            }
+        };
+
+        for (int i = 0; i < EXECUTIONS; i++) {
+            inFlight.acquire();
+            handler.execute(new WorkUseCase(inFlight, completed), new WorkUseCase.Request(), ignored);
+        }
+
+        assertTrue(name + " did not complete the workload", completed.await(30, TimeUnit.SECONDS));
+    }
+
+    /**
+     * Performs a small amount of CPU work and then signals that it has completed.
+     */
+    private static class WorkUseCase extends UseCase<WorkUseCase.Request, UseCase.ResponseValue> {
+
+        private final Semaphore inFlight;
+
+        private final CountDownLatch completed;
+
+        WorkUseCase(Semaphore inFlight, CountDownLatch completed) {
+            this.inFlight = inFlight;
+            this.completed = completed;
+        }
+
+        @Override
+        protected void executeUseCase(Request requestValues, UseCaseCallback<UseCase.ResponseValue> callback) {
+            long sum = 0;
+            for (int i = 0; i < 10000; i++) {
+                sum += i * 31L;
+            }
+            callback.onSuccess(new Result(sum));
+
+            inFlight.release();
+            completed.countDown();
+        }
+
+        static class Request implements UseCase.RequestValues {
+        }
+
+        static class Result implements UseCase.ResponseValue {
+            final long value;
+
+            Result(long value) {
+                this.value = value;
+            }
+        }
+    }
+}
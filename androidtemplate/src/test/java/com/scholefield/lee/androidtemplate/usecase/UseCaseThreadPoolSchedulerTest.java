@@ -0,0 +1,128 @@
+package com.scholefield.lee.androidtemplate.usecase;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+/**
+ *
+ */
+@Config(manifest = Config.NONE)
+@RunWith(RobolectricTestRunner.class)
+public class UseCaseThreadPoolSchedulerTest {
+
+    @Test
+    public void prestart_starts_every_core_thread() throws Exception {
+        UseCaseThreadPoolScheduler classUnderTest = new UseCaseThreadPoolScheduler(2, 4, 3);
+
+        assertEquals(0, classUnderTest.getThreadCount());
+        assertEquals(5, classUnderTest.prestart());
+        assertEquals(5, classUnderTest.getThreadCount());
+
+        classUnderTest.shutdown();
+    }
+
+    @Test
+    public void idle_core_threads_exit_after_keep_alive() throws Exception {
+        UseCaseThreadPoolScheduler classUnderTest =
+                new UseCaseThreadPoolScheduler(2, 4, 3, 50, TimeUnit.MILLISECONDS);
+        classUnderTest.prestart();
+
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (classUnderTest.getThreadCount() > 0 && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+
+        assertEquals(0, classUnderTest.getThreadCount());
+    }
+
+    @Test
+    public void shutdown_runs_accepted_use_cases_and_rejects_new_ones() throws Exception {
+        UseCaseThreadPoolScheduler scheduler = new UseCaseThreadPoolScheduler(2, 4, 3);
+        UseCaseHandlerImp classUnderTest = new UseCaseHandlerImp.Builder().setScheduler(scheduler).build();
+        AtomicInteger completed = new AtomicInteger();
+
+        classUnderTest.execute(new SlowUseCase(completed, UseCase.Affinity.CPU), new SlowUseCase.Request(),
+                SlowUseCase.IGNORED);
+        classUnderTest.execute(new SlowUseCase(completed, UseCase.Affinity.CPU), new SlowUseCase.Request(),
+                SlowUseCase.IGNORED);
+        classUnderTest.execute(new SlowUseCase(completed, UseCase.Affinity.IO), new SlowUseCase.Request(),
+                SlowUseCase.IGNORED);
+        classUnderTest.shutdown();
+
+        assertTrue(classUnderTest.awaitDrain(10, TimeUnit.SECONDS));
+        assertEquals(3, completed.get());
+
+        try {
+            classUnderTest.execute(new SlowUseCase(completed, UseCase.Affinity.CPU), new SlowUseCase.Request(),
+                    SlowUseCase.IGNORED);
+            fail("expected RejectedExecutionException");
+        } catch (RejectedExecutionException e) {
+            // expected
+        }
+    }
+
+    @Test
+    public void await_drain_returns_false_when_timeout_elapses() throws Exception {
+        UseCaseThreadPoolScheduler scheduler = new UseCaseThreadPoolScheduler(2, 4, 3);
+        UseCaseHandlerImp classUnderTest = new UseCaseHandlerImp.Builder().setScheduler(scheduler).build();
+
+        classUnderTest.execute(new SlowUseCase(new AtomicInteger(), UseCase.Affinity.IO), new SlowUseCase.Request(),
+                SlowUseCase.IGNORED);
+        classUnderTest.shutdown();
+
+        assertFalse(classUnderTest.awaitDrain(1, TimeUnit.MILLISECONDS));
+        assertTrue(classUnderTest.awaitDrain(10, TimeUnit.SECONDS));
+    }
+
+    /**
+     * Blocks for 100ms and then counts itself as completed.
+     */
+    private static class SlowUseCase extends UseCase<SlowUseCase.Request, SlowUseCase.Request> {
+
+        static final UseCaseCallback<Request> IGNORED = new UseCaseCallback<Request>() {
+            @Override
+            public void onSuccess(Request response) {
+            }
+
+            @Override
+            public void onError(Throwable error) {
+            }
+        };
+
+        private final AtomicInteger completed;
+
+        private final Affinity affinity;
+
+        SlowUseCase(AtomicInteger completed, Affinity affinity) {
+            this.completed = completed;
+            this.affinity = affinity;
+        }
+
+        @Override
+        public Affinity getAffinity() {
+            return affinity;
+        }
+
+        @Override
+        protected void executeUseCase(Request requestValues, UseCaseCallback<Request> callback) {
+            try {
+                Thread.sleep(100);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            completed.incrementAndGet();
+            callback.onSuccess(requestValues);
+        }
+
+        static class Request implements UseCase.RequestValues, UseCase.ResponseValue {
+        }
+    }
+}
@@ -0,0 +1,222 @@
+package com.scholefield.lee.androidtemplate.usecase;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+/**
+ *
+ */
+public class VirtualTimeUseCaseSchedulerTest {
+
+    private static final long MILLIS = TimeUnit.MILLISECONDS.toNanos(1);
+
+    private static final Runnable NO_OP = new Runnable() {
+        @Override
+        public void run() {
+        }
+    };
+
+    private VirtualTimeUseCaseScheduler classUnderTest;
+
+    private List<Long> completedAt;
+
+    @Before
+    public void setUp() throws Exception {
+        classUnderTest = new VirtualTimeUseCaseScheduler.Builder().build();
+        completedAt = new ArrayList<>();
+    }
+
+    @Test
+    public void nothing_runs_until_the_scheduler_is_advanced() throws Exception {
+        final boolean[] ran = new boolean[1];
+        classUnderTest.execute(new Runnable() {
+            @Override
+            public void run() {
+                ran[0] = true;
+            }
+        });
+
+        assertFalse(ran[0]);
+
+        classUnderTest.runUntilIdle();
+
+        assertTrue(ran[0]);
+    }
+
+    @Test
+    public void consumed_time_keeps_the_worker_busy() throws Exception {
+        UseCaseHandlerImp handler = handler(classUnderTest);
+
+        execute(handler, new CostlyUseCase(classUnderTest, 100, UseCase.Affinity.CPU));
+        execute(handler, new CostlyUseCase(classUnderTest, 100, UseCase.Affinity.CPU));
+        classUnderTest.runUntilIdle();
+
+        assertEquals(Arrays.asList(100 * MILLIS, 200 * MILLIS), completedAt);
+    }
+
+    @Test
+    public void workers_run_in_parallel() throws Exception {
+        classUnderTest = new VirtualTimeUseCaseScheduler.Builder().setWorkers(2).build();
+        UseCaseHandlerImp handler = handler(classUnderTest);
+
+        execute(handler, new CostlyUseCase(classUnderTest, 100, UseCase.Affinity.CPU));
+        execute(handler, new CostlyUseCase(classUnderTest, 100, UseCase.Affinity.CPU));
+        classUnderTest.runUntilIdle();
+
+        assertEquals(Arrays.asList(100 * MILLIS, 100 * MILLIS), completedAt);
+    }
+
+    @Test
+    public void metrics_are_recorded_in_virtual_time() throws Exception {
+        UseCaseHandlerImp handler = handler(classUnderTest);
+
+        execute(handler, new CostlyUseCase(classUnderTest, 100, UseCase.Affinity.CPU));
+        execute(handler, new CostlyUseCase(classUnderTest, 100, UseCase.Affinity.CPU));
+        classUnderTest.runUntilIdle();
+
+        UseCaseMetrics.Snapshot snapshot = handler.getMetrics().snapshot(CostlyUseCase.class);
+        assertEquals(2, snapshot.getExecution().getCount());
+        assertTrue(snapshot.getExecution().getMax() >= 100 * MILLIS);
+        assertTrue(snapshot.getQueueWait().getMax() >= 100 * MILLIS);
+    }
+
+    @Test
+    public void rejects_runnable_when_queue_is_full() throws Exception {
+        classUnderTest = new VirtualTimeUseCaseScheduler.Builder().setQueueCapacity(1).build();
+
+        classUnderTest.execute(NO_OP);
+        classUnderTest.execute(NO_OP);
+        assertEquals(1, classUnderTest.getQueuedCount());
+
+        try {
+            classUnderTest.execute(NO_OP);
+            fail("expected RejectedExecutionException");
+        } catch (RejectedExecutionException e) {
+            // expected
+        }
+    }
+
+    @Test
+    public void scheduled_runnable_runs_once_delay_has_elapsed() throws Exception {
+        final boolean[] ran = new boolean[1];
+        classUnderTest.schedule(new Runnable() {
+            @Override
+            public void run() {
+                ran[0] = true;
+            }
+        }, 50, TimeUnit.MILLISECONDS);
+
+        classUnderTest.advanceBy(49, TimeUnit.MILLISECONDS);
+        assertFalse(ran[0]);
+
+        classUnderTest.advanceBy(1, TimeUnit.MILLISECONDS);
+        assertTrue(ran[0]);
+        assertEquals(50 * MILLIS, classUnderTest.now());
+    }
+
+    @Test
+    public void io_workers_do_not_delay_cpu_use_cases() throws Exception {
+        classUnderTest = new VirtualTimeUseCaseScheduler.Builder().setIoWorkers(1).build();
+        UseCaseHandlerImp handler = handler(classUnderTest);
+
+        execute(handler, new CostlyUseCase(classUnderTest, 1000, UseCase.Affinity.IO));
+        execute(handler, new CostlyUseCase(classUnderTest, 10, UseCase.Affinity.CPU));
+        classUnderTest.runUntilIdle();
+
+        assertEquals(Arrays.asList(10 * MILLIS, 1000 * MILLIS), completedAt);
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void consume_throws_exception_outside_of_executed_runnable() throws Exception {
+        classUnderTest.consume(1, TimeUnit.MILLISECONDS);
+    }
+
+    @Test
+    public void debounced_typing_benchmark_is_reproducible() throws Exception {
+        List<Long> first = typeQuery();
+        List<Long> second = typeQuery();
+
+        assertEquals(1, first.size());
+        assertEquals(first, second);
+    }
+
+    /**
+     * Simulates ten keystrokes 50ms apart on a debounced channel, and returns the virtual time each result arrived.
+     */
+    private List<Long> typeQuery() {
+        classUnderTest = new VirtualTimeUseCaseScheduler.Builder().build();
+        completedAt = new ArrayList<>();
+        UseCaseHandlerImp handler = handler(classUnderTest);
+        Submission debounce = Submission.debounce(300, TimeUnit.MILLISECONDS);
+
+        for (int i = 0; i < 10; i++) {
+            handler.execute("search", debounce, new CostlyUseCase(classUnderTest, 20, UseCase.Affinity.IO),
+                    new CostlyUseCase.Request(), new RecordingCallback());
+            classUnderTest.advanceBy(50, TimeUnit.MILLISECONDS);
+        }
+        classUnderTest.runUntilIdle();
+
+        return completedAt;
+    }
+
+    private static UseCaseHandlerImp handler(UseCaseScheduler scheduler) {
+        return new UseCaseHandlerImp.Builder().setScheduler(scheduler).build();
+    }
+
+    private void execute(UseCaseHandlerImp handler, CostlyUseCase useCase) {
+        handler.execute(useCase, new CostlyUseCase.Request(), new RecordingCallback());
+    }
+
+    /**
+     * Takes {@code cost} milliseconds of virtual time.
+     */
+    private static class CostlyUseCase extends UseCase<CostlyUseCase.Request, CostlyUseCase.Request> {
+
+        private final VirtualTimeUseCaseScheduler scheduler;
+
+        private final long cost;
+
+        private final Affinity affinity;
+
+        CostlyUseCase(VirtualTimeUseCaseScheduler scheduler, long cost, Affinity affinity) {
+            this.scheduler = scheduler;
+            this.cost = cost;
+            this.affinity = affinity;
+        }
+
+        @Override
+        public Affinity getAffinity() {
+            return affinity;
+        }
+
+        @Override
+        protected void executeUseCase(Request requestValues, UseCaseCallback<Request> callback) {
+            scheduler.consume(cost, TimeUnit.MILLISECONDS);
+            callback.onSuccess(requestValues);
+        }
+
+        static class Request implements UseCase.RequestValues, UseCase.ResponseValue {
+        }
+    }
+
+    private class RecordingCallback implements UseCase.UseCaseCallback<CostlyUseCase.Request> {
+
+        @Override
+        public void onSuccess(CostlyUseCase.Request response) {
+            completedAt.add(classUnderTest.now());
+        }
+
+        @Override
+        public void onError(Throwable error) {
+            throw new AssertionError(error);
+        }
+    }
+}